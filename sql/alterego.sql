@@ -68,6 +68,24 @@ CREATE TABLE `agent_vote_record`  (
 -- Records of agent_vote_record
 -- ----------------------------
 
+-- ----------------------------
+-- Table structure for agent_memory_message
+-- ----------------------------
+DROP TABLE IF EXISTS `agent_memory_message`;
+CREATE TABLE `agent_memory_message`  (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `session_id` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '会话ID',
+  `seq` bigint NOT NULL COMMENT '会话内序号（单调递增）',
+  `msg_data` longtext CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '消息 JSON',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  UNIQUE INDEX `uk_session_seq`(`session_id` ASC, `seq` ASC) USING BTREE
+) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_unicode_ci COMMENT = 'Agent记忆消息表' ROW_FORMAT = Dynamic;
+
+-- ----------------------------
+-- Records of agent_memory_message
+-- ----------------------------
+
 -- ----------------------------
 -- Table structure for agentscope_sessions
 -- ----------------------------
@@ -137,6 +155,21 @@ CREATE TABLE `comment_like`  (
 -- Records of comment_like
 -- ----------------------------
 
+-- ----------------------------
+-- Table structure for counter_flush_log
+-- ----------------------------
+DROP TABLE IF EXISTS `counter_flush_log`;
+CREATE TABLE `counter_flush_log`  (
+  `batch_id` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '刷盘批次ID',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '刷盘时间',
+  PRIMARY KEY (`batch_id`) USING BTREE,
+  INDEX `idx_create_time`(`create_time` ASC) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_unicode_ci COMMENT = '计数刷盘日志表' ROW_FORMAT = Dynamic;
+
+-- ----------------------------
+-- Records of counter_flush_log
+-- ----------------------------
+
 -- ----------------------------
 -- Table structure for pk_vote_option
 -- ----------------------------
@@ -183,7 +216,9 @@ CREATE TABLE `post`  (
   PRIMARY KEY (`id`) USING BTREE,
   INDEX `idx_agent_id`(`agent_id` ASC) USING BTREE,
   INDEX `idx_post_type`(`post_type` ASC) USING BTREE,
-  INDEX `idx_create_time`(`create_time` ASC) USING BTREE
+  INDEX `idx_create_time_id`(`create_time` ASC, `id` ASC) USING BTREE,
+  INDEX `idx_agent_create_time`(`agent_id` ASC, `create_time` ASC) USING BTREE,
+  INDEX `idx_type_create_time`(`post_type` ASC, `create_time` ASC) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 11 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_unicode_ci COMMENT = '帖子表' ROW_FORMAT = Dynamic;
 
 -- ----------------------------
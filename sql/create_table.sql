@@ -98,7 +98,11 @@ CREATE TABLE IF NOT EXISTS `post`
     PRIMARY KEY (`id`),
     KEY `idx_agent_id` (`agent_id`),
     KEY `idx_post_type` (`post_type`),
-    KEY `idx_create_time` (`create_time`)
+    -- 游标分页：(create_time, id) 倒序扫描；无过滤条件的首页流走 idx_create_time_id，
+    -- 按 Agent / 类型过滤时走下面两个组合索引（二级索引叶子节点自带主键 id）
+    KEY `idx_create_time_id` (`create_time`, `id`),
+    KEY `idx_agent_create_time` (`agent_id`, `create_time`),
+    KEY `idx_type_create_time` (`post_type`, `create_time`)
 ) ENGINE = InnoDB
   DEFAULT CHARSET = utf8mb4
   COLLATE = utf8mb4_unicode_ci COMMENT ='帖子表';
@@ -247,6 +251,37 @@ CREATE TABLE IF NOT EXISTS `post_tag`
   DEFAULT CHARSET = utf8mb4
   COLLATE = utf8mb4_unicode_ci COMMENT ='帖子标签关联表';
 
+-- =============================================
+-- 2.10 计数刷盘日志表 (counter_flush_log)
+-- 写回式计数器每批次刷盘时在同一事务内写入，用于崩溃后重放的幂等判断
+-- =============================================
+CREATE TABLE IF NOT EXISTS `counter_flush_log`
+(
+    `batch_id`    varchar(64) NOT NULL COMMENT '刷盘批次ID',
+    `create_time` datetime    NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '刷盘时间',
+    PRIMARY KEY (`batch_id`),
+    KEY `idx_create_time` (`create_time`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci COMMENT ='计数刷盘日志表';
+
+-- =============================================
+-- 2.11 Agent 记忆消息表 (agent_memory_message)
+-- 按会话追加写入对话消息，替代每次整份覆盖 agentscope_sessions
+-- =============================================
+CREATE TABLE IF NOT EXISTS `agent_memory_message`
+(
+    `id`          bigint       NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    `session_id`  varchar(255) NOT NULL COMMENT '会话ID',
+    `seq`         bigint       NOT NULL COMMENT '会话内序号（单调递增）',
+    `msg_data`    longtext     NOT NULL COMMENT '消息 JSON',
+    `create_time` datetime     NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_session_seq` (`session_id`, `seq`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4
+  COLLATE = utf8mb4_unicode_ci COMMENT ='Agent记忆消息表';
+
 -- =============================================
 -- 3. 初始化数据
 -- =============================================
@@ -3,9 +3,12 @@ package org.zhemu.alterego;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @MapperScan("org.zhemu.alterego.mapper")
+// 开启定时任务：除缓存刷新、计数刷盘等任务外，也使原先未生效的 PkVoteScheduledTask（每小时关闭过期 PK）开始运行
+@EnableScheduling
 public class BackendApplication {
 
     public static void main(String[] args) {
@@ -1,5 +1,7 @@
 package org.zhemu.alterego.annotation;
 
+import org.zhemu.alterego.model.enums.RateLimitAlgorithmEnum;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -21,12 +23,17 @@ public @interface RateLimit {
     String key() default "rate_limit";
 
     /**
-     * 时间窗口（秒）
+     * 限流算法，默认固定窗口
+     */
+    RateLimitAlgorithmEnum algorithm() default RateLimitAlgorithmEnum.FIXED_WINDOW;
+
+    /**
+     * 时间窗口（秒）；令牌桶为从空桶补满所需的时间
      */
     int timeWindow() default 60;
 
     /**
-     * 时间窗口内最大请求次数
+     * 时间窗口内最大请求次数；令牌桶为桶容量
      */
     int maxCount() default 5;
 
@@ -39,4 +46,19 @@ public @interface RateLimit {
      * 是否基于IP地址限流
      */
     boolean limitByIp() default true;
+
+    /**
+     * 是否基于登录用户限流（需要接口要求登录）
+     */
+    boolean limitByUser() default false;
+
+    /**
+     * 是否基于 AgentID 限流（已登录时取当前用户的 Agent，否则取查询参数或 JSON 请求体中的 agentId 并规范化为整数）
+     */
+    boolean limitByAgent() default false;
+
+    /**
+     * 额外的限流维度：JSON 请求体字段名（支持 a.b 路径）
+     */
+    String[] bodyFields() default {};
 }
\ No newline at end of file
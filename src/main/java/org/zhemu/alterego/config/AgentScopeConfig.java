@@ -1,5 +1,6 @@
 package org.zhemu.alterego.config;
 
+import cn.hutool.core.util.StrUtil;
 import io.agentscope.core.model.DashScopeChatModel;
 import io.agentscope.core.model.Model;
 import io.agentscope.core.session.Session;
@@ -8,6 +9,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 import javax.sql.DataSource;
 
@@ -20,7 +22,10 @@ import javax.sql.DataSource;
 @Slf4j
 public class AgentScopeConfig {
 
-    @Value("${agentscope.dashscope.api-key}")
+    /**
+     * stub-llm profile 下不需要，因此允许为空，在创建 DashScope 模型时再校验
+     */
+    @Value("${agentscope.dashscope.api-key:}")
     private String apiKey;
 
     @Value("${agentscope.dashscope.model-name:qwen-plus}")
@@ -34,12 +39,16 @@ public class AgentScopeConfig {
 
     /**
      * 创建 DashScope 模型 Bean
-     * 用于 AI 生成 Agent 名称、评论等
+     * 用于 AI 生成 Agent 名称、评论等；stub-llm profile 下由 {@link StubModelConfig} 的离线桩模型替代
      *
      * @return DashScope 模型实例
      */
     @Bean
+    @Profile("!" + StubModelConfig.PROFILE)
     public Model dashScopeModel() {
+        if (StrUtil.isBlank(apiKey)) {
+            throw new IllegalStateException("未配置 agentscope.dashscope.api-key");
+        }
         log.info("初始化 DashScope 模型: modelName={}, stream={}, enableThinking={}", 
                 modelName, stream, enableThinking);
         
@@ -56,7 +65,7 @@ public class AgentScopeConfig {
 
     /**
      * 配置 MySQL Session 持久化
-     * 用于存储 Agent 的长期记忆（对话历史）
+     * 旧版 Agent 长期记忆（整份快照），现仅供 AgentMemoryStore 迁移时读取，新记忆按消息写入 agent_memory_message
      *
      * @param dataSource 数据源
      * @return Session 实例
@@ -35,11 +35,6 @@ public class CorsConfig implements WebMvcConfigurer {
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
-        // 限流拦截器（先执行）
-        registry.addInterceptor(rateLimitInterceptor)
-                .addPathPatterns("/**")
-                .order(0);
-
         registry.addInterceptor(authInterceptor)
                 // 拦截所有请求
                 .addPathPatterns("/**")
@@ -59,6 +54,11 @@ public class CorsConfig implements WebMvcConfigurer {
                         // API文档
                         "/v3/api-docs/**"
                 )
+                .order(0);
+
+        // 限流拦截器（在认证之后执行，才能按登录用户限流；无需登录的接口直接进入限流）
+        registry.addInterceptor(rateLimitInterceptor)
+                .addPathPatterns("/**")
                 .order(1);
     }
 
@@ -19,6 +19,9 @@ public class RabbitMqConfig {
     // Agent头像生成队列
     public static final String AGENT_AVATAR_QUEUE = "agent.avatar.queue";
 
+    // AI 文本生成任务队列（发帖/评论/PK/投票）
+    public static final String AI_GENERATE_QUEUE = "ai.generate.queue";
+
     @Bean
     public Queue codeQueue() {
         return new Queue(LOGIN_EMAIL_CODE_QUEUE, true);
@@ -29,4 +32,9 @@ public class RabbitMqConfig {
         return new Queue(AGENT_AVATAR_QUEUE, true);
     }
 
+    @Bean
+    public Queue aiGenerateQueue() {
+        return new Queue(AI_GENERATE_QUEUE, true);
+    }
+
 }
@@ -0,0 +1,202 @@
+package org.zhemu.alterego.config;
+
+import io.agentscope.core.message.ContentBlock;
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.message.ToolUseBlock;
+import io.agentscope.core.model.ChatResponse;
+import io.agentscope.core.model.ChatUsage;
+import io.agentscope.core.model.GenerateOptions;
+import io.agentscope.core.model.Model;
+import io.agentscope.core.model.ToolSchema;
+import lombok.Builder;
+import lombok.Getter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 离线桩模型：不访问网络，按配置的分布返回确定性的结果，用于基准测试和压测
+ * <ul>
+ *     <li>时延 = 首 token 时延（对数正态，中位数 + sigma）+ 输出 token 数 × 每 token 耗时</li>
+ *     <li>输出 token 数服从截断正态分布</li>
+ *     <li>传入工具时（结构化输出）按工具参数的 JSON Schema 填充字段并返回一次工具调用，否则返回纯文本</li>
+ * </ul>
+ * 第 n 次调用使用 seed + n 作为随机种子，同样的调用顺序得到同样的时延和输出
+ *
+ * @author lushihao
+ */
+@Getter
+@Builder
+public class StubChatModel implements Model {
+
+    private static final String STRUCTURED_OUTPUT_TOOL = "generate_response";
+
+    private static final String FILLER = "今天阳光很好我们一起去公园散步看看花草顺便聊聊最近发生的趣事";
+
+    @Builder.Default
+    private final String modelName = "stub";
+
+    @Builder.Default
+    private final long seed = 42L;
+
+    /**
+     * 首 token 时延中位数（毫秒）
+     */
+    @Builder.Default
+    private final long firstTokenMedianMs = 800L;
+
+    /**
+     * 首 token 时延对数正态分布的 sigma，0 表示固定时延
+     */
+    @Builder.Default
+    private final double firstTokenSigma = 0.5;
+
+    /**
+     * 每个输出 token 的生成耗时（毫秒）
+     */
+    @Builder.Default
+    private final double perTokenMs = 10.0;
+
+    @Builder.Default
+    private final int outputTokensMean = 120;
+
+    @Builder.Default
+    private final int outputTokensStddev = 40;
+
+    private final AtomicLong callCounter = new AtomicLong();
+
+    @Override
+    public Flux<ChatResponse> stream(List<Msg> messages, List<ToolSchema> tools, GenerateOptions options) {
+        return Flux.defer(() -> {
+            long call = callCounter.getAndIncrement();
+            SplittableRandom random = new SplittableRandom(seed + call);
+            int outputTokens = Math.max(1, (int) Math.round(outputTokensMean + gaussian(random) * outputTokensStddev));
+            long firstTokenMs = Math.round(firstTokenMedianMs * Math.exp(firstTokenSigma * gaussian(random)));
+            long latencyMs = firstTokenMs + Math.round(outputTokens * perTokenMs);
+
+            ToolSchema tool = pickTool(tools);
+            ContentBlock block = tool == null
+                    ? TextBlock.builder().text(text(random, outputTokens)).build()
+                    : ToolUseBlock.builder()
+                    .id("stub-call-" + call)
+                    .name(tool.getName())
+                    .input(fillObject(tool.getParameters(), random, outputTokens))
+                    .build();
+            ChatResponse response = ChatResponse.builder()
+                    .id("stub-" + call)
+                    .content(List.of(block))
+                    .usage(ChatUsage.builder()
+                            .inputTokens(estimateInputTokens(messages))
+                            .outputTokens(outputTokens)
+                            .time(latencyMs / 1000.0)
+                            .build())
+                    .finishReason("stop")
+                    .build();
+            return Mono.delay(Duration.ofMillis(latencyMs)).thenReturn(response).flux();
+        });
+    }
+
+    private static ToolSchema pickTool(List<ToolSchema> tools) {
+        if (tools == null || tools.isEmpty()) {
+            return null;
+        }
+        for (ToolSchema tool : tools) {
+            if (STRUCTURED_OUTPUT_TOOL.equals(tool.getName())) {
+                return tool;
+            }
+        }
+        return tools.get(0);
+    }
+
+    /**
+     * 按 JSON Schema 的 properties 填充对象，字符串字段平分输出 token
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> fillObject(Map<String, Object> schema, SplittableRandom random, int tokens) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (schema == null || !(schema.get("properties") instanceof Map<?, ?> properties)) {
+            return result;
+        }
+        int perField = Math.max(1, tokens / Math.max(1, properties.size()));
+        for (Map.Entry<?, ?> entry : properties.entrySet()) {
+            String name = String.valueOf(entry.getKey());
+            Map<String, Object> property = entry.getValue() instanceof Map<?, ?> map
+                    ? (Map<String, Object>) map : Map.of();
+            result.put(name, fillValue(name, property, random, perField));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object fillValue(String name, Map<String, Object> schema, SplittableRandom random, int tokens) {
+        if (schema.get("enum") instanceof List<?> values && !values.isEmpty()) {
+            return values.get(random.nextInt(values.size()));
+        }
+        // 投票选项只接受 A/B，Schema 中没有枚举约束
+        if ("selectedOption".equals(name)) {
+            return random.nextBoolean() ? "A" : "B";
+        }
+        Object type = schema.get("type");
+        if (type instanceof List<?> types) {
+            type = types.stream().filter(t -> !"null".equals(t)).findFirst().orElse(null);
+        }
+        return switch (String.valueOf(type)) {
+            case "boolean" -> random.nextBoolean();
+            case "integer" -> random.nextInt(100);
+            case "number" -> random.nextDouble() * 100;
+            case "object" -> fillObject(schema, random, tokens);
+            case "array" -> {
+                int size = 1 + random.nextInt(3);
+                Map<String, Object> items = schema.get("items") instanceof Map<?, ?> map
+                        ? (Map<String, Object>) map : Map.of("type", "string");
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(fillValue(name, items, random, Math.max(1, tokens / size / 4)));
+                }
+                yield list;
+            }
+            default -> text(random, tokens);
+        };
+    }
+
+    /**
+     * 生成约 tokens 个 token 的中文文本（按一个汉字一个 token 估算）
+     */
+    private static String text(SplittableRandom random, int tokens) {
+        StringBuilder sb = new StringBuilder(tokens);
+        int offset = random.nextInt(FILLER.length());
+        for (int i = 0; i < tokens; i++) {
+            sb.append(FILLER.charAt((offset + i) % FILLER.length()));
+        }
+        return sb.toString();
+    }
+
+    private static int estimateInputTokens(List<Msg> messages) {
+        if (messages == null) {
+            return 0;
+        }
+        int chars = 0;
+        for (Msg msg : messages) {
+            String text = msg.getTextContent();
+            chars += text == null ? 0 : text.length();
+        }
+        return chars;
+    }
+
+    /**
+     * 标准正态分布（Box-Muller）
+     */
+    private static double gaussian(SplittableRandom random) {
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+    }
+}
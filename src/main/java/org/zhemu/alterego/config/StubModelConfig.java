@@ -0,0 +1,61 @@
+package org.zhemu.alterego.config;
+
+import io.agentscope.core.model.Model;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * 离线桩模型配置
+ * 激活 stub-llm profile 后用 {@link StubChatModel} 替换 DashScope 模型，整条 AI 生成链路（会话加载、摘要、
+ * 结构化解析、会话保存）照常执行，只是不访问网络。用于本地压测和性能回归：
+ * <pre>
+ * ./mvnw spring-boot:run -Dspring-boot.run.profiles=dev,stub-llm
+ * </pre>
+ *
+ * @author lushihao
+ */
+@Configuration
+@Profile(StubModelConfig.PROFILE)
+@Slf4j
+public class StubModelConfig {
+
+    public static final String PROFILE = "stub-llm";
+
+    @Value("${ai.stub.seed:42}")
+    private long seed;
+
+    @Value("${ai.stub.first-token-median-ms:800}")
+    private long firstTokenMedianMs;
+
+    @Value("${ai.stub.first-token-sigma:0.5}")
+    private double firstTokenSigma;
+
+    @Value("${ai.stub.per-token-ms:10}")
+    private double perTokenMs;
+
+    @Value("${ai.stub.output-tokens-mean:120}")
+    private int outputTokensMean;
+
+    @Value("${ai.stub.output-tokens-stddev:40}")
+    private int outputTokensStddev;
+
+    /**
+     * 与 {@link AgentScopeConfig#dashScopeModel()} 同名，注入方无需改动
+     */
+    @Bean
+    public Model dashScopeModel() {
+        log.warn("已启用离线桩模型（{} profile），AI 生成结果为占位内容: firstTokenMedianMs={}, outputTokensMean={}",
+                PROFILE, firstTokenMedianMs, outputTokensMean);
+        return StubChatModel.builder()
+                .seed(seed)
+                .firstTokenMedianMs(firstTokenMedianMs)
+                .firstTokenSigma(firstTokenSigma)
+                .perTokenMs(perTokenMs)
+                .outputTokensMean(outputTokensMean)
+                .outputTokensStddev(outputTokensStddev)
+                .build();
+    }
+}
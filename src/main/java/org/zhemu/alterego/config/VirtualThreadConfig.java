@@ -0,0 +1,45 @@
+package org.zhemu.alterego.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+
+/**
+ * 线程模型配置
+ * 开启 spring.threads.virtual.enabled=true 后，Spring Boot 会把 Tomcat 请求线程、@Scheduled 定时任务、
+ * RabbitMQ 监听容器都切换为虚拟线程；这里补充 AI 生成链路中阻塞 IO（会话读写、同步模型调用）使用的调度器。
+ * <p>
+ * 项目代码中没有 synchronized 块（锁均为 Redis 分布式锁或 JUC），MySQL Connector/J 9.x、Lettuce、HikariCP
+ * 均已避免在 IO 上持有监视器，虚拟线程不会被钉住；排查时可加 -Djdk.tracePinnedThreads=short
+ *
+ * @author lushihao
+ */
+@Configuration
+@Slf4j
+public class VirtualThreadConfig {
+
+    /**
+     * 虚拟线程模式：每个阻塞任务一个虚拟线程，并发度不再受 boundedElastic 线程上限（10 * CPU 核数）限制
+     */
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Scheduler virtualAiIoScheduler() {
+        log.info("虚拟线程模式已开启，AI 生成阻塞 IO 使用虚拟线程调度器");
+        return Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "ai-io-virtual");
+    }
+
+    /**
+     * 平台线程模式：沿用 Reactor 全局 boundedElastic（共享实例，不随容器销毁）
+     */
+    @Bean(destroyMethod = "")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public Scheduler platformAiIoScheduler() {
+        return Schedulers.boundedElastic();
+    }
+}
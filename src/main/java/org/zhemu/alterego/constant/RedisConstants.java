@@ -20,6 +20,16 @@ public interface RedisConstants {
     // 2.2 用户信息缓存（避免每次请求查DB）
     public static final String USER_INFO_CACHE = "user:info:cache:";
     public static final Long USER_INFO_CACHE_TTL = 30L; // 30天，与token同步过期
+    // 2.3 登录态本地缓存失效广播频道（登出、改密时通知所有节点）
+    public static final String AUTH_CACHE_INVALIDATE_CHANNEL = "cache:auth:invalidate";
+    // 2.4 签名令牌模式：刷新令牌（key 后缀为会话ID，value 为 userId:secret:会话创建时间秒）
+    public static final String USER_REFRESH_TOKEN = "user:refresh:token:";
+    // 2.5 签名令牌模式：已吊销的会话（ZSET，score 为访问令牌最晚过期时间毫秒）
+    public static final String AUTH_REVOKED_SESSIONS = "auth:revoked:session";
+    // 2.6 签名令牌模式：按用户吊销（Hash，userId -> 该时间秒及之前签发的令牌全部失效）
+    public static final String AUTH_REVOKED_USERS = "auth:revoked:user";
+    // 2.7 签名令牌模式：吊销广播频道
+    public static final String AUTH_REVOKE_CHANNEL = "auth:revoke";
     
     // 3.访客统计
     public static final String VISITOR_DAILY_KEY = "visitor:daily:";
@@ -30,5 +40,73 @@ public interface RedisConstants {
 
     // 5. 排行榜相关
     public static final String AGENT_LIKE_RANK_KEY = "rank:agent:like:total";
+    // 5.1 小时桶（key 后缀 yyyyMMddHH），日榜由最近 24 个小时桶合并
+    public static final String AGENT_LIKE_RANK_HOUR = "rank:agent:like:hour:";
+    public static final long AGENT_LIKE_RANK_HOUR_TTL = 26; // 小时
+    // 5.2 天桶（key 后缀 yyyyMMdd），周榜由最近 7 个天桶合并
+    public static final String AGENT_LIKE_RANK_DAY = "rank:agent:like:day:";
+    public static final long AGENT_LIKE_RANK_DAY_TTL = 8; // 天
+    // 5.3 滚动日榜 / 周榜（增量累加，整点轮转时用 ZUNIONSTORE 重建）
+    public static final String AGENT_LIKE_RANK_DAILY = "rank:agent:like:daily";
+    public static final String AGENT_LIKE_RANK_WEEKLY = "rank:agent:like:weekly";
+    // 5.4 热度榜（前向衰减：分数 = Σ 增量 × e^(λ(t - epoch))）及其基准时间（epoch 秒）
+    public static final String AGENT_LIKE_RANK_HOT = "rank:agent:like:hot";
+    public static final String AGENT_LIKE_RANK_HOT_EPOCH = "rank:agent:like:hot:epoch";
+    // 5.5 各窗口榜单版本号（Hash，field 为窗口 value），该窗口前 N 名变化时自增，各节点据此只刷新变化的窗口
+    public static final String AGENT_LIKE_RANK_VERSION = "rank:agent:like:window:version";
+    // 5.6 总榜全量重建时的影子榜（重建完成后 RENAME 覆盖总榜），重建期间的增量同时写入
+    public static final String AGENT_LIKE_RANK_SHADOW = "rank:agent:like:total:rebuild";
+    public static final long AGENT_LIKE_RANK_SHADOW_TTL = 30; // 分钟，重建中断时自动清理
+    // 5.7 总榜重建/校对分布式锁
+    public static final String AGENT_LIKE_RANK_REBUILD_LOCK = "rank:agent:like:rebuild:lock";
+
+    // 6. 帖子缓存相关（L2，L1 为本地 Caffeine）
+    // 6.1 单条帖子 VO 缓存
+    public static final String POST_VO_CACHE = "cache:post:vo:";
+    // 6.2 信息流分页缓存（仅存帖子ID列表，key 中带版本号）
+    public static final String POST_FEED_PAGE_CACHE = "cache:post:feed:";
+    // 6.3 信息流版本号，新帖发布时自增，旧版本分页自然过期
+    public static final String POST_FEED_VERSION = "cache:post:feed:version";
+    // 6.4 本地缓存失效广播频道
+    public static final String POST_CACHE_INVALIDATE_CHANNEL = "cache:post:invalidate";
+
+    // 7. 物种快照变更广播频道
+    public static final String SPECIES_CHANGED_CHANNEL = "cache:species:changed";
+
+    // 8. 写回式计数器相关
+    // 8.1 待刷盘增量 Hash（field = 字段code:行ID）
+    public static final String COUNTER_PENDING = "counter:pending";
+    // 8.2 刷盘中快照（含批次ID，崩溃后重放）
+    public static final String COUNTER_FLUSHING = "counter:flushing";
+    // 8.3 刷盘分布式锁
+    public static final String COUNTER_FLUSH_LOCK = "counter:flush:lock";
+
+    // 9. AI 异步生成任务相关
+    // 9.1 任务状态（JSON）
+    public static final String AI_JOB = "ai:job:";
+    // 9.2 任务状态保留时间（小时）
+    public static final long AI_JOB_TTL = 24;
+    // 9.3 任务状态变更广播频道（SSE 连接可能在其他节点）
+    public static final String AI_JOB_STATUS_CHANNEL = "ai:job:status";
+    // 9.4 任务执行权（SET NX，消息重复投递时只有首个消费者执行；有效期为执行超时时间）
+    public static final String AI_JOB_CLAIM = "ai:job:claim:";
+    // 9.5 执行中的任务（ZSET，score 为开始执行时间毫秒），超时未结束的由定时任务置为失败
+    public static final String AI_JOB_RUNNING = "ai:job:running";
+    // 9.6 SSE 订阅票据（value 为 jobId，一次性，浏览器 EventSource 无法携带 Authorization 头时使用）
+    public static final String AI_JOB_TICKET = "ai:job:ticket:";
+    // 9.7 订阅票据有效期（秒）
+    public static final long AI_JOB_TICKET_TTL = 60;
+
+    // 10. Agent 记忆摘要缓存（JSON: coveredSeq + 摘要文本）
+    public static final String AGENT_MEMORY_SUMMARY = "ai:memory:summary:";
+    // 10.1 摘要保留时间（天）
+    public static final long AGENT_MEMORY_SUMMARY_TTL = 7;
+
+    // 11. PK 实时票数（Hash: optionId -> 票数，发起 PK 时创建，不存在时读取方从 MySQL + 未刷盘增量重建）
+    public static final String PK_TALLY = "pk:tally:";
+    // 11.1 实时票数保留时间（小时，PK 持续 24 小时）
+    public static final long PK_TALLY_TTL = 26;
+    // 11.2 票数变更广播频道（消息为 postId，各节点合并后向本地 SSE 连接推送）
+    public static final String PK_TALLY_CHANNEL = "pk:tally:changed";
 
 }
@@ -0,0 +1,44 @@
+package org.zhemu.alterego.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.zhemu.alterego.annotation.RequireRole;
+import org.zhemu.alterego.common.BaseResponse;
+import org.zhemu.alterego.common.ResultUtils;
+import org.zhemu.alterego.manager.ModelResilienceManager;
+import org.zhemu.alterego.model.enums.UserRoleEnum;
+import org.zhemu.alterego.model.vo.ModelResilienceStatsVO;
+
+import java.util.List;
+
+/**
+ * 管理员运维接口
+ *
+ * @author lushihao
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/admin")
+@Slf4j
+@RequireRole(UserRoleEnum.ADMIN)
+@Tag(name = "管理员模块", description = "运行指标等运维接口")
+public class AdminController {
+
+    private final ModelResilienceManager modelResilienceManager;
+
+    /**
+     * 大模型调用保护指标：各调用类型的熔断状态、并发上限与拒绝/超时/对冲次数
+     *
+     * @return 按调用类型排序的指标
+     */
+    @GetMapping("/model/stats")
+    @Operation(summary = "查询模型调用保护指标", description = "舱壁、自适应并发、熔断、对冲的运行指标")
+    public BaseResponse<List<ModelResilienceStatsVO>> getModelStats() {
+        return ResultUtils.success(modelResilienceManager.getStats());
+    }
+}
@@ -7,12 +7,20 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 import org.zhemu.alterego.annotation.RequireLogin;
+import org.zhemu.alterego.annotation.RequireRole;
 import org.zhemu.alterego.common.BaseResponse;
 
 import org.zhemu.alterego.common.ResultUtils;
+import org.zhemu.alterego.exception.ErrorCode;
+import org.zhemu.alterego.exception.ThrowUtils;
+import org.zhemu.alterego.manager.RankRebuildManager;
 import org.zhemu.alterego.model.dto.agent.AgentAvatarGenerateRequest;
 import org.zhemu.alterego.model.dto.agent.AgentCreateRequest;
+import org.zhemu.alterego.model.enums.RankWindowEnum;
+import org.zhemu.alterego.model.enums.UserRoleEnum;
+import org.zhemu.alterego.model.vo.AgentRankPositionVO;
 import org.zhemu.alterego.model.vo.AgentRankVO;
+import org.zhemu.alterego.model.vo.RankRebuildResultVO;
 import org.zhemu.alterego.model.vo.AgentVO;
 import org.zhemu.alterego.service.AgentService;
 import org.zhemu.alterego.util.UserContext;
@@ -33,6 +41,8 @@ public class AgentController {
 
     private final AgentService agentService;
 
+    private final RankRebuildManager rankRebuildManager;
+
     /**
      * 创建Agent
      *
@@ -77,14 +87,48 @@ public class AgentController {
     }
 
     /**
-     * 获赞排行榜（总榜）
+     * 获赞排行榜
+     *
+     * @param window 时间窗口：total（总榜，默认）/daily/weekly/hot
      */
     @GetMapping("/rank/like")
     @RequireLogin(required = false)
-    @Operation(summary = "获赞排行榜", description = "获取Agent获赞排行榜TopN")
+    @Operation(summary = "获赞排行榜", description = "获取Agent获赞排行榜TopN，window 可选 total/daily/weekly/hot")
     public BaseResponse<java.util.List<AgentRankVO>> getLikeRank(
-            @RequestParam(defaultValue = "10") int limit) {
-        return ResultUtils.success(agentService.getLikeRankTop(limit));
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "total") String window) {
+        RankWindowEnum windowEnum = RankWindowEnum.getEnumByValue(window);
+        ThrowUtils.throwIf(windowEnum == null, ErrorCode.PARAMS_ERROR, "不支持的排行榜窗口");
+        return ResultUtils.success(agentService.getLikeRankTop(windowEnum, limit));
     }
-}
 
+    /**
+     * 我的获赞榜位置
+     *
+     * @param window 时间窗口：total（总榜，默认）/daily/weekly/hot
+     * @param k      前后各取的名次数
+     */
+    @GetMapping("/rank/like/me")
+    @Operation(summary = "我的获赞榜位置", description = "返回当前用户Agent的名次、分数及前后各k名")
+    public BaseResponse<AgentRankPositionVO> getMyLikeRank(
+            @RequestParam(defaultValue = "total") String window,
+            @RequestParam(defaultValue = "3") int k) {
+        RankWindowEnum windowEnum = RankWindowEnum.getEnumByValue(window);
+        ThrowUtils.throwIf(windowEnum == null, ErrorCode.PARAMS_ERROR, "不支持的排行榜窗口");
+        Long userId = UserContext.getCurrentUserId();
+        return ResultUtils.success(agentService.getLikeRankPosition(userId, windowEnum, k));
+    }
+
+    /**
+     * 从 MySQL 点赞记录修复获赞总榜（管理员）
+     *
+     * @param full true 全量重建（影子榜 + RENAME 替换），false 只修正漂移成员
+     */
+    @PostMapping("/rank/rebuild")
+    @RequireRole(UserRoleEnum.ADMIN)
+    @Operation(summary = "修复获赞总榜", description = "full=true 全量重建，默认增量校对，同时修正 agent.like_count")
+    public BaseResponse<RankRebuildResultVO> rebuildLikeRank(@RequestParam(defaultValue = "false") boolean full) {
+        RankRebuildResultVO result = full ? rankRebuildManager.rebuild() : rankRebuildManager.reconcile();
+        return ResultUtils.success(result);
+    }
+}
@@ -0,0 +1,124 @@
+package org.zhemu.alterego.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.zhemu.alterego.annotation.RateLimit;
+import org.zhemu.alterego.annotation.RequireLogin;
+import org.zhemu.alterego.common.BaseResponse;
+import org.zhemu.alterego.common.ResultUtils;
+import org.zhemu.alterego.model.dto.comment.AgentCommentGenerateRequest;
+import org.zhemu.alterego.model.dto.pk.PkCreateRequest;
+import org.zhemu.alterego.model.dto.pk.PkVoteRequest;
+import org.zhemu.alterego.model.dto.post.AgentPostGenerateRequest;
+import org.zhemu.alterego.model.enums.AiJobTypeEnum;
+import org.zhemu.alterego.model.enums.RateLimitAlgorithmEnum;
+import org.zhemu.alterego.model.vo.AiJobVO;
+import org.zhemu.alterego.service.AiJobService;
+import org.zhemu.alterego.util.UserContext;
+
+/**
+ * AI 异步生成任务接口
+ * 提交后立即返回任务ID，结果通过轮询 /job/get 或订阅 /job/subscribe（SSE）获取。
+ * 浏览器 EventSource 无法携带 Authorization 头，订阅前先调用 /job/subscribe/ticket 获取一次性票据，
+ * 再以 /job/subscribe?jobId=...&ticket=... 建立连接
+ *
+ * @author lushihao
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/job")
+@Slf4j
+@RequireLogin
+@Tag(name = "AI任务模块", description = "AI 异步生成任务提交与状态查询")
+public class AiJobController {
+
+    private final AiJobService aiJobService;
+
+    @PostMapping("/post/ai/create")
+    @RateLimit(key = "ai_post", limitByIp = false, limitByAgent = true,
+            algorithm = RateLimitAlgorithmEnum.TOKEN_BUCKET, maxCount = 5, timeWindow = 60)
+    @Operation(summary = "异步让Agent发帖", description = "立即返回任务ID，消耗能量在任务执行时扣除")
+    public BaseResponse<AiJobVO> submitPostJob(@Valid @RequestBody AgentPostGenerateRequest request) {
+        Long userId = UserContext.getCurrentUserId();
+        return ResultUtils.success(aiJobService.submitJob(AiJobTypeEnum.POST, request, userId));
+    }
+
+    @PostMapping("/comment/ai/generate")
+    @RateLimit(key = "ai_comment", limitByIp = false, limitByAgent = true,
+            algorithm = RateLimitAlgorithmEnum.TOKEN_BUCKET, maxCount = 10, timeWindow = 60)
+    @Operation(summary = "异步让Agent发表评论", description = "立即返回任务ID，消耗能量在任务执行时扣除")
+    public BaseResponse<AiJobVO> submitCommentJob(@Valid @RequestBody AgentCommentGenerateRequest request) {
+        Long userId = UserContext.getCurrentUserId();
+        return ResultUtils.success(aiJobService.submitJob(AiJobTypeEnum.COMMENT, request, userId));
+    }
+
+    @PostMapping("/pk/create")
+    @RateLimit(key = "ai_pk_create", limitByIp = false, limitByAgent = true,
+            algorithm = RateLimitAlgorithmEnum.TOKEN_BUCKET, maxCount = 5, timeWindow = 60)
+    @Operation(summary = "异步让Agent发起PK", description = "立即返回任务ID，消耗能量在任务执行时扣除")
+    public BaseResponse<AiJobVO> submitPkCreateJob(@Valid @RequestBody PkCreateRequest request) {
+        Long userId = UserContext.getCurrentUserId();
+        return ResultUtils.success(aiJobService.submitJob(AiJobTypeEnum.PK_CREATE, request, userId));
+    }
+
+    @PostMapping("/pk/vote")
+    @RateLimit(key = "ai_pk_vote", limitByIp = false, limitByAgent = true,
+            algorithm = RateLimitAlgorithmEnum.TOKEN_BUCKET, maxCount = 10, timeWindow = 60)
+    @Operation(summary = "异步让Agent投票", description = "立即返回任务ID，消耗能量在任务执行时扣除")
+    public BaseResponse<AiJobVO> submitPkVoteJob(@Valid @RequestBody PkVoteRequest request) {
+        Long userId = UserContext.getCurrentUserId();
+        return ResultUtils.success(aiJobService.submitJob(AiJobTypeEnum.PK_VOTE, request, userId));
+    }
+
+    /**
+     * 轮询任务状态
+     *
+     * @param jobId 任务ID
+     * @return 任务状态，成功时带生成结果
+     */
+    @GetMapping("/get")
+    @Operation(summary = "查询任务状态", description = "任务状态保留 24 小时")
+    public BaseResponse<AiJobVO> getJob(@RequestParam String jobId) {
+        Long userId = UserContext.getCurrentUserId();
+        return ResultUtils.success(aiJobService.getJob(jobId, userId));
+    }
+
+    /**
+     * 获取任务订阅票据（60 秒内有效，只能使用一次）
+     *
+     * @param jobId 任务ID
+     * @return 票据
+     */
+    @PostMapping("/subscribe/ticket")
+    @Operation(summary = "获取任务订阅票据", description = "用于 EventSource 等无法设置请求头的客户端")
+    public BaseResponse<String> createSubscribeTicket(@RequestParam String jobId) {
+        Long userId = UserContext.getCurrentUserId();
+        return ResultUtils.success(aiJobService.createSubscribeTicket(jobId, userId));
+    }
+
+    /**
+     * 订阅任务状态推送（SSE），凭票据鉴权（不读 Authorization 头），
+     * 连接建立后立即推送一次当前状态，终态后服务端关闭连接
+     *
+     * @param jobId  任务ID
+     * @param ticket 订阅票据
+     * @return SSE 事件流，事件名 job
+     */
+    @GetMapping(value = "/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @RequireLogin(required = false)
+    @Operation(summary = "订阅任务状态", description = "SSE 推送任务状态变更，需先获取订阅票据")
+    public SseEmitter subscribeJob(@RequestParam String jobId, @RequestParam String ticket) {
+        return aiJobService.subscribeJob(jobId, ticket);
+    }
+}
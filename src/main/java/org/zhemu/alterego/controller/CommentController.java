@@ -9,17 +9,24 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.zhemu.alterego.annotation.RateLimit;
 import org.zhemu.alterego.annotation.RequireLogin;
+import org.zhemu.alterego.annotation.RequireRole;
 import org.zhemu.alterego.common.BaseResponse;
 
 import org.zhemu.alterego.common.ResultUtils;
+import org.zhemu.alterego.model.dto.comment.AgentCommentBatchRequest;
 import org.zhemu.alterego.model.dto.comment.AgentCommentGenerateRequest;
 import org.zhemu.alterego.model.dto.comment.CommentQueryRequest;
 import org.zhemu.alterego.model.vo.CommentPageVO;
+import org.zhemu.alterego.model.enums.RateLimitAlgorithmEnum;
+import org.zhemu.alterego.model.enums.UserRoleEnum;
 import org.zhemu.alterego.model.vo.CommentVO;
 import org.zhemu.alterego.service.CommentService;
 import org.zhemu.alterego.util.UserContext;
 
+import java.util.List;
+
 /**
  * 评论接口
  * @author: lushihao
@@ -37,6 +44,8 @@ public class CommentController {
     private final CommentService commentService;
 
     @PostMapping("/ai/generate")
+    @RateLimit(key = "ai_comment", limitByIp = false, limitByAgent = true,
+            algorithm = RateLimitAlgorithmEnum.TOKEN_BUCKET, maxCount = 10, timeWindow = 60)
     @Operation(summary = "让Agent发表评论", description = "消耗能量，基于Agent性格对帖子或评论进行回复")
     public BaseResponse<CommentVO> aiGenerateComment(
             @Valid @RequestBody AgentCommentGenerateRequest request) {
@@ -47,6 +56,22 @@ public class CommentController {
         return ResultUtils.success(commentVO);
     }
 
+    /**
+     * 批量让多个 Agent 对同一帖子发表评论（管理员）
+     *
+     * @param request 批量评论请求
+     * @return 成功保存的评论
+     */
+    @PostMapping("/ai/batch")
+    @RequireRole(UserRoleEnum.ADMIN)
+    @Operation(summary = "批量让Agent发表评论", description = "管理员操作，多个Agent并发生成评论，能量不足的Agent跳过")
+    public BaseResponse<List<CommentVO>> aiBatchGenerateComment(
+            @Valid @RequestBody AgentCommentBatchRequest request) {
+        log.info("管理员 {} 请求 {} 个 Agent 批量评论帖子 {}", UserContext.getCurrentUserId(),
+                request.getAgentIds().size(), request.getPostId());
+        return ResultUtils.success(commentService.aiBatchGenerateComment(request));
+    }
+
     /**
      * 分页获取评论列表
      *
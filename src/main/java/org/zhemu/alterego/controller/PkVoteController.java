@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -11,6 +12,9 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.zhemu.alterego.annotation.RateLimit;
+import org.zhemu.alterego.annotation.RequireRole;
 import org.zhemu.alterego.common.BaseResponse;
 import org.zhemu.alterego.common.ResultUtils;
 import org.zhemu.alterego.exception.ErrorCode;
@@ -18,8 +22,12 @@ import org.zhemu.alterego.exception.ThrowUtils;
 import org.zhemu.alterego.model.dto.pk.PkCreateRequest;
 import org.zhemu.alterego.model.dto.pk.PkQueryRequest;
 import org.zhemu.alterego.model.dto.pk.PkVoteRequest;
+import org.zhemu.alterego.model.enums.RateLimitAlgorithmEnum;
+import org.zhemu.alterego.model.enums.UserRoleEnum;
 import org.zhemu.alterego.model.vo.PkPostVO;
+import org.zhemu.alterego.model.vo.PkTallyVO;
 import org.zhemu.alterego.service.PkService;
+import org.zhemu.alterego.util.IpUtils;
 import org.zhemu.alterego.util.UserContext;
 
 /**
@@ -39,6 +47,8 @@ public class PkVoteController {
      * Agent 发起 PK
      */
     @PostMapping("/create")
+    @RateLimit(key = "ai_pk_create", limitByIp = false, limitByAgent = true,
+            algorithm = RateLimitAlgorithmEnum.TOKEN_BUCKET, maxCount = 5, timeWindow = 60)
     public BaseResponse<PkPostVO> createPk(
             @RequestBody @Validated PkCreateRequest request) {
         Long userId = UserContext.getCurrentUserId();
@@ -51,6 +61,8 @@ public class PkVoteController {
      * Agent 投票
      */
     @PostMapping("/vote")
+    @RateLimit(key = "ai_pk_vote", limitByIp = false, limitByAgent = true,
+            algorithm = RateLimitAlgorithmEnum.TOKEN_BUCKET, maxCount = 10, timeWindow = 60)
     public BaseResponse<PkPostVO> vote(
             @RequestBody @Validated PkVoteRequest request) {
         Long userId = UserContext.getCurrentUserId();
@@ -82,4 +94,29 @@ public class PkVoteController {
         PkPostVO result = pkService.getPkById(postId, userId);
         return ResultUtils.success(result);
     }
+
+    /**
+     * 订阅 PK 实时票数（SSE），连接建立后立即推送一次当前票数，之后票数变化时合并推送
+     * 按 IP 限制建连频率和同时保持的连接数（pk.tally.max-connections-per-client）
+     *
+     * @param postId PK 帖子ID
+     * @return SSE 事件流，事件名 tally
+     */
+    @GetMapping(value = "/tally/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @RateLimit(key = "pk_tally_subscribe", maxCount = 30, timeWindow = 60)
+    public SseEmitter subscribeTally(@RequestParam Long postId, HttpServletRequest request) {
+        return pkService.subscribeTally(postId, IpUtils.getClientIp(request));
+    }
+
+    /**
+     * 校对 PK 实时票数（管理员）：Redis 故障期间计数直接写库、且写库节点未能在恢复后删除票数 Hash 时执行
+     *
+     * @param postId PK 帖子ID
+     * @return 重建后的票数
+     */
+    @PostMapping("/tally/reconcile")
+    @RequireRole(UserRoleEnum.ADMIN)
+    public BaseResponse<PkTallyVO> reconcileTally(@RequestParam Long postId) {
+        return ResultUtils.success(pkService.reconcileTally(postId));
+    }
 }
@@ -10,13 +10,16 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.zhemu.alterego.annotation.RateLimit;
 import org.zhemu.alterego.annotation.RequireLogin;
 import org.zhemu.alterego.common.BaseResponse;
 import org.zhemu.alterego.common.ResultUtils;
 import org.zhemu.alterego.model.dto.post.AgentPostGenerateRequest;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.zhemu.alterego.model.dto.post.PostQueryRequest;
+import org.zhemu.alterego.model.enums.RateLimitAlgorithmEnum;
 
+import org.zhemu.alterego.model.vo.PostPageVO;
 import org.zhemu.alterego.model.vo.PostVO;
 
 import org.zhemu.alterego.service.PostService;
@@ -47,6 +50,8 @@ public class PostController {
      * @return 帖子信息
      */
     @PostMapping("/ai/create")
+    @RateLimit(key = "ai_post", limitByIp = false, limitByAgent = true,
+            algorithm = RateLimitAlgorithmEnum.TOKEN_BUCKET, maxCount = 5, timeWindow = 60)
     @Operation(summary = "让Agent 发帖", description = "消耗能量，基于Agent性格自动生成帖子内容")
     public BaseResponse<PostVO> aiGeneratePost(@Valid @RequestBody AgentPostGenerateRequest request) {
         Long userId = UserContext.getCurrentUserId();
@@ -68,6 +73,19 @@ public class PostController {
         return ResultUtils.success(postVOPage);
     }
 
+    /**
+     * 游标分页获取帖子列表（信息流无限滚动）
+     *
+     * @param request 查询请求（首屏不传游标）
+     * @return 游标分页帖子列表
+     */
+    @PostMapping("/list/cursor")
+    @Operation(summary = "游标分页获取帖子列表", description = "按创建时间倒序，不查总数，深翻页代价与首页相同")
+    public BaseResponse<PostPageVO> listPostByCursor(@Valid @RequestBody PostQueryRequest request) {
+        PostPageVO postPageVO = postService.listPostByCursor(request);
+        return ResultUtils.success(postPageVO);
+    }
+
     /**
      * 获取帖子详情
      *
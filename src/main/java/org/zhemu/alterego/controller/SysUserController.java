@@ -17,6 +17,7 @@ import org.zhemu.alterego.common.ResultUtils;
 import org.zhemu.alterego.model.dto.user.SysUserLoginRequest;
 import org.zhemu.alterego.model.dto.user.SysUserPasswordResetRequest;
 import org.zhemu.alterego.model.dto.user.SysUserRegisterRequest;
+import org.zhemu.alterego.model.dto.user.SysUserTokenRefreshRequest;
 import org.zhemu.alterego.model.dto.user.SysUserUpdatePasswordRequest;
 import org.zhemu.alterego.model.vo.SysUserVO;
 import org.zhemu.alterego.service.MailService;
@@ -84,6 +85,25 @@ public class SysUserController {
         return ResultUtils.success(userVO);
     }
 
+    /**
+     * 刷新访问令牌（签名令牌模式）
+     */
+    @PostMapping("/token/refresh")
+    @Operation(summary = "刷新令牌", description = "用刷新令牌换取新的访问令牌，刷新令牌同时轮换")
+    public BaseResponse<SysUserVO> refreshToken(
+            @RequestBody @Validated SysUserTokenRefreshRequest request,
+            HttpServletRequest httpRequest,
+            HttpServletResponse httpResponse) {
+        SysUserVO userVO = userService.refreshToken(request, httpRequest);
+
+        String token = (String) httpRequest.getAttribute("token");
+        if (token != null) {
+            httpResponse.setHeader("Authorization", "Bearer " + token);
+        }
+
+        return ResultUtils.success(userVO);
+    }
+
     /**
      * 用户登出
      */
@@ -0,0 +1,42 @@
+package org.zhemu.alterego.event;
+
+import lombok.Getter;
+
+/**
+ * 帖子变更事件
+ * 发帖、发起 PK、点赞/评论计数变化时发布，用于驱动帖子缓存失效
+ *
+ * @author lushihao
+ */
+@Getter
+public class PostChangedEvent {
+
+    /**
+     * 帖子ID
+     */
+    private final Long postId;
+
+    /**
+     * 是否影响信息流排序（新帖子会让所有已缓存的分页错位）
+     */
+    private final boolean feedChanged;
+
+    private PostChangedEvent(Long postId, boolean feedChanged) {
+        this.postId = postId;
+        this.feedChanged = feedChanged;
+    }
+
+    /**
+     * 新帖子发布（普通帖 / PK 帖）
+     */
+    public static PostChangedEvent created(Long postId) {
+        return new PostChangedEvent(postId, true);
+    }
+
+    /**
+     * 帖子内容或计数变化（点赞、点踩、评论数）
+     */
+    public static PostChangedEvent updated(Long postId) {
+        return new PostChangedEvent(postId, false);
+    }
+}
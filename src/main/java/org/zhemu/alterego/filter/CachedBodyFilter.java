@@ -0,0 +1,42 @@
+package org.zhemu.alterego.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 为 JSON 请求包装可重复读取的请求体，供限流等拦截器按需读取请求体字段
+ *
+ * @author lushihao
+ */
+@Component
+public class CachedBodyFilter extends OncePerRequestFilter {
+
+    /**
+     * 可缓存的请求体上限，默认与文件上传的请求大小上限一致
+     */
+    @Value("${request.cached-body.max-size:${spring.servlet.multipart.max-request-size:10MB}}")
+    private DataSize maxBodySize;
+
+    @Override
+    protected void doFilterInternal(@NotNull HttpServletRequest request,
+                                    @NotNull HttpServletResponse response,
+                                    @NotNull FilterChain filterChain) throws ServletException, IOException {
+        filterChain.doFilter(new CachedBodyHttpServletRequest(request, maxBodySize.toBytes()), response);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NotNull HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType == null || !contentType.toLowerCase().startsWith(MediaType.APPLICATION_JSON_VALUE);
+    }
+}
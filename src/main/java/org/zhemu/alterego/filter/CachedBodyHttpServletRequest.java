@@ -0,0 +1,133 @@
+package org.zhemu.alterego.filter;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 可重复读取请求体的请求包装
+ * 请求体在第一次被读取（拦截器取字段或 Controller 反序列化）时才整体读入内存，
+ * JSON 在第一次取字段时才解析，之后的读取都基于缓存，不访问请求体的拦截器没有额外开销。
+ * 缓存的请求体不超过 maxBodySize，超出时读取请求体抛出 IOException（由 Spring 转为 400）
+ *
+ * @author lushihao
+ */
+@Slf4j
+public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
+
+    private final long maxBodySize;
+
+    private byte[] body;
+
+    private JSONObject json;
+
+    private boolean jsonParsed;
+
+    public CachedBodyHttpServletRequest(HttpServletRequest request, long maxBodySize) {
+        super(request);
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * 获取请求体 JSON 顶层字段的值
+     *
+     * @param name 字段名，支持 Hutool 路径表达式（如 a.b）
+     * @return 字段值的字符串形式；请求体不是 JSON 对象或字段不存在时返回 null
+     */
+    public String getBodyField(String name) {
+        if (!jsonParsed) {
+            jsonParsed = true;
+            try {
+                byte[] bytes = getBody();
+                if (bytes.length > 0) {
+                    String text = new String(bytes, charset());
+                    if (JSONUtil.isTypeJSONObject(text)) {
+                        json = JSONUtil.parseObj(text);
+                    }
+                }
+            } catch (Exception e) {
+                log.debug("请求体解析失败: uri={}", getRequestURI(), e);
+            }
+        }
+        if (json == null) {
+            return null;
+        }
+        Object value = name.indexOf('.') < 0 ? json.get(name) : json.getByPath(name);
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        ByteArrayInputStream input = new ByteArrayInputStream(getBody());
+        return new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return input.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                // 请求体已全部在内存中，立即通知可读与读取完毕
+                try {
+                    if (!isFinished()) {
+                        readListener.onDataAvailable();
+                    }
+                    readListener.onAllDataRead();
+                } catch (IOException e) {
+                    readListener.onError(e);
+                }
+            }
+
+            @Override
+            public int read() {
+                return input.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return input.read(b, off, len);
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset()));
+    }
+
+    private byte[] getBody() throws IOException {
+        if (body == null) {
+            if (getContentLengthLong() > maxBodySize) {
+                throw new IOException("请求体超过 " + maxBodySize + " 字节");
+            }
+            // Content-Length 缺失（分块传输）时最多多读 1 字节用于判断是否超限
+            byte[] bytes = super.getInputStream().readNBytes((int) Math.min(maxBodySize + 1, Integer.MAX_VALUE - 8));
+            if (bytes.length > maxBodySize) {
+                throw new IOException("请求体超过 " + maxBodySize + " 字节");
+            }
+            body = bytes;
+        }
+        return body;
+    }
+
+    private Charset charset() {
+        String encoding = getCharacterEncoding();
+        return encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+    }
+}
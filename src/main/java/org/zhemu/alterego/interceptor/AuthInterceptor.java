@@ -1,26 +1,23 @@
 package org.zhemu.alterego.interceptor;
 
-import cn.hutool.json.JSONUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.zhemu.alterego.annotation.RequireLogin;
 import org.zhemu.alterego.annotation.RequireRole;
-import org.zhemu.alterego.constant.RedisConstants;
 import org.zhemu.alterego.exception.BusinessException;
 import org.zhemu.alterego.exception.ErrorCode;
+import org.zhemu.alterego.manager.AuthCacheManager;
+import org.zhemu.alterego.manager.SignedTokenManager;
 import org.zhemu.alterego.model.entity.SysUser;
 import org.zhemu.alterego.model.enums.UserRoleEnum;
-import org.zhemu.alterego.service.SysUserService;
 
 import java.util.Arrays;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 认证和权限拦截器
@@ -31,8 +28,8 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class AuthInterceptor implements HandlerInterceptor {
 
-    private final StringRedisTemplate stringRedisTemplate;
-    private final SysUserService sysUserService;
+    private final AuthCacheManager authCacheManager;
+    private final SignedTokenManager signedTokenManager;
     
     private static final String TOKEN_HEADER = "Authorization";
     private static final String TOKEN_PREFIX = "Bearer ";
@@ -95,73 +92,26 @@ public class AuthInterceptor implements HandlerInterceptor {
     }
 
     /**
-     * 验证登录并获取用户信息（优化：优先从缓存读取，避免查库）
+     * 验证登录并获取用户信息（签名令牌见 SignedTokenManager，UUID 令牌见 AuthCacheManager）
      */
     private SysUser validateLoginAndGetUser(HttpServletRequest request) {
         // 1. 从Header获取Token
         String token = request.getHeader(TOKEN_HEADER);
-        log.info("AuthInterceptor收到Header: Authorization={}", token); // DEBUG LOG
-
         if (token == null || !token.startsWith(TOKEN_PREFIX)) {
             log.warn("未提供有效Token, URI: {}", request.getRequestURI());
             throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
         }
-        
         token = token.substring(TOKEN_PREFIX.length());
-        log.info("解析出的Token: {}", token); // DEBUG LOG
 
-        // 2. 验证Token是否有效
-        String redisKey = RedisConstants.USER_LOGIN_TOKEN + token;
-        String userIdStr = stringRedisTemplate.opsForValue().get(redisKey);
-        log.info("Redis查询结果: key={}, value={}", redisKey, userIdStr); // DEBUG LOG
-        
-        if (userIdStr == null) {
-            log.warn("Token已过期或无效, token: {}", token);
+        // 2. 签名令牌：本地验签并查本地吊销列表，不访问 Redis（用户对象只含 id 和角色）
+        // 其余为旧的 UUID 令牌：Token 与用户缓存的续期在脚本内按需完成
+        SysUser user = signedTokenManager.isSignedToken(token)
+                ? signedTokenManager.verify(token)
+                : authCacheManager.getUserByToken(token);
+        if (user == null) {
+            log.warn("Token已过期或无效, URI: {}", request.getRequestURI());
             throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
         }
-
-        // 3. 刷新Token过期时间（30天）
-        stringRedisTemplate.expire(redisKey, RedisConstants.USER_LOGIN_TOKEN_TTL, TimeUnit.DAYS);
-
-        // 4. 优先从缓存获取用户信息（性能优化：避免每次请求查库）
-        Long userId;
-        try{
-            userId = Long.parseLong(userIdStr);
-        }catch (NumberFormatException e){
-            log.warn("Redis中的用户ID格式无效, userIdStr: {}, token: {}", userIdStr, token);
-            throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
-        }
-
-        String userCacheKey = RedisConstants.USER_INFO_CACHE + userId;
-        String userJson = stringRedisTemplate.opsForValue().get(userCacheKey);
-        
-        SysUser user;
-        if (userJson != null) {
-            // 缓存命中，直接反序列化
-            user = JSONUtil.toBean(userJson, SysUser.class);
-            // 刷新用户缓存过期时间
-            stringRedisTemplate.expire(userCacheKey, RedisConstants.USER_INFO_CACHE_TTL, TimeUnit.DAYS);
-            log.debug("从缓存获取用户信息, userId: {}", userId);
-        } else {
-            // 缓存未命中，查询数据库并回写缓存
-            user = sysUserService.getById(userId);
-            if (user == null) {
-                log.error("用户不存在, userId: {}", userId);
-                throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "用户不存在");
-            }
-            
-            // 回写缓存（密码字段置空）
-            user.setUserPassword(null);
-            String userJsonForCache = JSONUtil.toJsonStr(user);
-            stringRedisTemplate.opsForValue().set(
-                    userCacheKey,
-                    userJsonForCache,
-                    RedisConstants.USER_INFO_CACHE_TTL,
-                    TimeUnit.DAYS
-            );
-            log.debug("用户缓存未命中，已回写缓存, userId: {}", userId);
-        }
-
         return user;
     }
 
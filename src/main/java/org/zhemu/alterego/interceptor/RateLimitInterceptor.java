@@ -1,27 +1,30 @@
 package org.zhemu.alterego.interceptor;
 
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
-import org.springframework.data.redis.connection.ReturnType;
-import org.springframework.data.redis.core.RedisCallback;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.WebUtils;
 import org.zhemu.alterego.annotation.RateLimit;
 import org.zhemu.alterego.constant.RedisConstants;
 import org.zhemu.alterego.exception.BusinessException;
 import org.zhemu.alterego.exception.ErrorCode;
+import org.zhemu.alterego.filter.CachedBodyHttpServletRequest;
+import org.zhemu.alterego.manager.LocalRateLimiter;
+import org.zhemu.alterego.manager.UserAgentCacheManager;
 import org.zhemu.alterego.util.IpUtils;
 
-import java.nio.charset.StandardCharsets;
+import java.math.BigDecimal;
 
 /**
  * 接口限流拦截器
- * 基于Redis实现分布式限流
+ * 基于Redis实现分布式限流，算法由 {@link RateLimit#algorithm()} 选择
  *
  * @author lushihao
  */
@@ -30,27 +33,13 @@ import java.nio.charset.StandardCharsets;
 @RequiredArgsConstructor
 public class RateLimitInterceptor implements HandlerInterceptor {
 
-    private final StringRedisTemplate stringRedisTemplate;
-
-    // Lua 脚本：原子性地检查和增加计数
-    // KEYS[1]: Redis key
-    // ARGV[1]: 过期时间（秒）
-    // ARGV[2]: 最大请求次数
-    // 返回值：当前计数（-1表示超限）
-    private static final String RATE_LIMIT_LUA_SCRIPT =
-            "local current = redis.call('GET', KEYS[1]) " +
-                    "if current == false then " +
-                    "  redis.call('SET', KEYS[1], 1, 'EX', ARGV[1]) " +
-                    "  return 1 " +
-                    "else " +
-                    "  local count = tonumber(current) " +
-                    "  if count >= tonumber(ARGV[2]) then " +
-                    "    return -1 " +
-                    "  else " +
-                    "    redis.call('INCR', KEYS[1]) " +
-                    "    return count + 1 " +
-                    "  end " +
-                    "end";
+    /**
+     * 单个维度值的最大长度，超出时取 MD5
+     */
+    private static final int MAX_DIMENSION_LENGTH = 64;
+
+    private final LocalRateLimiter localRateLimiter;
+    private final UserAgentCacheManager userAgentCacheManager;
 
     @Override
     public boolean preHandle(@NotNull HttpServletRequest request,
@@ -77,97 +66,108 @@ public class RateLimitInterceptor implements HandlerInterceptor {
 
     /**
      * 执行限流检查
+     * 开启的维度按 IP、Email、用户、Agent、请求体字段的顺序组合成一个 key 计数（如 IP + Email 以组合计数，避免不同邮箱互相影响）；
+     * 取不到值的维度跳过，全部取不到时回退到 IP
      */
     private void checkRateLimit(HttpServletRequest request, RateLimit rateLimit) {
-        boolean limitByIp = rateLimit.limitByIp();
-        boolean limitByEmail = rateLimit.limitByEmail();
-
-        String clientIp = null;
-        if (limitByIp) {
-            clientIp = IpUtils.getClientIp(request);
+        StringBuilder dimensions = new StringBuilder();
+        if (rateLimit.limitByIp()) {
+            appendDimension(dimensions, "ip", IpUtils.getClientIp(request));
         }
-
-        String email = null;
-        if (limitByEmail) {
-            email = extractEmail(request);
-            if (email != null && email.isEmpty()) {
-                email = null;
-            }
+        if (rateLimit.limitByEmail()) {
+            appendDimension(dimensions, "email", extractField(request, "email"));
         }
+        if (rateLimit.limitByUser()) {
+            Object userId = request.getAttribute("userId");
+            appendDimension(dimensions, "user", userId == null ? null : userId.toString());
+        }
+        if (rateLimit.limitByAgent()) {
+            appendDimension(dimensions, "agent", resolveAgentId(request));
+        }
+        for (String field : rateLimit.bodyFields()) {
+            appendDimension(dimensions, field, extractBodyField(request, field));
+        }
+        if (dimensions.isEmpty()) {
+            appendDimension(dimensions, "ip", IpUtils.getClientIp(request));
+        }
+
+        String key = RedisConstants.RATE_LIMIT_PREFIX + rateLimit.key() + dimensions;
+        checkLimit(key, rateLimit, dimensions.substring(1));
+    }
 
-        // 同时开启 IP + Email 时：以 (ip, email) 组合作为维度计数，避免不同邮箱互相影响
-        if (limitByIp && limitByEmail && email != null) {
-            String key = RedisConstants.RATE_LIMIT_PREFIX + rateLimit.key()
-                    + ":ip:" + clientIp
-                    + ":email:" + email;
-            checkLimit(key, rateLimit, "IP: " + clientIp + ", Email: " + email);
+    private static void appendDimension(StringBuilder dimensions, String name, String value) {
+        if (StrUtil.isBlank(value)) {
             return;
         }
+        // 请求体字段可能很长，超长时用摘要，避免 key 过大
+        String normalized = value.length() > MAX_DIMENSION_LENGTH ? SecureUtil.md5(value) : value;
+        dimensions.append(':').append(name).append(':').append(normalized);
+    }
 
-        // 仅 IP，或 Email 缺失时回退到 IP
-        if (limitByIp) {
-            String key = RedisConstants.RATE_LIMIT_PREFIX + rateLimit.key() + ":ip:" + clientIp;
-            checkLimit(key, rateLimit, "IP: " + clientIp);
+    /**
+     * 限流用的 AgentID：已登录时取服务端解析的当前用户 Agent（用户与 Agent 一一对应，接口只允许操作自己的 Agent）；
+     * 否则取查询参数或请求体中的 agentId 并规范化为整数，"0123"、123.0 等写法与 123 计入同一个 key，
+     * 无法解析为整数时拒绝请求
+     */
+    private String resolveAgentId(HttpServletRequest request) {
+        if (request.getAttribute("userId") instanceof Long userId) {
+            Long agentId = userAgentCacheManager.getAgentId(userId);
+            if (agentId != null) {
+                return agentId.toString();
+            }
         }
-
-        // 仅 Email（且能取到 email）
-        if (!limitByIp && limitByEmail && email != null) {
-            String key = RedisConstants.RATE_LIMIT_PREFIX + rateLimit.key() + ":email:" + email;
-            checkLimit(key, rateLimit, "Email: " + email);
+        String value = extractField(request, "agentId");
+        if (StrUtil.isBlank(value)) {
+            return null;
+        }
+        try {
+            return String.valueOf(new BigDecimal(value.trim()).longValueExact());
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "agentId 不合法");
         }
     }
 
     /**
-     * 从请求中提取邮箱地址
-     * 支持从查询参数和请求体中提取
+     * 从查询参数或 JSON 请求体中提取字段，查询参数优先
      */
-    private String extractEmail(HttpServletRequest request) {
-        // 先尝试从查询参数获取
-        String email = request.getParameter("email");
-        if (email != null && !email.isEmpty()) {
-            return email;
+    private String extractField(HttpServletRequest request, String name) {
+        String value = request.getParameter(name);
+        if (StrUtil.isNotBlank(value)) {
+            return value;
         }
+        return extractBodyField(request, name);
+    }
 
-        // TODO: 如果需要支持从JSON请求体中提取email，可以在这里实现
-        // 注意：从请求体读取需要缓存，因为请求体流只能读取一次
-        // 建议在需要时使用 ContentCachingRequestWrapper
-
-        return null;
+    /**
+     * 从 JSON 请求体中提取字段（请求体由 CachedBodyFilter 缓存，Controller 仍可正常读取）
+     */
+    private String extractBodyField(HttpServletRequest request, String name) {
+        CachedBodyHttpServletRequest cachedRequest =
+                WebUtils.getNativeRequest(request, CachedBodyHttpServletRequest.class);
+        return cachedRequest == null ? null : cachedRequest.getBodyField(name);
     }
 
     /**
      * 检查指定key的访问频率是否超限
-     * 使用 Lua 脚本保证原子性，避免并发问题
+     * 经本地预算判定：远离上限时本地放行、确定超限时本地拒绝，其余按注解选择的算法执行对应 Lua 脚本（EVALSHA），保证原子性
      */
     private void checkLimit(String key, RateLimit rateLimit, String identifier) {
-        // 执行 Lua 脚本
-        Long count = stringRedisTemplate.execute(
-                (RedisCallback<Long>) connection -> {
-                    return connection.scriptingCommands().eval(
-                            RATE_LIMIT_LUA_SCRIPT.getBytes(StandardCharsets.UTF_8),
-                            ReturnType.INTEGER,
-                            1,
-                            key.getBytes(StandardCharsets.UTF_8),
-                            String.valueOf(rateLimit.timeWindow()).getBytes(StandardCharsets.UTF_8),
-                            String.valueOf(rateLimit.maxCount()).getBytes(StandardCharsets.UTF_8)
-                    );
-                }
-        );
-
-        if (count == null) {
+        Boolean allowed = localRateLimiter.tryAcquire(key, rateLimit.algorithm(),
+                rateLimit.maxCount(), rateLimit.timeWindow());
+
+        if (allowed == null) {
             // Redis 执行失败，记录错误但不阻塞请求（fail-open 策略）
             log.error("Redis执行失败，限流检查跳过: key={}, identifier={}", key, identifier);
             return;
         }
 
-        if (count == -1) {
-            // 达到限流阈值
-            log.warn("请求频率超限: key={}, identifier={}, maxCount={}",
-                    key, identifier, rateLimit.maxCount());
+        if (!allowed) {
+            log.warn("请求频率超限: key={}, identifier={}, algorithm={}, maxCount={}",
+                    key, identifier, rateLimit.algorithm().getValue(), rateLimit.maxCount());
             throw new BusinessException(ErrorCode.TOO_MANY_REQUEST,
                     "请求过于频繁，请稍后再试");
         }
 
-        log.debug("限流记录更新: key={}, identifier={}, count={}", key, identifier, count);
+        log.debug("限流检查通过: key={}, identifier={}", key, identifier);
     }
 }
@@ -0,0 +1,199 @@
+package org.zhemu.alterego.manager;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.agentscope.core.ReActAgent;
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.session.Session;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.zhemu.alterego.mapper.AgentMemoryMessageMapper;
+import org.zhemu.alterego.model.entity.AgentMemoryMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agent 记忆分层存储
+ * 原先每次生成都通过 MysqlSession 整份加载、整份覆盖 agentscope_sessions，读写都是 O(历史长度)。
+ * 现在按消息粒度存储在 agent_memory_message：
+ * <ul>
+ *     <li>读：本地 LRU 缓存热会话，命中时只查一次会话最大序号（唯一索引）校验是否被其他节点写过</li>
+ *     <li>写：只追加本次新增的消息，原始历史不改写</li>
+ *     <li>压缩：定时删除超出上限的旧消息</li>
+ * </ul>
+ * 新表没有记录的会话回退读取 agentscope_sessions 中的旧快照，下次保存时整体迁移到新表
+ *
+ * @author lushihao
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AgentMemoryStore {
+
+    private static final ObjectMapper MSG_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final AgentMemoryMessageMapper agentMemoryMessageMapper;
+
+    /**
+     * 旧版整份快照存储，只读
+     */
+    private final Session mysqlSession;
+
+    @Value("${agent.memory.cache-max-size:2000}")
+    private long cacheMaxSize;
+
+    @Value("${agent.memory.cache-expire-minutes:30}")
+    private long cacheExpireMinutes;
+
+    @Value("${agent.memory.max-persisted-messages:200}")
+    private int maxPersistedMessages;
+
+    private Cache<String, Snapshot> localCache;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterAccess(Duration.ofMinutes(cacheExpireMinutes))
+                .build();
+    }
+
+    /**
+     * 加载会话历史
+     *
+     * @param sessionId 会话ID
+     * @return 会话快照，新表无记录时返回 {@link Snapshot#EMPTY}
+     */
+    public Snapshot load(String sessionId) {
+        Long maxSeq = agentMemoryMessageMapper.selectMaxSeq(sessionId);
+        if (maxSeq == null) {
+            localCache.invalidate(sessionId);
+            return Snapshot.EMPTY;
+        }
+        Snapshot cached = localCache.getIfPresent(sessionId);
+        if (cached != null && cached.lastSeq() == maxSeq) {
+            return cached;
+        }
+        List<AgentMemoryMessage> rows = agentMemoryMessageMapper.selectList(
+                new LambdaQueryWrapper<AgentMemoryMessage>()
+                        .eq(AgentMemoryMessage::getSessionId, sessionId)
+                        .orderByAsc(AgentMemoryMessage::getSeq));
+        List<Msg> messages = new ArrayList<>(rows.size());
+        long lastSeq = 0;
+        for (AgentMemoryMessage row : rows) {
+            messages.add(readMsg(row.getMsgData()));
+            lastSeq = Math.max(lastSeq, row.getSeq());
+        }
+        Snapshot snapshot = new Snapshot(List.copyOf(messages), lastSeq);
+        localCache.put(sessionId, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * 从旧版 agentscope_sessions 恢复 Agent 状态（仅新表无记录时调用）
+     */
+    public void loadLegacy(ReActAgent aiAgent, String sessionId) {
+        aiAgent.loadIfExists(mysqlSession, sessionId);
+    }
+
+    /**
+     * 追加本次生成新增的消息，原始历史只追加不改写（上下文压缩由 {@link AgentSummaryManager} 的摘要缓存负责）
+     * 同一会话被并发写入时（序号冲突）放弃本次写入，以先提交者为准
+     *
+     * @param sessionId 会话ID
+     * @param loaded    生成前加载的快照
+     * @param added     新增消息
+     */
+    public void append(String sessionId, Snapshot loaded, List<Msg> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        try {
+            agentMemoryMessageMapper.batchInsert(toRows(sessionId, added, loaded.lastSeq() + 1));
+            List<Msg> merged = new ArrayList<>(loaded.messages().size() + added.size());
+            merged.addAll(loaded.messages());
+            merged.addAll(added);
+            localCache.put(sessionId, new Snapshot(List.copyOf(merged), loaded.lastSeq() + added.size()));
+        } catch (DuplicateKeyException e) {
+            localCache.invalidate(sessionId);
+            log.warn("会话记忆并发写入，放弃本次保存: sessionId={}", sessionId);
+        }
+    }
+
+    /**
+     * 每天凌晨压缩：只保留每个会话最近的 maxPersistedMessages 条消息
+     * 本地缓存中的快照序号不变，仍然有效；冷加载时读到的是压缩后的窗口
+     */
+    @Scheduled(cron = "${agent.memory.compact-cron:0 0 4 * * ?}")
+    public void compact() {
+        List<Map<String, Object>> sessions = agentMemoryMessageMapper.selectOversizedSessions(maxPersistedMessages);
+        int deleted = 0;
+        for (Map<String, Object> session : sessions) {
+            String sessionId = (String) session.get("session_id");
+            long maxSeq = ((Number) session.get("max_seq")).longValue();
+            deleted += agentMemoryMessageMapper.deleteUpToSeq(sessionId, maxSeq - maxPersistedMessages);
+        }
+        log.info("Agent 记忆压缩完成，会话数: {}, 删除消息数: {}", sessions.size(), deleted);
+    }
+
+    private static List<AgentMemoryMessage> toRows(String sessionId, List<Msg> messages, long startSeq) {
+        List<AgentMemoryMessage> rows = new ArrayList<>(messages.size());
+        long seq = startSeq;
+        for (Msg msg : messages) {
+            rows.add(AgentMemoryMessage.builder()
+                    .sessionId(sessionId)
+                    .seq(seq++)
+                    .msgData(writeMsg(msg))
+                    .build());
+        }
+        return rows;
+    }
+
+    private static String writeMsg(Msg msg) {
+        try {
+            return MSG_MAPPER.writeValueAsString(msg);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化记忆消息失败", e);
+        }
+    }
+
+    private static Msg readMsg(String json) {
+        try {
+            return MSG_MAPPER.readValue(json, Msg.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("反序列化记忆消息失败", e);
+        }
+    }
+
+    /**
+     * 会话快照（不可变），lastSeq 为 0 表示新表中没有该会话
+     */
+    public record Snapshot(List<Msg> messages, long lastSeq) {
+
+        public static final Snapshot EMPTY = new Snapshot(List.of(), 0);
+
+        public boolean isEmpty() {
+            return lastSeq == 0;
+        }
+
+        /**
+         * 第 index 条消息的序号（同一会话内序号连续）
+         */
+        public long seqOf(int index) {
+            return lastSeq - messages.size() + 1 + index;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.zhemu.alterego.manager;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import io.agentscope.core.ReActAgent;
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.message.MsgRole;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.model.Model;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.zhemu.alterego.constant.RedisConstants;
+import org.zhemu.alterego.model.dto.agent.AiMemorySummaryResult;
+import reactor.core.publisher.Mono;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agent 记忆摘要缓存
+ * 原先每次生成都把完整历史塞进 AutoContextMemory，由其按 token 比例反复压缩。
+ * 现在按会话缓存"滚动摘要"，以已覆盖到的消息序号作为历史版本：
+ * 未被摘要覆盖的尾部不超过阈值时直接复用摘要（不调用模型），超过阈值才把较旧的部分增量并入摘要。
+ * 送入模型的上下文 = 摘要 + 最近若干条消息，长度有上界。
+ *
+ * @author lushihao
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AgentSummaryManager {
+
+    private static final String SUMMARY_PREFIX = "【你之前的记忆摘要】\n";
+
+    private static final String MODEL_GUARD_TYPE = "memory_summary";
+
+    private final Model dashScopeModel;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ModelResilienceManager modelResilienceManager;
+
+    /**
+     * 未被摘要覆盖的消息超过该条数时触发摘要
+     */
+    @Value("${agent.memory.summary-threshold:30}")
+    private int summaryThreshold;
+
+    /**
+     * 摘要时保留的最近消息条数（原样送入上下文）
+     */
+    @Value("${agent.memory.summary-keep:10}")
+    private int summaryKeep;
+
+    /**
+     * 构建送入记忆的上下文消息（调用方应在 IO 线程上订阅，内部会读写 Redis）
+     *
+     * @param sessionId 会话ID
+     * @param snapshot  会话完整历史
+     * @return 摘要消息（如有）+ 未被摘要覆盖的消息；摘要失败时退化为完整历史
+     */
+    public Mono<List<Msg>> buildContext(String sessionId, AgentMemoryStore.Snapshot snapshot) {
+        List<Msg> messages = snapshot.messages();
+        if (messages.isEmpty()) {
+            return Mono.just(messages);
+        }
+        Summary cached = getSummary(sessionId);
+        Summary summary = cached != null && cached.getCoveredSeq() <= snapshot.lastSeq() ? cached : null;
+        int covered = summary == null ? 0
+                : (int) Math.min(messages.size(), Math.max(0, summary.getCoveredSeq() - snapshot.seqOf(0) + 1));
+        List<Msg> tail = messages.subList(covered, messages.size());
+        if (tail.size() <= summaryThreshold || tail.size() <= summaryKeep) {
+            return Mono.just(withSummary(summary, tail));
+        }
+
+        int cut = tail.size() - summaryKeep;
+        long coveredSeq = snapshot.seqOf(covered + cut - 1);
+        return summarize(summary == null ? null : summary.getText(), tail.subList(0, cut))
+                .map(text -> {
+                    Summary updated = new Summary(coveredSeq, text);
+                    putSummary(sessionId, updated);
+                    log.debug("会话摘要已更新: sessionId={}, coveredSeq={}", sessionId, coveredSeq);
+                    return withSummary(updated, tail.subList(cut, tail.size()));
+                })
+                .onErrorResume(e -> {
+                    log.warn("会话摘要失败，使用未压缩历史: sessionId={}", sessionId, e);
+                    return Mono.just(withSummary(summary, tail));
+                });
+    }
+
+    /**
+     * 把旧摘要和新一段历史合并为新摘要
+     */
+    private Mono<String> summarize(String previous, List<Msg> messages) {
+        StringBuilder sb = new StringBuilder("请把下面的内容压缩成一段 300 字以内的第一人称记忆摘要，")
+                .append("保留你发表过的主要观点、立场和互动对象，忽略客套话。\n");
+        if (StrUtil.isNotBlank(previous)) {
+            sb.append("\n已有摘要：\n").append(previous).append('\n');
+        }
+        sb.append("\n新的对话记录：\n");
+        for (Msg msg : messages) {
+            String text = msg.getTextContent();
+            if (StrUtil.isNotBlank(text)) {
+                sb.append(msg.getRole()).append(": ").append(text).append('\n');
+            }
+        }
+        sb.append("""
+
+                输出 JSON 格式：
+                {
+                  "summary": "摘要内容"
+                }
+                """);
+
+        ReActAgent summarizer = ReActAgent.builder()
+                .name("MemorySummarizer")
+                .sysPrompt("你负责整理角色的长期记忆，只输出摘要，不添加新内容。")
+                .model(modelResilienceManager.guard(MODEL_GUARD_TYPE, dashScopeModel))
+                .maxIters(1)
+                .build();
+        Msg userMsg = Msg.builder()
+                .role(MsgRole.USER)
+                .content(TextBlock.builder().text(sb.toString()).build())
+                .build();
+        return summarizer.call(userMsg, AiMemorySummaryResult.class)
+                .mapNotNull(response -> response.getStructuredData(AiMemorySummaryResult.class))
+                .mapNotNull(result -> StrUtil.isBlank(result.summary) ? null : result.summary)
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("摘要结果为空")));
+    }
+
+    private static List<Msg> withSummary(Summary summary, List<Msg> tail) {
+        if (summary == null) {
+            return tail;
+        }
+        List<Msg> context = new ArrayList<>(tail.size() + 1);
+        context.add(Msg.builder()
+                .role(MsgRole.USER)
+                .content(TextBlock.builder().text(SUMMARY_PREFIX + summary.getText()).build())
+                .build());
+        context.addAll(tail);
+        return context;
+    }
+
+    private Summary getSummary(String sessionId) {
+        try {
+            String json = stringRedisTemplate.opsForValue().get(RedisConstants.AGENT_MEMORY_SUMMARY + sessionId);
+            return json == null ? null : JSONUtil.toBean(json, Summary.class);
+        } catch (Exception e) {
+            log.warn("读取会话摘要失败: sessionId={}", sessionId, e);
+            return null;
+        }
+    }
+
+    private void putSummary(String sessionId, Summary summary) {
+        try {
+            stringRedisTemplate.opsForValue().set(RedisConstants.AGENT_MEMORY_SUMMARY + sessionId,
+                    JSONUtil.toJsonStr(summary), RedisConstants.AGENT_MEMORY_SUMMARY_TTL, TimeUnit.DAYS);
+        } catch (Exception e) {
+            log.warn("写入会话摘要失败: sessionId={}", sessionId, e);
+        }
+    }
+
+    /**
+     * 会话摘要（Redis 中以 JSON 存储）
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Summary implements Serializable {
+
+        /**
+         * 摘要覆盖到的最后一条消息序号（历史版本）
+         */
+        private long coveredSeq;
+
+        /**
+         * 摘要文本
+         */
+        private String text;
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,114 @@
+package org.zhemu.alterego.manager;
+
+import cn.hutool.json.JSONUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.zhemu.alterego.constant.RedisConstants;
+import org.zhemu.alterego.model.enums.AiJobStatusEnum;
+import org.zhemu.alterego.model.vo.AiJobVO;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * AI 任务状态 SSE 推送管理
+ * 执行任务的节点与持有 SSE 连接的节点可能不同，状态变更统一经 Redis 频道广播，
+ * 每个节点只向本地持有的连接推送
+ *
+ * @author lushihao
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AiJobSseManager implements MessageListener {
+
+    private static final String EVENT_NAME = "job";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${ai.job.sse-timeout-ms:300000}")
+    private long sseTimeoutMs;
+
+    /**
+     * jobId -> 本节点上订阅该任务的连接
+     */
+    private final Map<String, Set<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this,
+                new ChannelTopic(RedisConstants.AI_JOB_STATUS_CHANNEL));
+    }
+
+    /**
+     * 注册订阅连接（调用方随后应推送一次当前状态，避免注册前的变更丢失）
+     */
+    public SseEmitter register(String jobId) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        emitters.computeIfAbsent(jobId, k -> new CopyOnWriteArraySet<>()).add(emitter);
+        Runnable remove = () -> removeEmitter(jobId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    /**
+     * 广播任务状态变更到所有节点
+     */
+    public void publish(AiJobVO jobVO) {
+        try {
+            stringRedisTemplate.convertAndSend(RedisConstants.AI_JOB_STATUS_CHANNEL, JSONUtil.toJsonStr(jobVO));
+        } catch (Exception e) {
+            // 推送失败不影响任务本身，客户端仍可轮询
+            log.warn("广播 AI 任务状态失败, jobId={}", jobVO.getJobId(), e);
+        }
+    }
+
+    /**
+     * 向单个连接推送状态，终态后关闭连接
+     */
+    public void send(SseEmitter emitter, AiJobVO jobVO) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(jobVO));
+            AiJobStatusEnum status = AiJobStatusEnum.getEnumByValue(jobVO.getStatus());
+            if (status != null && status.isFinished()) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开
+            emitter.completeWithError(e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        AiJobVO jobVO = AiJobVO.fromJson(new String(message.getBody(), StandardCharsets.UTF_8));
+        Set<SseEmitter> jobEmitters = emitters.get(jobVO.getJobId());
+        if (jobEmitters == null) {
+            return;
+        }
+        jobEmitters.forEach(emitter -> send(emitter, jobVO));
+    }
+
+    private void removeEmitter(String jobId, SseEmitter emitter) {
+        emitters.computeIfPresent(jobId, (k, set) -> {
+            set.remove(emitter);
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
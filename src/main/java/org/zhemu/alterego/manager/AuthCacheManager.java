@@ -0,0 +1,200 @@
+package org.zhemu.alterego.manager;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.zhemu.alterego.constant.RedisConstants;
+import org.zhemu.alterego.mapper.SysUserMapper;
+import org.zhemu.alterego.model.entity.SysUser;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录态缓存（token -> 用户）
+ * 原先每个需要登录的请求都要 GET token、EXPIRE token、GET 用户 JSON、EXPIRE 用户 4 次 Redis 调用并反序列化一次 JSON：
+ * <ul>
+ *     <li>L1：本地 Caffeine 缓存 token -> 用户，TTL 很短，命中时不访问 Redis</li>
+ *     <li>L2：未命中时一次 Lua 调用完成读 token、读用户 JSON 和续期；
+ *     续期是惰性的，剩余 TTL 低于 refreshRatio × TTL 时才 EXPIRE，大部分请求只有读操作</li>
+ *     <li>登出、改密时通过 Redis pub/sub 通知所有节点清除本地缓存</li>
+ * </ul>
+ * 脚本中用户 key 由 token 的值拼出，未在 KEYS 中声明，只适用于单机/主从 Redis
+ *
+ * @author lushihao
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AuthCacheManager implements MessageListener {
+
+    private static final String MSG_TOKEN = "token:";
+
+    private static final String MSG_USER = "user:";
+
+    /**
+     * 读取 token 对应的用户并惰性续期
+     * KEYS: token key
+     * ARGV: 用户缓存 key 前缀、token TTL（秒）、用户缓存 TTL（秒）、token 续期阈值（秒）、用户缓存续期阈值（秒）
+     * 返回值：token 无效为空；否则为 {userId, 用户 JSON（未缓存时为空串）}
+     */
+    private static final DefaultRedisScript<List> AUTH_SCRIPT = new DefaultRedisScript<>(
+            "local userId = redis.call('GET', KEYS[1]) " +
+                    "if not userId then return nil end " +
+                    "local ttl = redis.call('TTL', KEYS[1]) " +
+                    "if ttl >= 0 and ttl < tonumber(ARGV[4]) then redis.call('EXPIRE', KEYS[1], ARGV[2]) end " +
+                    "local userKey = ARGV[1] .. userId " +
+                    "local user = redis.call('GET', userKey) " +
+                    "if user then " +
+                    "  local userTtl = redis.call('TTL', userKey) " +
+                    "  if userTtl >= 0 and userTtl < tonumber(ARGV[5]) then redis.call('EXPIRE', userKey, ARGV[3]) end " +
+                    "else " +
+                    "  user = '' " +
+                    "end " +
+                    "return {userId, user}",
+            List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SysUserMapper sysUserMapper;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${auth.cache.max-size:10000}")
+    private long localMaxSize;
+
+    /**
+     * 本地缓存时间：登出/改密广播丢失时，其他节点最多在这段时间内仍认可旧 token
+     */
+    @Value("${auth.cache.ttl-seconds:30}")
+    private long localTtlSeconds;
+
+    /**
+     * 剩余 TTL 低于该比例时才续期（0.9 即 30 天 TTL 剩余不足 27 天时续期，每个 token 约 3 天写一次）
+     */
+    @Value("${auth.cache.refresh-ratio:0.9}")
+    private double refreshRatio;
+
+    private Cache<String, SysUser> localCache;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+        redisMessageListenerContainer.addMessageListener(this,
+                new ChannelTopic(RedisConstants.AUTH_CACHE_INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 根据 token 获取登录用户
+     *
+     * @param token 登录 token
+     * @return 用户（密码已置空，共享实例，调用方只读）；token 无效或用户不存在返回 null
+     */
+    public SysUser getUserByToken(String token) {
+        SysUser user = localCache.getIfPresent(token);
+        if (user != null) {
+            return user;
+        }
+        user = loadFromRedis(token);
+        if (user != null) {
+            localCache.put(token, user);
+        }
+        return user;
+    }
+
+    private SysUser loadFromRedis(String token) {
+        long tokenTtl = TimeUnit.DAYS.toSeconds(RedisConstants.USER_LOGIN_TOKEN_TTL);
+        long userTtl = TimeUnit.DAYS.toSeconds(RedisConstants.USER_INFO_CACHE_TTL);
+        List<?> reply = stringRedisTemplate.execute(AUTH_SCRIPT,
+                List.of(RedisConstants.USER_LOGIN_TOKEN + token),
+                RedisConstants.USER_INFO_CACHE,
+                String.valueOf(tokenTtl),
+                String.valueOf(userTtl),
+                String.valueOf((long) (tokenTtl * refreshRatio)),
+                String.valueOf((long) (userTtl * refreshRatio)));
+        if (reply == null || reply.size() < 2) {
+            log.debug("Token已过期或无效");
+            return null;
+        }
+        long userId;
+        try {
+            userId = Long.parseLong(reply.get(0).toString());
+        } catch (NumberFormatException e) {
+            log.warn("Redis中的用户ID格式无效, userIdStr: {}", reply.get(0));
+            return null;
+        }
+        String userJson = reply.get(1).toString();
+        if (StrUtil.isNotEmpty(userJson)) {
+            return JSONUtil.toBean(userJson, SysUser.class);
+        }
+
+        // 用户缓存未命中，查询数据库并回写缓存
+        SysUser user = sysUserMapper.selectById(userId);
+        if (user == null) {
+            log.error("用户不存在, userId: {}", userId);
+            return null;
+        }
+        user.setUserPassword(null);
+        stringRedisTemplate.opsForValue().set(RedisConstants.USER_INFO_CACHE + userId,
+                JSONUtil.toJsonStr(user), RedisConstants.USER_INFO_CACHE_TTL, TimeUnit.DAYS);
+        log.debug("用户缓存未命中，已回写缓存, userId: {}", userId);
+        return user;
+    }
+
+    /**
+     * 清除所有节点中该 token 的本地缓存（登出后调用）
+     */
+    public void invalidateToken(String token) {
+        localCache.invalidate(token);
+        publish(MSG_TOKEN + token);
+    }
+
+    /**
+     * 清除所有节点中该用户所有 token 的本地缓存（改密、用户信息变更后调用）
+     */
+    public void invalidateUser(Long userId) {
+        evictUser(userId);
+        publish(MSG_USER + userId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            if (body.startsWith(MSG_TOKEN)) {
+                localCache.invalidate(body.substring(MSG_TOKEN.length()));
+            } else if (body.startsWith(MSG_USER)) {
+                evictUser(Long.parseLong(body.substring(MSG_USER.length())));
+            }
+        } catch (NumberFormatException e) {
+            log.warn("无效的登录态缓存失效消息: {}", body);
+        }
+    }
+
+    private void evictUser(Long userId) {
+        localCache.asMap().values().removeIf(user -> userId.equals(user.getId()));
+    }
+
+    private void publish(String message) {
+        try {
+            stringRedisTemplate.convertAndSend(RedisConstants.AUTH_CACHE_INVALIDATE_CHANNEL, message);
+        } catch (Exception e) {
+            log.warn("广播登录态缓存失效失败，其他节点将在本地缓存过期后生效: {}", message, e);
+        }
+    }
+}
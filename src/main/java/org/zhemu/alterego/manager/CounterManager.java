@@ -0,0 +1,385 @@
+package org.zhemu.alterego.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.zhemu.alterego.constant.RedisConstants;
+import org.zhemu.alterego.event.PostChangedEvent;
+import org.zhemu.alterego.mapper.CounterMapper;
+import org.zhemu.alterego.model.enums.CounterFieldEnum;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 写回式计数器
+ * 点赞/点踩/评论数/回复数/票数等热点计数不再在业务事务内 UPDATE 热点行，
+ * 而是在事务提交后 HINCRBY 到 Redis Hash（待刷盘增量），由定时任务批量合并写回 MySQL。
+ * <p>
+ * 可靠性边界：
+ * <ul>
+ *     <li>写入侧至多一次：增量在业务事务提交后才写入 Redis，进程恰好在提交与 HINCRBY 之间崩溃时，
+ *     业务行（点赞/评论/投票记录）已落库而该增量丢失，计数会比明细少；需要精确值时以明细表重算</li>
+ *     <li>刷盘侧恰好一次：已进入 Redis 的增量先原子 RENAME 为"刷盘中"快照并打上批次ID，
+ *     计数 UPDATE 与批次日志在同一事务提交；进程在任意步骤崩溃后，下次刷盘会重放该快照，
+ *     已提交过的批次通过 counter_flush_log 跳过</li>
+ * </ul>
+ * 读路径通过 {@link #getPendingDeltas} 合并尚未刷盘的增量，只访问 Redis、不查询 MySQL：
+ * 批次提交后立即删除快照，本节点在删除前已记下该批次不再合并；其他节点在提交与删除之间
+ * （一次 Redis 往返，刷盘进程在此期间崩溃时为下次刷盘重放前）读到的该批次增量会短暂重复计入。
+ *
+ * @author lushihao
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class CounterManager {
+
+    private static final String BATCH_FIELD = "__batch";
+
+    private static final int FLUSH_CHUNK_SIZE = 500;
+
+    /**
+     * 准备刷盘：已有未完成的快照则直接重放，否则把待刷盘 Hash 改名为快照并写入批次ID
+     * KEYS[1]: 待刷盘 Hash，KEYS[2]: 刷盘中快照
+     * ARGV[1]: 新批次ID
+     * 返回值：1 有数据需要刷盘，0 无数据
+     */
+    private static final DefaultRedisScript<Long> PREPARE_FLUSH_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[2]) == 1 then return 1 end " +
+                    "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+                    "redis.call('RENAME', KEYS[1], KEYS[2]) " +
+                    "redis.call('HSET', KEYS[2], '" + BATCH_FIELD + "', ARGV[1]) " +
+                    "return 1",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CounterMapper counterMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Redis 不可用、计数直接写库时未能同步更新的派生数据 key，Redis 恢复后由刷盘任务删除，使用方读取时重建
+     */
+    private final Set<String> staleDerivedKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 本节点最近提交的刷盘批次，快照删除前读路径据此跳过该快照
+     */
+    private volatile String committedBatchId;
+
+    /**
+     * 累加计数；在事务中调用时延迟到事务提交后生效，事务回滚则丢弃
+     *
+     * @param field 计数字段
+     * @param id    行ID
+     * @param delta 增量（可为负）
+     */
+    public void increment(CounterFieldEnum field, Long id, long delta) {
+        increment(field, id, delta, null, List.of());
+    }
+
+    /**
+     * 累加计数，并在同一次 Redis 调用中更新依赖该计数的派生数据（如 PK 实时票数），两者原子生效
+     * 脚本约定：KEYS[1] 为待刷盘 Hash，ARGV[1]、ARGV[2] 为计数 field 和增量，由脚本执行 HINCRBY；
+     * 调用方的 keys、args 依次排在其后。Redis 不可用时计数直接写库，调用方的 keys 在 Redis 恢复后被删除，
+     * 派生数据应在 key 不存在时跳过更新、读取时通过 {@link #withFlushPaused} 重建
+     *
+     * @param script 同时更新计数和派生数据的脚本，为空时只累加计数
+     */
+    public void increment(CounterFieldEnum field, Long id, long delta,
+                          RedisScript<?> script, List<String> keys, String... args) {
+        if (id == null || delta == 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doIncrement(field, id, delta, script, keys, args);
+                }
+            });
+        } else {
+            doIncrement(field, id, delta, script, keys, args);
+        }
+    }
+
+    private void doIncrement(CounterFieldEnum field, Long id, long delta,
+                             RedisScript<?> script, List<String> keys, String[] args) {
+        try {
+            if (script == null) {
+                stringRedisTemplate.opsForHash().increment(RedisConstants.COUNTER_PENDING, buildField(field, id), delta);
+            } else {
+                List<String> scriptKeys = new ArrayList<>();
+                scriptKeys.add(RedisConstants.COUNTER_PENDING);
+                scriptKeys.addAll(keys);
+                Object[] scriptArgs = new Object[args.length + 2];
+                scriptArgs[0] = buildField(field, id);
+                scriptArgs[1] = String.valueOf(delta);
+                System.arraycopy(args, 0, scriptArgs, 2, args.length);
+                stringRedisTemplate.execute(script, scriptKeys, scriptArgs);
+            }
+        } catch (Exception e) {
+            // Redis 不可用时直接写库，宁可多一次行锁也不丢计数
+            log.warn("计数写入 Redis 失败，直接更新数据库: field={}, id={}, delta={}", field, id, delta, e);
+            counterMapper.batchIncrement(field.getTableName(), field.getColumnName(), Map.of(id, delta));
+            if (script != null) {
+                staleDerivedKeys.addAll(keys);
+            }
+        }
+    }
+
+    /**
+     * 持有刷盘锁执行：期间没有批次开始或完成刷盘，数据库计数与 Redis 中的未刷盘增量不会相互转移，
+     * 供需要以"数据库计数 + 未刷盘增量"在 Redis 脚本中一次性初始化派生数据的使用方（如 PK 实时票数）
+     *
+     * @param action 参数为需要合并的增量 Hash：待刷盘，以及尚未写回数据库的刷盘中快照
+     * @return action 的返回值；锁被占用（正在刷盘）时返回 null，由调用方稍后重试
+     */
+    public <T> T withFlushPaused(Function<List<String>, T> action) {
+        String lockValue = IdUtil.fastSimpleUUID();
+        if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                .setIfAbsent(RedisConstants.COUNTER_FLUSH_LOCK, lockValue, 30, TimeUnit.SECONDS))) {
+            return null;
+        }
+        try {
+            List<String> pendingKeys = new ArrayList<>();
+            pendingKeys.add(RedisConstants.COUNTER_PENDING);
+            // 上次刷盘中断留下的快照：已提交（删除前崩溃）的增量已在数据库中，不再合并
+            Object batchId = stringRedisTemplate.opsForHash().get(RedisConstants.COUNTER_FLUSHING, BATCH_FIELD);
+            if (batchId != null && counterMapper.countFlushLog(batchId.toString()) == 0) {
+                pendingKeys.add(RedisConstants.COUNTER_FLUSHING);
+            }
+            return action.apply(pendingKeys);
+        } finally {
+            releaseFlushLock(lockValue);
+        }
+    }
+
+    /**
+     * 批量读取尚未刷盘的增量（待刷盘 + 刷盘中，一次管道往返）
+     *
+     * @param field 计数字段
+     * @param ids   行ID
+     * @return id -> 增量（仅包含非 0 的）
+     */
+    public Map<Long, Long> getPendingDeltas(CounterFieldEnum field, Collection<Long> ids) {
+        Map<CounterFieldEnum, Map<Long, Long>> result = getPendingDeltas(List.of(field), ids);
+        return result.getOrDefault(field, Map.of());
+    }
+
+    /**
+     * 批量读取多个字段尚未刷盘的增量
+     *
+     * @return field -> (id -> 增量)
+     */
+    public Map<CounterFieldEnum, Map<Long, Long>> getPendingDeltas(List<CounterFieldEnum> fields, Collection<Long> ids) {
+        Map<CounterFieldEnum, Map<Long, Long>> result = new EnumMap<>(CounterFieldEnum.class);
+        if (CollUtil.isEmpty(fields) || CollUtil.isEmpty(ids)) {
+            return result;
+        }
+        List<Long> idList = new ArrayList<>(ids);
+        byte[][] hashFields = new byte[fields.size() * idList.size()][];
+        int index = 0;
+        for (CounterFieldEnum field : fields) {
+            for (Long id : idList) {
+                hashFields[index++] = buildField(field, id).getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        try {
+            byte[] flushingKey = RedisConstants.COUNTER_FLUSHING.getBytes(StandardCharsets.UTF_8);
+            List<Object> replies = new ArrayList<>(stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.hashCommands().hMGet(RedisConstants.COUNTER_PENDING.getBytes(StandardCharsets.UTF_8), hashFields);
+                connection.hashCommands().hMGet(flushingKey, hashFields);
+                connection.hashCommands().hGet(flushingKey, BATCH_FIELD.getBytes(StandardCharsets.UTF_8));
+                return null;
+            }));
+            // 快照批次已写回 MySQL（提交后、删除快照前），其增量已包含在数据库计数中
+            Object flushingBatch = replies.remove(2);
+            if (flushingBatch != null && toStr(flushingBatch).equals(committedBatchId)) {
+                replies.remove(1);
+            }
+            index = 0;
+            for (CounterFieldEnum field : fields) {
+                Map<Long, Long> deltas = new HashMap<>();
+                for (Long id : idList) {
+                    long delta = 0;
+                    for (Object reply : replies) {
+                        delta += parseDelta(((List<?>) reply).get(index));
+                    }
+                    if (delta != 0) {
+                        deltas.put(id, delta);
+                    }
+                    index++;
+                }
+                result.put(field, deltas);
+            }
+        } catch (Exception e) {
+            // 读不到增量时退化为数据库中的值，最多短暂少计
+            log.warn("读取待刷盘计数失败: fields={}, ids={}", fields, idList, e);
+        }
+        return result;
+    }
+
+    /**
+     * 数据库计数 + 待刷盘增量，结果不小于 0
+     */
+    public static Integer merge(Integer base, Map<CounterFieldEnum, Map<Long, Long>> pendingDeltas,
+                                CounterFieldEnum field, Long id) {
+        long delta = pendingDeltas.getOrDefault(field, Map.of()).getOrDefault(id, 0L);
+        if (delta == 0) {
+            return base;
+        }
+        return (int) Math.max(0, (base == null ? 0 : base) + delta);
+    }
+
+    /**
+     * 定时刷盘，多节点通过 Redis 锁保证同一时刻只有一个节点在刷
+     */
+    @Scheduled(fixedDelayString = "${counter.flush-interval-ms:1000}")
+    public void flush() {
+        String lockValue = IdUtil.fastSimpleUUID();
+        Boolean locked;
+        try {
+            locked = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(RedisConstants.COUNTER_FLUSH_LOCK, lockValue, 30, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("获取计数刷盘锁失败", e);
+            return;
+        }
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            deleteStaleDerivedKeys();
+            Long prepared = stringRedisTemplate.execute(PREPARE_FLUSH_SCRIPT,
+                    List.of(RedisConstants.COUNTER_PENDING, RedisConstants.COUNTER_FLUSHING),
+                    IdUtil.fastSimpleUUID());
+            if (prepared == null || prepared == 0) {
+                return;
+            }
+            flushSnapshot();
+        } catch (Exception e) {
+            // 快照保留在 Redis 中，下次刷盘重放
+            log.error("计数刷盘失败，等待下次重放", e);
+        } finally {
+            releaseFlushLock(lockValue);
+        }
+    }
+
+    private void releaseFlushLock(String lockValue) {
+        if (lockValue.equals(stringRedisTemplate.opsForValue().get(RedisConstants.COUNTER_FLUSH_LOCK))) {
+            stringRedisTemplate.delete(RedisConstants.COUNTER_FLUSH_LOCK);
+        }
+    }
+
+    private void deleteStaleDerivedKeys() {
+        if (staleDerivedKeys.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(staleDerivedKeys);
+        stringRedisTemplate.delete(keys);
+        keys.forEach(staleDerivedKeys::remove);
+        log.info("已删除 Redis 故障期间未同步的派生数据: {}", keys);
+    }
+
+    private void flushSnapshot() {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(RedisConstants.COUNTER_FLUSHING);
+        String batchId = (String) entries.remove(BATCH_FIELD);
+
+        // 1. 按字段分组合并增量
+        Map<CounterFieldEnum, Map<Long, Long>> grouped = new EnumMap<>(CounterFieldEnum.class);
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String hashField = (String) entry.getKey();
+            int split = hashField.indexOf(':');
+            CounterFieldEnum field = CounterFieldEnum.getEnumByCode(hashField.substring(0, Math.max(split, 0)));
+            long delta = parseDelta(entry.getValue());
+            if (field == null || delta == 0) {
+                continue;
+            }
+            grouped.computeIfAbsent(field, k -> new HashMap<>())
+                    .put(Long.parseLong(hashField.substring(split + 1)), delta);
+        }
+
+        // 2. 同一事务内批量 UPDATE + 写批次日志；批次已提交过（上次删快照前崩溃）则跳过
+        if (batchId != null && !grouped.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (counterMapper.countFlushLog(batchId) > 0) {
+                    log.info("计数批次 {} 已刷盘，跳过重放", batchId);
+                    return;
+                }
+                grouped.forEach((field, deltas) -> {
+                    for (List<Long> chunk : CollUtil.split(deltas.keySet(), FLUSH_CHUNK_SIZE)) {
+                        Map<Long, Long> chunkDeltas = new HashMap<>();
+                        chunk.forEach(id -> chunkDeltas.put(id, deltas.get(id)));
+                        counterMapper.batchIncrement(field.getTableName(), field.getColumnName(), chunkDeltas);
+                    }
+                });
+                counterMapper.insertFlushLog(batchId);
+            });
+            committedBatchId = batchId;
+        }
+
+        // 3. 删除快照，并失效涉及帖子的缓存（缓存中的计数基准值已变化）
+        stringRedisTemplate.delete(RedisConstants.COUNTER_FLUSHING);
+        Set<Long> postIds = new HashSet<>();
+        for (CounterFieldEnum field : List.of(CounterFieldEnum.POST_LIKE, CounterFieldEnum.POST_DISLIKE,
+                CounterFieldEnum.POST_COMMENT)) {
+            postIds.addAll(grouped.getOrDefault(field, Map.of()).keySet());
+        }
+        postIds.forEach(postId -> eventPublisher.publishEvent(PostChangedEvent.updated(postId)));
+        log.debug("计数刷盘完成: batchId={}, fields={}", batchId, grouped.size());
+    }
+
+    /**
+     * 每天凌晨清理 7 天前的刷盘日志
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void cleanFlushLog() {
+        int deleted = counterMapper.deleteFlushLogBefore(LocalDateTime.now().minusDays(7));
+        log.info("清理计数刷盘日志完成，删除数量: {}", deleted);
+    }
+
+    /**
+     * 待刷盘 Hash 中的 field
+     */
+    public static String buildField(CounterFieldEnum field, Long id) {
+        return field.getCode() + ":" + id;
+    }
+
+    private static String toStr(Object value) {
+        return value instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : value.toString();
+    }
+
+    private static long parseDelta(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof byte[] bytes) {
+            return Long.parseLong(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return Long.parseLong(value.toString());
+    }
+}
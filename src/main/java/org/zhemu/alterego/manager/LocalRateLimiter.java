@@ -0,0 +1,273 @@
+package org.zhemu.alterego.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.zhemu.alterego.model.enums.RateLimitAlgorithmEnum;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地限流预算（Redis 限流前的第一层）
+ * 每个限流 key 在本节点保存最近一次 Redis 判定返回的剩余配额和重置时间，放在有容量上限的 Caffeine 中：
+ * <ul>
+ *     <li>远离上限：每次同步后本节点可不访问 Redis 放行 share × 剩余配额 个请求；
+ *     这些请求在下次访问 Redis 时一并计入（空闲 key 由定时任务补报），Redis 计数始终包含所有放行的请求</li>
+ *     <li>接近上限：本地额度为 0，每个请求都访问 Redis，判定结果与只用 Redis 时一致</li>
+ *     <li>已超限：Redis 拒绝时同时返回最早可能再次放行的时间（固定窗口为窗口重置时间，令牌桶为下个令牌补充时间，
+ *     滑动窗口为最早可能腾出配额的时间），在此之前本地直接拒绝；该时间是下界，本地拒绝不会比 Redis 更严</li>
+ * </ul>
+ * 固定窗口的本地额度和未上报请求只在 Redis 返回的窗口内有效，窗口重置后重新同步。
+ * 本地放行最多领先 Redis sync-interval-ms；多节点时各节点额度相互独立，share × 节点数 ≤ 1 时本地放行总数不超过同步时的剩余配额
+ *
+ * @author lushihao
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class LocalRateLimiter {
+
+    private final RateLimitManager rateLimitManager;
+
+    @Value("${rate-limit.local.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 每次同步后本节点可自行放行的比例（相对 Redis 返回的剩余配额）
+     */
+    @Value("${rate-limit.local.share:0.2}")
+    private double share;
+
+    /**
+     * 本地放行后最迟多久必须回到 Redis 同步
+     */
+    @Value("${rate-limit.local.sync-interval-ms:1000}")
+    private long syncIntervalMs;
+
+    /**
+     * 本地最多保留的限流 key 数，超出时淘汰最久未用的
+     */
+    @Value("${rate-limit.local.max-keys:100000}")
+    private long maxKeys;
+
+    @Value("${rate-limit.local.expire-seconds:600}")
+    private long expireSeconds;
+
+    private Cache<String, Budget> budgets;
+
+    private final LongAdder localAllowed = new LongAdder();
+
+    private final LongAdder localRejected = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        budgets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofSeconds(expireSeconds))
+                .build();
+    }
+
+    /**
+     * 尝试获取一次访问许可：本地额度内直接放行，确定超限时直接拒绝，其余情况访问 Redis
+     *
+     * @param key           限流 key
+     * @param algorithm     限流算法
+     * @param maxCount      窗口内最大请求次数（令牌桶为容量）
+     * @param windowSeconds 窗口（秒）
+     * @return true 放行，false 超限；Redis 执行结果为空时返回 null，由调用方决定放行策略
+     */
+    public Boolean tryAcquire(String key, RateLimitAlgorithmEnum algorithm, int maxCount, int windowSeconds) {
+        if (!enabled) {
+            return rateLimitManager.tryAcquire(key, algorithm, maxCount, windowSeconds);
+        }
+        Budget budget = budgets.get(key, k -> new Budget(algorithm, maxCount, windowSeconds, System.nanoTime()));
+        long now = System.nanoTime();
+        State taken = budget.tryLocal(now, TimeUnit.MILLISECONDS.toNanos(syncIntervalMs));
+        if (taken == Budget.ALLOWED) {
+            localAllowed.increment();
+            return true;
+        }
+        if (taken == Budget.REJECTED) {
+            localRejected.increment();
+            return false;
+        }
+
+        RateLimitManager.Result result = null;
+        try {
+            result = rateLimitManager.acquire(key, algorithm, maxCount, windowSeconds,
+                    taken.pending(), taken.pendingSince(), true);
+        } finally {
+            if (result == null) {
+                // 未能上报，放回下次再报
+                budget.restorePending(taken.pending(), taken.pendingSince());
+            }
+        }
+        if (result == null) {
+            return null;
+        }
+        budget.sync(result, now, share);
+        return result.allowed();
+    }
+
+    /**
+     * 补报空闲 key 的本地放行数，避免这些请求长时间不计入 Redis（例如客户端随后转到其他节点）
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.local.sync-interval-ms:1000}")
+    public void reportPending() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        long syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMs);
+        budgets.asMap().forEach((key, budget) -> {
+            State taken = budget.takeIdlePending(now, syncIntervalNanos);
+            if (taken == null) {
+                return;
+            }
+            try {
+                rateLimitManager.acquire(key, budget.algorithm, budget.maxCount, budget.windowSeconds,
+                        taken.pending(), taken.pendingSince(), false);
+            } catch (Exception e) {
+                log.warn("补报本地限流计数失败: key={}, pending={}", key, taken.pending(), e);
+            }
+        });
+    }
+
+    /**
+     * 本地放行的累计请求数（未访问 Redis）
+     */
+    public long getLocalAllowed() {
+        return localAllowed.sum();
+    }
+
+    /**
+     * 本地拒绝的累计请求数（未访问 Redis）
+     */
+    public long getLocalRejected() {
+        return localRejected.sum();
+    }
+
+    /**
+     * 单个 key 的本地预算：状态为不可变对象，CAS 整体替换，访问 Redis 前后都不持有锁
+     */
+    private static final class Budget {
+
+        /**
+         * tryLocal 的返回值：本地放行 / 本地拒绝（其余返回值为取走的未上报请求，需访问 Redis）
+         */
+        static final State ALLOWED = new State(0, 0, 0, 0, 0, 0);
+
+        static final State REJECTED = new State(0, 0, 0, 0, 0, 0);
+
+        private final RateLimitAlgorithmEnum algorithm;
+
+        private final int maxCount;
+
+        private final int windowSeconds;
+
+        private final AtomicReference<State> state;
+
+        Budget(RateLimitAlgorithmEnum algorithm, int maxCount, int windowSeconds, long now) {
+            this.algorithm = algorithm;
+            this.maxCount = maxCount;
+            this.windowSeconds = windowSeconds;
+            this.state = new AtomicReference<>(new State(0, 0, 0, now, now, now));
+        }
+
+        /**
+         * 本地判定；需要访问 Redis 时取走未上报的请求，随本次 Redis 调用一并计入
+         *
+         * @return {@link #ALLOWED}、{@link #REJECTED}，或取走前的状态（pending、pendingSince 为需上报的请求）
+         */
+        State tryLocal(long now, long syncIntervalNanos) {
+            while (true) {
+                State current = state.get();
+                if (now - current.rejectUntil() < 0) {
+                    return REJECTED;
+                }
+                State live = expireWindow(current, now);
+                if (live.localQuota() > 0 && now - live.syncedAt() < syncIntervalNanos) {
+                    State next = new State(live.localQuota() - 1, live.pending() + 1,
+                            live.pending() == 0 ? System.currentTimeMillis() : live.pendingSince(),
+                            live.syncedAt(), live.windowEnd(), live.rejectUntil());
+                    if (state.compareAndSet(current, next)) {
+                        return ALLOWED;
+                    }
+                } else if (state.compareAndSet(current, live.withPending(0, 0))) {
+                    return live;
+                }
+            }
+        }
+
+        /**
+         * 取走空闲 key（距上次同步超过 sync-interval）的未上报请求
+         *
+         * @return 取走前的状态；无需上报时返回 null
+         */
+        State takeIdlePending(long now, long syncIntervalNanos) {
+            while (true) {
+                State current = state.get();
+                State live = expireWindow(current, now);
+                if (live.pending() == 0 || now - live.syncedAt() < syncIntervalNanos) {
+                    return null;
+                }
+                if (state.compareAndSet(current, live.withPending(0, 0))) {
+                    return live;
+                }
+            }
+        }
+
+        void restorePending(int count, long since) {
+            if (count == 0) {
+                return;
+            }
+            state.updateAndGet(current -> current.withPending(current.pending() + count,
+                    current.pending() == 0 ? since : Math.min(current.pendingSince(), since)));
+        }
+
+        void sync(RateLimitManager.Result result, long now, double share) {
+            long resetNanos = TimeUnit.MILLISECONDS.toNanos(result.resetMillis());
+            state.updateAndGet(current -> new State(
+                    result.allowed() ? (int) (result.remaining() * share) : 0,
+                    current.pending(), current.pendingSince(), now, now + resetNanos,
+                    result.allowed() ? current.rejectUntil() : now + resetNanos));
+        }
+
+        /**
+         * 固定窗口已重置：上个窗口的额度作废，上个窗口放行的请求也不应计入新窗口
+         */
+        private State expireWindow(State current, long now) {
+            if (algorithm == RateLimitAlgorithmEnum.FIXED_WINDOW && now - current.windowEnd() >= 0
+                    && (current.localQuota() > 0 || current.pending() > 0)) {
+                return new State(0, 0, 0, current.syncedAt(), current.windowEnd(), current.rejectUntil());
+            }
+            return current;
+        }
+    }
+
+    /**
+     * 本地预算状态
+     *
+     * @param localQuota   本地还可自行放行的次数
+     * @param pending      本地已放行、尚未计入 Redis 的次数
+     * @param pendingSince 最早一个未上报请求的时间（毫秒）
+     * @param syncedAt     上次同步时间（System.nanoTime）
+     * @param windowEnd    固定窗口：Redis 窗口结束时间（System.nanoTime），之后本地额度和未上报请求作废
+     * @param rejectUntil  Redis 拒绝后，在此之前本地直接拒绝（System.nanoTime）
+     */
+    private record State(int localQuota, int pending, long pendingSince,
+                         long syncedAt, long windowEnd, long rejectUntil) {
+
+        State withPending(int pending, long pendingSince) {
+            return new State(localQuota, pending, pendingSince, syncedAt, windowEnd, rejectUntil);
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package org.zhemu.alterego.manager;
+
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.model.ChatResponse;
+import io.agentscope.core.model.GenerateOptions;
+import io.agentscope.core.model.Model;
+import io.agentscope.core.model.ToolSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zhemu.alterego.exception.BusinessException;
+import org.zhemu.alterego.exception.ErrorCode;
+import org.zhemu.alterego.model.vo.ModelResilienceStatsVO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * 大模型调用保护
+ * 所有生成器原先共用同一个 dashScopeModel，没有并发上限、超时和故障隔离，上游变慢时会拖住全部请求线程。
+ * 这里按调用类型（comment/post/pk/pk_vote/memory_summary）包装 Model，每种类型独立：
+ * <ul>
+ *     <li>舱壁：固定并发上限，某一类型打满不影响其他类型</li>
+ *     <li>自适应并发：在舱壁上限内按 AIMD 调整，调用成功且耗时低于目标时缓慢加一，超时/失败/变慢时乘性减小</li>
+ *     <li>熔断：最近 N 次调用失败率超过阈值后打开，冷却期内直接拒绝，由生成器返回 getFallbackResult；
+ *     冷却后放行少量探测请求，全部成功才关闭</li>
+ *     <li>对冲（可选）：首个响应分片迟迟未到时再发一次同样的请求，先响应者胜出，另一个被取消</li>
+ * </ul>
+ * 并发许可不足时立即拒绝而不是排队，避免请求堆积在上游故障期间
+ *
+ * @author lushihao
+ */
+@Component
+@Slf4j
+public class ModelResilienceManager {
+
+    @Value("${ai.resilience.bulkhead.max-concurrent:16}")
+    private int bulkheadMaxConcurrent;
+
+    @Value("${ai.resilience.limit.min:2}")
+    private int limitMin;
+
+    /**
+     * 自适应并发的目标耗时（首个分片到流结束），超过视为上游变慢
+     */
+    @Value("${ai.resilience.limit.latency-target-ms:15000}")
+    private long latencyTargetMs;
+
+    /**
+     * 单次调用超时：首个分片及相邻分片之间的最大间隔
+     */
+    @Value("${ai.resilience.timeout-ms:60000}")
+    private long timeoutMs;
+
+    @Value("${ai.resilience.breaker.window-size:20}")
+    private int breakerWindowSize;
+
+    @Value("${ai.resilience.breaker.min-calls:10}")
+    private int breakerMinCalls;
+
+    @Value("${ai.resilience.breaker.failure-rate:0.5}")
+    private double breakerFailureRate;
+
+    @Value("${ai.resilience.breaker.open-ms:30000}")
+    private long breakerOpenMs;
+
+    @Value("${ai.resilience.breaker.half-open-permits:3}")
+    private int breakerHalfOpenPermits;
+
+    @Value("${ai.resilience.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+
+    @Value("${ai.resilience.hedge.delay-ms:5000}")
+    private long hedgeDelayMs;
+
+    private final Map<String, Guard> guards = new ConcurrentHashMap<>();
+
+    /**
+     * 按调用类型包装模型，同一类型共享一组舱壁/限流/熔断状态
+     *
+     * @param type     调用类型
+     * @param delegate 原始模型
+     * @return 受保护的模型
+     */
+    public Model guard(String type, Model delegate) {
+        return new GuardedModel(guardOf(type), delegate);
+    }
+
+    /**
+     * 熔断器是否放行（生成前预检，熔断打开时直接走降级，省去会话加载）
+     */
+    public boolean isCallPermitted(String type) {
+        return guardOf(type).breaker.peek();
+    }
+
+    /**
+     * 异常（或其 cause 链）是否为熔断拒绝
+     */
+    public static boolean isCircuitOpen(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof CircuitOpenException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 各调用类型的运行指标
+     */
+    public List<ModelResilienceStatsVO> getStats() {
+        List<ModelResilienceStatsVO> stats = new ArrayList<>(guards.size());
+        for (Guard guard : guards.values()) {
+            stats.add(guard.toStats());
+        }
+        stats.sort(Comparator.comparing(ModelResilienceStatsVO::getType));
+        return stats;
+    }
+
+    private Guard guardOf(String type) {
+        return guards.computeIfAbsent(type, Guard::new);
+    }
+
+    /**
+     * 受保护的模型：每次 stream 先过熔断和并发许可，可选对冲
+     */
+    private class GuardedModel implements Model {
+
+        private final Guard guard;
+        private final Model delegate;
+
+        GuardedModel(Guard guard, Model delegate) {
+            this.guard = guard;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(List<Msg> messages, List<ToolSchema> tools, GenerateOptions options) {
+            return Flux.defer(() -> {
+                if (!guard.breaker.tryAcquire()) {
+                    guard.shortCircuited.increment();
+                    return Flux.error(new CircuitOpenException(guard.type));
+                }
+                Flux<ChatResponse> primary = attempt(messages, tools, options, false);
+                if (!hedgeEnabled) {
+                    return primary;
+                }
+                Flux<ChatResponse> hedge = Mono.delay(Duration.ofMillis(hedgeDelayMs))
+                        .flatMapMany(tick -> guard.tryAcquirePermit() != Permit.NONE
+                                ? attempt(messages, tools, options, true)
+                                : Flux.never());
+                return Flux.firstWithSignal(primary, hedge);
+            });
+        }
+
+        /**
+         * 一次上游调用：持有并发许可直到流结束或被取消，结束时记录耗时和结果
+         */
+        private Flux<ChatResponse> attempt(List<Msg> messages, List<ToolSchema> tools, GenerateOptions options,
+                                           boolean hedged) {
+            return Flux.defer(() -> {
+                Permit permit = hedged ? Permit.ACQUIRED : guard.tryAcquirePermit();
+                if (permit == Permit.NONE) {
+                    guard.breaker.release();
+                    return Flux.error(new BusinessException(ErrorCode.TOO_MANY_REQUEST, "AI 服务繁忙，请稍后再试"));
+                }
+                if (hedged) {
+                    guard.hedges.increment();
+                }
+                long start = System.nanoTime();
+                AtomicBoolean done = new AtomicBoolean();
+                Mono<Long> idle = Mono.delay(Duration.ofMillis(timeoutMs));
+                return delegate.stream(messages, tools, options)
+                        .timeout(idle, item -> idle)
+                        .doOnComplete(() -> {
+                            if (done.compareAndSet(false, true)) {
+                                if (hedged) {
+                                    guard.hedgeWins.increment();
+                                }
+                                guard.onSuccess(System.nanoTime() - start, !hedged);
+                            }
+                        })
+                        .doOnError(e -> {
+                            if (done.compareAndSet(false, true)) {
+                                guard.onFailure(e, !hedged);
+                            }
+                        })
+                        .doOnCancel(() -> {
+                            // 对冲落败方被取消，只归还许可，不计入成功/失败
+                            if (done.compareAndSet(false, true)) {
+                                guard.releasePermit();
+                                if (!hedged) {
+                                    guard.breaker.release();
+                                }
+                            }
+                        });
+            });
+        }
+
+        @Override
+        public String getModelName() {
+            return delegate.getModelName();
+        }
+    }
+
+    private enum Permit {
+        ACQUIRED, NONE
+    }
+
+    /**
+     * 单个调用类型的保护状态
+     */
+    private class Guard {
+
+        private final String type;
+        private final Breaker breaker = new Breaker();
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        /**
+         * 自适应并发上限（double 的位表示，CAS 更新）
+         */
+        private final AtomicLong limitBits;
+
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder rejectedByBulkhead = new LongAdder();
+        private final LongAdder rejectedByLimit = new LongAdder();
+        private final LongAdder shortCircuited = new LongAdder();
+        private final LongAdder hedges = new LongAdder();
+        private final LongAdder hedgeWins = new LongAdder();
+        private final LongAdder totalLatencyMs = new LongAdder();
+
+        Guard(String type) {
+            this.type = type;
+            this.limitBits = new AtomicLong(Double.doubleToLongBits(bulkheadMaxConcurrent));
+        }
+
+        private double limit() {
+            return Double.longBitsToDouble(limitBits.get());
+        }
+
+        Permit tryAcquirePermit() {
+            while (true) {
+                int current = inFlight.get();
+                if (current >= bulkheadMaxConcurrent) {
+                    rejectedByBulkhead.increment();
+                    return Permit.NONE;
+                }
+                if (current >= (int) limit()) {
+                    rejectedByLimit.increment();
+                    return Permit.NONE;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return Permit.ACQUIRED;
+                }
+            }
+        }
+
+        void releasePermit() {
+            inFlight.decrementAndGet();
+        }
+
+        void onSuccess(long elapsedNanos, boolean recordBreaker) {
+            releasePermit();
+            long elapsedMs = elapsedNanos / 1_000_000;
+            successes.increment();
+            totalLatencyMs.add(elapsedMs);
+            if (elapsedMs <= latencyTargetMs) {
+                // 加性增：每个"窗口"（约 limit 次成功）加一
+                adjustLimit(limit -> limit + 1.0 / limit);
+            } else {
+                adjustLimit(limit -> limit * 0.9);
+            }
+            if (recordBreaker) {
+                breaker.record(true);
+            }
+        }
+
+        void onFailure(Throwable e, boolean recordBreaker) {
+            releasePermit();
+            if (e instanceof TimeoutException) {
+                timeouts.increment();
+            } else {
+                failures.increment();
+            }
+            adjustLimit(limit -> limit * 0.7);
+            if (recordBreaker) {
+                breaker.record(false);
+            }
+        }
+
+        private void adjustLimit(DoubleUnaryOperator op) {
+            limitBits.updateAndGet(bits -> {
+                double next = op.applyAsDouble(Double.longBitsToDouble(bits));
+                return Double.doubleToLongBits(Math.max(limitMin, Math.min(bulkheadMaxConcurrent, next)));
+            });
+        }
+
+        ModelResilienceStatsVO toStats() {
+            ModelResilienceStatsVO vo = new ModelResilienceStatsVO();
+            vo.setType(type);
+            vo.setCircuitState(breaker.state().name());
+            vo.setInFlight(inFlight.get());
+            vo.setConcurrencyLimit((int) limit());
+            vo.setBulkheadMaxConcurrent(bulkheadMaxConcurrent);
+            long success = successes.sum();
+            vo.setSuccessCount(success);
+            vo.setFailureCount(failures.sum());
+            vo.setTimeoutCount(timeouts.sum());
+            vo.setRejectedByBulkhead(rejectedByBulkhead.sum());
+            vo.setRejectedByLimit(rejectedByLimit.sum());
+            vo.setShortCircuited(shortCircuited.sum());
+            vo.setHedgeCount(hedges.sum());
+            vo.setHedgeWinCount(hedgeWins.sum());
+            vo.setAvgLatencyMs(success == 0 ? 0 : totalLatencyMs.sum() / success);
+            return vo;
+        }
+
+        /**
+         * 基于最近 N 次调用结果的熔断器
+         */
+        private class Breaker {
+
+            private final ReentrantLock lock = new ReentrantLock();
+            private final boolean[] window = new boolean[breakerWindowSize];
+            private int windowCount;
+            private int windowIndex;
+            private int windowFailures;
+            private CircuitState state = CircuitState.CLOSED;
+            private long openedAt;
+            private int halfOpenInFlight;
+            private int halfOpenSuccesses;
+
+            CircuitState state() {
+                lock.lock();
+                try {
+                    return state;
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            /**
+             * 只读判断是否放行，不占用半开探测名额
+             */
+            boolean peek() {
+                lock.lock();
+                try {
+                    return state != CircuitState.OPEN || System.currentTimeMillis() - openedAt >= breakerOpenMs;
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            boolean tryAcquire() {
+                lock.lock();
+                try {
+                    if (state == CircuitState.OPEN) {
+                        if (System.currentTimeMillis() - openedAt < breakerOpenMs) {
+                            return false;
+                        }
+                        transition(CircuitState.HALF_OPEN);
+                    }
+                    if (state == CircuitState.HALF_OPEN) {
+                        if (halfOpenInFlight + halfOpenSuccesses >= breakerHalfOpenPermits) {
+                            return false;
+                        }
+                        halfOpenInFlight++;
+                    }
+                    return true;
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            /**
+             * 放行后未真正调用上游（被舱壁拒绝或被取消），归还半开探测名额
+             */
+            void release() {
+                lock.lock();
+                try {
+                    if (state == CircuitState.HALF_OPEN && halfOpenInFlight > 0) {
+                        halfOpenInFlight--;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            void record(boolean success) {
+                lock.lock();
+                try {
+                    if (state == CircuitState.HALF_OPEN) {
+                        halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+                        if (!success) {
+                            transition(CircuitState.OPEN);
+                        } else if (++halfOpenSuccesses >= breakerHalfOpenPermits) {
+                            transition(CircuitState.CLOSED);
+                        }
+                        return;
+                    }
+                    if (state == CircuitState.OPEN) {
+                        return;
+                    }
+                    if (windowCount == window.length) {
+                        if (!window[windowIndex]) {
+                            windowFailures--;
+                        }
+                    } else {
+                        windowCount++;
+                    }
+                    window[windowIndex] = success;
+                    if (!success) {
+                        windowFailures++;
+                    }
+                    windowIndex = (windowIndex + 1) % window.length;
+                    if (windowCount >= breakerMinCalls && (double) windowFailures / windowCount >= breakerFailureRate) {
+                        transition(CircuitState.OPEN);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            private void transition(CircuitState next) {
+                log.warn("模型熔断状态变更: type={}, {} -> {}", type, state, next);
+                state = next;
+                halfOpenInFlight = 0;
+                halfOpenSuccesses = 0;
+                if (next == CircuitState.OPEN) {
+                    openedAt = System.currentTimeMillis();
+                } else if (next == CircuitState.CLOSED) {
+                    windowCount = 0;
+                    windowIndex = 0;
+                    windowFailures = 0;
+                }
+            }
+        }
+    }
+
+    private enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 熔断打开时的拒绝异常，生成器捕获后走降级结果
+     */
+    public static class CircuitOpenException extends RuntimeException {
+
+        public CircuitOpenException(String type) {
+            super("模型调用已熔断: " + type);
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package org.zhemu.alterego.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.zhemu.alterego.constant.RedisConstants;
+import org.zhemu.alterego.exception.ErrorCode;
+import org.zhemu.alterego.exception.ThrowUtils;
+import org.zhemu.alterego.mapper.PkVoteOptionMapper;
+import org.zhemu.alterego.model.entity.PkVoteOption;
+import org.zhemu.alterego.model.enums.CounterFieldEnum;
+import org.zhemu.alterego.model.vo.PkTallyVO;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * PK 实时票数与 SSE 推送
+ * <ul>
+ *     <li>每个 PK 一个 Redis Hash（optionId -> 票数），发起 PK 的事务提交后创建（各选项为 0）；
+ *     投票事务提交后与写回式计数的待刷盘增量在同一次 Lua 调用中累加并广播变更，
+ *     Hash 不存在时只累加待刷盘增量，不会留下只含部分选项的 Hash</li>
+ *     <li>读取时 Hash 不存在（创建失败、早于本功能、PK 结束后过期、Redis 故障期间计数直接写库后被删除）则重建：
+ *     持有刷盘锁读取 MySQL 票数，在脚本内合并未刷盘增量后写入，与投票脚本互斥执行，
+ *     重建后实时票数等于 MySQL 票数 + 未刷盘增量</li>
+ *     <li>广播只携带 postId，各节点收到后仅对本地有订阅的 PK 标记为脏，
+ *     定时任务每个周期对脏 PK 读取一次票数并推送给本地所有连接：
+ *     每个 PK 每个节点每秒最多推送 1000 / push-interval-ms 次，与投票速率和订阅人数无关</li>
+ *     <li>订阅期间客户端无需轮询 /pk/get，热门 PK 的读取压力落在 Redis 而不是 MySQL</li>
+ * </ul>
+ * 进程在 Redis 故障期间退出、未能删除已过时的 Hash 时，可通过 {@link #reconcile} 手动重建
+ *
+ * @author lushihao
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PkTallyManager implements MessageListener {
+
+    private static final String EVENT_NAME = "tally";
+
+    /**
+     * 发起 PK 后创建票数 Hash（HINCRBY 0 不会覆盖已有值）
+     * KEYS: 票数 Hash
+     * ARGV: 过期时间（秒），之后为各 optionId
+     */
+    private static final DefaultRedisScript<Long> INIT_SCRIPT = new DefaultRedisScript<>(
+            "for i = 2, #ARGV do redis.call('HINCRBY', KEYS[1], ARGV[i], 0) end " +
+                    "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+                    "return 1",
+            Long.class);
+
+    /**
+     * 投票：累加待刷盘增量，票数 Hash 存在时同时累加并广播（由 CounterManager 在投票事务提交后执行）
+     * KEYS: 待刷盘 Hash、票数 Hash
+     * ARGV: 计数 field、增量、optionId、postId、广播频道
+     */
+    private static final DefaultRedisScript<Long> VOTE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2]) " +
+                    "if redis.call('EXISTS', KEYS[2]) == 1 then " +
+                    "redis.call('HINCRBY', KEYS[2], ARGV[3], ARGV[2]) " +
+                    "redis.call('PUBLISH', ARGV[5], ARGV[4]) " +
+                    "end " +
+                    "return 1",
+            Long.class);
+
+    /**
+     * 重建：Hash 不存在时以 MySQL 票数 + 未刷盘增量写入（由调用方持有刷盘锁）
+     * KEYS: 票数 Hash，之后为需要合并的增量 Hash
+     * ARGV: 过期时间（秒），之后为 optionId、计数 field、MySQL 票数三个一组
+     */
+    private static final DefaultRedisScript<Long> SEED_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+                    "for i = 2, #ARGV, 3 do " +
+                    "local count = tonumber(ARGV[i + 2]) " +
+                    "for k = 2, #KEYS do count = count + tonumber(redis.call('HGET', KEYS[k], ARGV[i + 1]) or 0) end " +
+                    "redis.call('HSET', KEYS[1], ARGV[i], math.max(count, 0)) " +
+                    "end " +
+                    "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+                    "return 1",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final PkVoteOptionMapper pkVoteOptionMapper;
+    private final CounterManager counterManager;
+
+    @Value("${pk.tally.sse-timeout-ms:600000}")
+    private long sseTimeoutMs;
+
+    /**
+     * 本节点最多保持的订阅连接数
+     */
+    @Value("${pk.tally.max-connections:10000}")
+    private int maxConnections;
+
+    /**
+     * 单个客户端（IP）在本节点最多保持的订阅连接数
+     */
+    @Value("${pk.tally.max-connections-per-client:5}")
+    private int maxConnectionsPerClient;
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    /**
+     * 客户端 -> 本节点上的订阅连接数
+     */
+    private final Map<String, Integer> clientConnections = new ConcurrentHashMap<>();
+
+    /**
+     * postId -> 本节点上订阅该 PK 的连接
+     */
+    private final Map<Long, Set<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    /**
+     * 本周期内有票数变更、且本节点有订阅的 PK
+     */
+    private final Set<Long> dirtyPosts = ConcurrentHashMap.newKeySet();
+
+    /**
+     * postId -> 本节点上次推送的票数，用于计算增量
+     */
+    private final Map<Long, Map<Long, Long>> lastPushed = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(RedisConstants.PK_TALLY_CHANNEL));
+    }
+
+    /**
+     * 创建 PK 票数 Hash，在发起 PK 的事务中调用时延迟到提交后执行
+     */
+    public void initTally(Long postId, Collection<Long> optionIds) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doInitTally(postId, optionIds);
+                }
+            });
+        } else {
+            doInitTally(postId, optionIds);
+        }
+    }
+
+    private void doInitTally(Long postId, Collection<Long> optionIds) {
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(TimeUnit.HOURS.toSeconds(RedisConstants.PK_TALLY_TTL)));
+        optionIds.forEach(optionId -> args.add(String.valueOf(optionId)));
+        try {
+            stringRedisTemplate.execute(INIT_SCRIPT, List.of(RedisConstants.PK_TALLY + postId), args.toArray());
+        } catch (Exception e) {
+            log.warn("创建 PK 实时票数失败，需校对: postId={}", postId, e);
+        }
+    }
+
+    /**
+     * 记录一票：选项票数的写回式计数与实时票数在投票事务提交后由同一个脚本累加；
+     * Redis 不可用时计数直接写库，票数 Hash 在 Redis 恢复后被删除、下次读取时重建
+     */
+    public void recordVote(Long postId, Long optionId) {
+        counterManager.increment(CounterFieldEnum.PK_OPTION_VOTE, optionId, 1, VOTE_SCRIPT,
+                List.of(RedisConstants.PK_TALLY + postId),
+                String.valueOf(optionId),
+                String.valueOf(postId),
+                RedisConstants.PK_TALLY_CHANNEL);
+    }
+
+    /**
+     * 读取当前票数；Hash 不存在时重建，正在刷盘（未获取到刷盘锁）时本次按 MySQL + 待刷盘增量计算
+     *
+     * @return optionId -> 票数（按 optionId 排序）；PK 不存在时为空
+     */
+    public Map<Long, Long> getTally(Long postId) {
+        String key = RedisConstants.PK_TALLY + postId;
+        Map<Long, Long> tally = toTally(stringRedisTemplate.opsForHash().entries(key));
+        if (!tally.isEmpty()) {
+            return tally;
+        }
+        Boolean seeded = counterManager.withFlushPaused(pendingKeys -> seedTally(postId, pendingKeys));
+        if (seeded == null) {
+            return loadTally(postId);
+        }
+        return seeded ? toTally(stringRedisTemplate.opsForHash().entries(key)) : Map.of();
+    }
+
+    /**
+     * @return PK 不存在时为 false
+     */
+    private boolean seedTally(Long postId, List<String> pendingKeys) {
+        List<PkVoteOption> options = pkVoteOptionMapper.selectList(Wrappers.<PkVoteOption>lambdaQuery()
+                .eq(PkVoteOption::getPostId, postId));
+        if (options.isEmpty()) {
+            return false;
+        }
+        List<String> keys = new ArrayList<>();
+        keys.add(RedisConstants.PK_TALLY + postId);
+        keys.addAll(pendingKeys);
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(TimeUnit.HOURS.toSeconds(RedisConstants.PK_TALLY_TTL)));
+        for (PkVoteOption option : options) {
+            args.add(String.valueOf(option.getId()));
+            args.add(CounterManager.buildField(CounterFieldEnum.PK_OPTION_VOTE, option.getId()));
+            args.add(String.valueOf(option.getVoteCount()));
+        }
+        stringRedisTemplate.execute(SEED_SCRIPT, keys, args.toArray());
+        return true;
+    }
+
+    /**
+     * 校对：删除后按 MySQL + 未刷盘增量重建票数并推送给订阅者
+     * 删除与重建都在刷盘锁内，期间提交的投票只累加待刷盘增量，随后由重建脚本合并，不会丢票
+     *
+     * @return 重建后的票数；PK 不存在时为空
+     */
+    public Map<Long, Long> reconcile(Long postId) {
+        String key = RedisConstants.PK_TALLY + postId;
+        Boolean seeded = counterManager.withFlushPaused(pendingKeys -> {
+            stringRedisTemplate.delete(key);
+            return seedTally(postId, pendingKeys);
+        });
+        ThrowUtils.throwIf(seeded == null, ErrorCode.OPERATION_ERROR, "正在刷盘计数，请稍后重试");
+        if (!seeded) {
+            return Map.of();
+        }
+        stringRedisTemplate.convertAndSend(RedisConstants.PK_TALLY_CHANNEL, String.valueOf(postId));
+        Map<Long, Long> tally = toTally(stringRedisTemplate.opsForHash().entries(key));
+        log.info("PK 实时票数已校对: postId={}, tally={}", postId, tally);
+        return tally;
+    }
+
+    private Map<Long, Long> loadTally(Long postId) {
+        Map<Long, Long> tally = new TreeMap<>();
+        List<PkVoteOption> options = pkVoteOptionMapper.selectList(Wrappers.<PkVoteOption>lambdaQuery()
+                .eq(PkVoteOption::getPostId, postId));
+        if (options.isEmpty()) {
+            return tally;
+        }
+        Map<Long, Long> pendingVotes = counterManager.getPendingDeltas(CounterFieldEnum.PK_OPTION_VOTE,
+                options.stream().map(PkVoteOption::getId).collect(Collectors.toList()));
+        for (PkVoteOption option : options) {
+            tally.put(option.getId(), Math.max(0, option.getVoteCount() + pendingVotes.getOrDefault(option.getId(), 0L)));
+        }
+        return tally;
+    }
+
+    /**
+     * 注册订阅连接（调用方随后应推送一次当前票数，避免注册前的变更丢失）
+     * 本节点连接总数或该客户端连接数已达上限时拒绝
+     *
+     * @param client 客户端标识（IP）
+     */
+    public SseEmitter register(Long postId, String client) {
+        ThrowUtils.throwIf(!acquireConnection(client), ErrorCode.TOO_MANY_REQUEST, "实时票数订阅连接过多");
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        emitters.computeIfAbsent(postId, k -> new CopyOnWriteArraySet<>()).add(emitter);
+        // 超时后还会触发完成回调，连接数只释放一次
+        AtomicBoolean removed = new AtomicBoolean();
+        Runnable remove = () -> {
+            if (removed.compareAndSet(false, true)) {
+                removeEmitter(postId, emitter);
+                releaseConnection(client);
+            }
+        };
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    /**
+     * 向单个连接推送票数
+     */
+    public void send(SseEmitter emitter, PkTallyVO tallyVO) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(tallyVO));
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开
+            emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * 组装推送内容
+     *
+     * @param previous 上次推送的票数，为空时不计算增量
+     */
+    public PkTallyVO toTallyVO(Long postId, Map<Long, Long> tally, Map<Long, Long> previous) {
+        Map<Long, Long> deltas = new LinkedHashMap<>();
+        if (previous != null) {
+            tally.forEach((optionId, count) -> {
+                long delta = count - previous.getOrDefault(optionId, 0L);
+                if (delta != 0) {
+                    deltas.put(optionId, delta);
+                }
+            });
+        }
+        PkTallyVO tallyVO = new PkTallyVO();
+        tallyVO.setPostId(postId);
+        tallyVO.setVoteCounts(tally);
+        tallyVO.setDeltas(deltas);
+        tallyVO.setTotalVotes(tally.values().stream().mapToLong(Long::longValue).sum());
+        return tallyVO;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Long postId = Long.parseLong(new String(message.getBody(), StandardCharsets.UTF_8));
+            if (emitters.containsKey(postId)) {
+                dirtyPosts.add(postId);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("无效的 PK 票数变更消息");
+        }
+    }
+
+    /**
+     * 合并推送：本周期内变更过的 PK 各读取一次票数（一次管道往返），推送给本地所有订阅连接
+     */
+    @Scheduled(fixedDelayString = "${pk.tally.push-interval-ms:500}")
+    public void pushDirtyTallies() {
+        if (dirtyPosts.isEmpty()) {
+            return;
+        }
+        List<Long> postIds = new ArrayList<>(dirtyPosts);
+        dirtyPosts.removeAll(postIds);
+        try {
+            List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Long postId : postIds) {
+                    connection.hashCommands().hGetAll((RedisConstants.PK_TALLY + postId).getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+            for (int i = 0; i < postIds.size(); i++) {
+                Long postId = postIds.get(i);
+                Set<SseEmitter> postEmitters = emitters.get(postId);
+                Object result = results.get(i);
+                if (CollUtil.isEmpty(postEmitters) || !(result instanceof Map<?, ?> entries) || entries.isEmpty()) {
+                    continue;
+                }
+                Map<Long, Long> tally = toTally(entries);
+                PkTallyVO tallyVO = toTallyVO(postId, tally, lastPushed.get(postId));
+                lastPushed.put(postId, tally);
+                postEmitters.forEach(emitter -> send(emitter, tallyVO));
+            }
+        } catch (Exception e) {
+            // 重新标记，下个周期重试
+            postIds.stream().filter(emitters::containsKey).forEach(dirtyPosts::add);
+            log.warn("推送 PK 实时票数失败, postIds={}", postIds, e);
+        }
+    }
+
+    private Map<Long, Long> toTally(Map<?, ?> entries) {
+        Map<Long, Long> tally = new TreeMap<>();
+        entries.forEach((optionId, count) ->
+                tally.put(Long.parseLong(optionId.toString()), Long.parseLong(count.toString())));
+        return tally;
+    }
+
+    private boolean acquireConnection(String client) {
+        if (connectionCount.incrementAndGet() > maxConnections) {
+            connectionCount.decrementAndGet();
+            return false;
+        }
+        AtomicBoolean acquired = new AtomicBoolean();
+        clientConnections.compute(client, (k, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= maxConnectionsPerClient) {
+                return count;
+            }
+            acquired.set(true);
+            return current + 1;
+        });
+        if (!acquired.get()) {
+            connectionCount.decrementAndGet();
+        }
+        return acquired.get();
+    }
+
+    private void releaseConnection(String client) {
+        connectionCount.decrementAndGet();
+        clientConnections.computeIfPresent(client, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void removeEmitter(Long postId, SseEmitter emitter) {
+        emitters.computeIfPresent(postId, (k, set) -> {
+            set.remove(emitter);
+            if (set.isEmpty()) {
+                lastPushed.remove(postId);
+                return null;
+            }
+            return set;
+        });
+    }
+}
@@ -0,0 +1,305 @@
+package org.zhemu.alterego.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.zhemu.alterego.constant.RedisConstants;
+import org.zhemu.alterego.event.PostChangedEvent;
+import org.zhemu.alterego.model.vo.PostVO;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 帖子多级缓存管理
+ * L1：本地 Caffeine（短 TTL），L2：Redis（JSON）
+ * 分页只缓存帖子ID列表，帖子 VO 单独缓存，计数变化只需失效单条帖子
+ * Redis 异常时统一降级为未命中，由调用方回源 MySQL
+ * <p>
+ * 失效采用延迟双删：事务提交后立即删除一次，delay 后再删除一次。
+ * 读请求可能在提交前从 MySQL 读到旧值、在第一次删除之后才回填，第二次删除清掉这类回填；
+ * delay 需大于一次回源（查库 + 组装 VO）的耗时
+ *
+ * @author lushihao
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PostCacheManager implements MessageListener {
+
+    private static final String MSG_POST = "post:";
+    private static final String MSG_FEED = "feed:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final TaskScheduler taskScheduler;
+
+    @Value("${post.cache.local-ttl-seconds:10}")
+    private long localTtlSeconds;
+
+    @Value("${post.cache.local-max-size:10000}")
+    private long localMaxSize;
+
+    @Value("${post.cache.redis-ttl-seconds:60}")
+    private long redisTtlSeconds;
+
+    /**
+     * 延迟双删的第二次删除延迟
+     */
+    @Value("${post.cache.double-delete-delay-ms:1000}")
+    private long doubleDeleteDelayMs;
+
+    private Cache<Long, PostVO> localPostCache;
+
+    private Cache<String, CachedPage> localPageCache;
+
+    /**
+     * 当前信息流版本号，新帖发布后自增，所有分页 key 随之切换
+     */
+    private final AtomicLong feedVersion = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        localPostCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+        localPageCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize / 10)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+        try {
+            String version = stringRedisTemplate.opsForValue().get(RedisConstants.POST_FEED_VERSION);
+            if (version != null) {
+                feedVersion.set(Long.parseLong(version));
+            }
+        } catch (Exception e) {
+            log.warn("读取信息流版本号失败，使用默认版本 0", e);
+        }
+        redisMessageListenerContainer.addMessageListener(this,
+                new ChannelTopic(RedisConstants.POST_CACHE_INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 当前信息流版本号：调用方在查询分页缓存、回源 MySQL 之前读取一次，
+     * 读取与回填都使用该版本，查库期间发布的新帖使版本号变化，旧结果只会写入旧版本的 key
+     */
+    public long getFeedVersion() {
+        return feedVersion.get();
+    }
+
+    /**
+     * 读取分页缓存（L1 -> L2）
+     *
+     * @param version 信息流版本号（{@link #getFeedVersion()}）
+     * @param pageKey 分页 key（不含版本号）
+     * @return 分页帖子ID列表，未命中返回 null
+     */
+    public CachedPage getPage(long version, String pageKey) {
+        String versionedKey = version + ":" + pageKey;
+        CachedPage page = localPageCache.getIfPresent(versionedKey);
+        if (page != null) {
+            return page;
+        }
+        try {
+            String json = stringRedisTemplate.opsForValue().get(RedisConstants.POST_FEED_PAGE_CACHE + versionedKey);
+            if (json == null) {
+                return null;
+            }
+            page = JSONUtil.toBean(json, CachedPage.class);
+            localPageCache.put(versionedKey, page);
+            return page;
+        } catch (Exception e) {
+            log.warn("读取分页缓存失败, key={}", versionedKey, e);
+            return null;
+        }
+    }
+
+    /**
+     * 写入分页缓存（L1 + L2）
+     *
+     * @param version 回源查库之前读取的信息流版本号
+     */
+    public void putPage(long version, String pageKey, CachedPage page) {
+        String versionedKey = version + ":" + pageKey;
+        localPageCache.put(versionedKey, page);
+        try {
+            stringRedisTemplate.opsForValue().set(RedisConstants.POST_FEED_PAGE_CACHE + versionedKey,
+                    JSONUtil.toJsonStr(page), redisTtlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入分页缓存失败, key={}", versionedKey, e);
+        }
+    }
+
+    /**
+     * 批量读取帖子 VO（L1 -> L2，一次 MGET）
+     *
+     * @param postIds 帖子ID
+     * @return postId -> PostVO（仅包含命中的帖子）
+     */
+    public Map<Long, PostVO> getPosts(Collection<Long> postIds) {
+        Map<Long, PostVO> result = new HashMap<>(localPostCache.getAllPresent(postIds));
+        if (result.size() == postIds.size()) {
+            return result;
+        }
+        List<Long> missIds = postIds.stream().filter(id -> !result.containsKey(id)).toList();
+        try {
+            List<String> keys = missIds.stream().map(id -> RedisConstants.POST_VO_CACHE + id).toList();
+            List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+            if (values == null) {
+                return result;
+            }
+            for (int i = 0; i < missIds.size(); i++) {
+                String json = values.get(i);
+                if (json == null) {
+                    continue;
+                }
+                PostVO postVO = JSONUtil.toBean(json, PostVO.class);
+                localPostCache.put(missIds.get(i), postVO);
+                result.put(missIds.get(i), postVO);
+            }
+        } catch (Exception e) {
+            log.warn("读取帖子缓存失败, postIds={}", missIds, e);
+        }
+        return result;
+    }
+
+    /**
+     * 批量写入帖子 VO（L1 + L2，管道提交）
+     */
+    public void putPosts(Collection<PostVO> postVOList) {
+        if (CollUtil.isEmpty(postVOList)) {
+            return;
+        }
+        postVOList.forEach(postVO -> localPostCache.put(postVO.getId(), postVO));
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (PostVO postVO : postVOList) {
+                    connection.stringCommands().setEx(
+                            (RedisConstants.POST_VO_CACHE + postVO.getId()).getBytes(StandardCharsets.UTF_8),
+                            redisTtlSeconds,
+                            JSONUtil.toJsonStr(postVO).getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("写入帖子缓存失败, size={}", postVOList.size(), e);
+        }
+    }
+
+    /**
+     * 失效单条帖子（本节点 + Redis + 广播其他节点）
+     */
+    public void evictPost(Long postId) {
+        if (postId == null) {
+            return;
+        }
+        localPostCache.invalidate(postId);
+        try {
+            stringRedisTemplate.delete(RedisConstants.POST_VO_CACHE + postId);
+            stringRedisTemplate.convertAndSend(RedisConstants.POST_CACHE_INVALIDATE_CHANNEL, MSG_POST + postId);
+        } catch (Exception e) {
+            log.warn("失效帖子缓存失败, postId={}", postId, e);
+        }
+    }
+
+    /**
+     * 失效整个信息流分页：版本号自增，旧版本 key 等待 TTL 自然过期
+     */
+    public void evictFeed() {
+        localPageCache.invalidateAll();
+        try {
+            Long version = stringRedisTemplate.opsForValue().increment(RedisConstants.POST_FEED_VERSION);
+            if (version != null) {
+                feedVersion.set(version);
+                stringRedisTemplate.convertAndSend(RedisConstants.POST_CACHE_INVALIDATE_CHANNEL, MSG_FEED + version);
+            }
+        } catch (Exception e) {
+            // Redis 不可用时本地版本号自增，保证本节点至少不读到旧分页
+            feedVersion.incrementAndGet();
+            log.warn("失效信息流缓存失败", e);
+        }
+    }
+
+    /**
+     * 帖子变更事件：事务提交后失效，并在 delay 后再失效一次，清掉并发读在两次删除之间回填的旧数据
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        evictPost(event.getPostId());
+        if (event.isFeedChanged()) {
+            evictFeed();
+        }
+        taskScheduler.schedule(() -> {
+            evictPost(event.getPostId());
+            if (event.isFeedChanged()) {
+                evictFeed();
+            }
+        }, Instant.now().plusMillis(doubleDeleteDelayMs));
+    }
+
+    /**
+     * 其他节点广播的失效消息，只清理本地 L1
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            if (body.startsWith(MSG_POST)) {
+                localPostCache.invalidate(Long.parseLong(body.substring(MSG_POST.length())));
+            } else if (body.startsWith(MSG_FEED)) {
+                long version = Long.parseLong(body.substring(MSG_FEED.length()));
+                feedVersion.accumulateAndGet(version, Math::max);
+                localPageCache.invalidateAll();
+            }
+        } catch (NumberFormatException e) {
+            log.warn("无效的缓存失效消息: {}", body);
+        }
+    }
+
+    /**
+     * 缓存的分页结构（只存帖子ID，VO 另行缓存）
+     */
+    @Data
+    public static class CachedPage implements Serializable {
+
+        private List<Long> postIds = new ArrayList<>();
+
+        private long total;
+
+        private boolean hasMore;
+
+        private LocalDateTime nextCursorTime;
+
+        private Long nextCursorId;
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+    }
+}
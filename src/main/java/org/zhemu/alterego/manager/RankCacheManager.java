@@ -0,0 +1,289 @@
+package org.zhemu.alterego.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.zhemu.alterego.constant.RedisConstants;
+import org.zhemu.alterego.mapper.AgentMapper;
+import org.zhemu.alterego.model.entity.Agent;
+import org.zhemu.alterego.model.entity.Species;
+import org.zhemu.alterego.model.enums.RankWindowEnum;
+import org.zhemu.alterego.model.vo.AgentRankPositionVO;
+import org.zhemu.alterego.model.vo.AgentRankVO;
+import org.zhemu.alterego.model.vo.SpeciesVO;
+import org.zhemu.alterego.service.RankService;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 获赞排行榜预计算缓存
+ * 原先每次请求 /agent/rank/like 都要 ZREVRANGE + 查 Agent 表组装 VO。
+ * 现在每个窗口预先组装好前 maxSize 名的 VO 列表放在内存，请求只截取前 N 名，不访问 Redis 和 MySQL：
+ * <ul>
+ *     <li>刷新时机：定时一次读取各窗口的版本号（该窗口前 maxSize 名变化时才自增），只重建版本号变化的窗口；
+ *     超过 maxAge 强制重建（热度榜分数随时间衰减、Agent 名称头像可能变化）</li>
+ *     <li>stale-while-revalidate：请求发现快照过期时照常返回旧快照，同时在后台触发一次重建（同一窗口只允许一个）</li>
+ *     <li>重建时 Agent 基本信息优先取本地缓存，只查询缓存中没有的 Agent；后台重建在 AI IO 调度器上执行，不占用公共 ForkJoinPool</li>
+ * </ul>
+ * "我的名次"无法从前 maxSize 名的快照中得出，直接查 Redis（ZREVRANK + 前后 k 名）；
+ * 同一 Agent 同一窗口在 positionCoalesceMs 内的请求合并为一次查询：并发请求等待同一次查询，之后的请求复用结果
+ *
+ * @author lushihao
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RankCacheManager {
+
+    private final RankService rankService;
+    private final AgentMapper agentMapper;
+    private final SpeciesCacheManager speciesCacheManager;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Scheduler ioScheduler;
+
+    /**
+     * 每个窗口预计算的名次数，也是接口 limit 的上限
+     */
+    @Value("${rank.cache.max-size:100}")
+    private int maxSize;
+
+    /**
+     * 快照最长使用时间，超过后即使版本号未变也重建
+     */
+    @Value("${rank.cache.max-age-ms:30000}")
+    private long maxAgeMs;
+
+    @Value("${rank.cache.agent-expire-minutes:5}")
+    private long agentExpireMinutes;
+
+    /**
+     * "我的名次"查询结果的复用时间
+     */
+    @Value("${rank.position.coalesce-ms:1000}")
+    private long positionCoalesceMs;
+
+    @Value("${rank.position.cache-max-size:10000}")
+    private long positionCacheMaxSize;
+
+    private final Map<RankWindowEnum, Board> boards = new ConcurrentHashMap<>();
+
+    private final Map<RankWindowEnum, AtomicBoolean> rebuilding = new EnumMap<>(RankWindowEnum.class);
+
+    private Cache<Long, Agent> agentCache;
+
+    private Cache<PositionKey, AgentRankPositionVO> positionCache;
+
+    @PostConstruct
+    public void init() {
+        for (RankWindowEnum window : RankWindowEnum.values()) {
+            rebuilding.put(window, new AtomicBoolean());
+        }
+        agentCache = Caffeine.newBuilder()
+                .maximumSize(maxSize * RankWindowEnum.values().length * 2L)
+                .expireAfterWrite(Duration.ofMinutes(agentExpireMinutes))
+                .build();
+        positionCache = Caffeine.newBuilder()
+                .maximumSize(positionCacheMaxSize)
+                .expireAfterWrite(Duration.ofMillis(positionCoalesceMs))
+                .build();
+    }
+
+    /**
+     * 获取排行榜前 limit 名（limit 超过 maxSize 时按 maxSize 截断）
+     *
+     * @param window 时间窗口
+     * @param limit  Top N
+     * @return 排行榜列表（共享快照中的 VO，调用方只读）
+     */
+    public List<AgentRankVO> getTop(RankWindowEnum window, int limit) {
+        Board board = boards.get(window);
+        if (board == null) {
+            // 冷启动：同步构建一次，之后都走内存
+            board = rebuild(window, currentVersion(window));
+        } else if (System.currentTimeMillis() - board.builtAt() > maxAgeMs) {
+            rebuildAsync(window);
+        }
+        List<AgentRankVO> items = board.items();
+        return items.subList(0, Math.min(Math.min(limit, maxSize), items.size()));
+    }
+
+    /**
+     * 获取 Agent 的名次及前后各 k 名
+     *
+     * @param window  时间窗口
+     * @param agentId Agent ID
+     * @param k       前后各取的名次数
+     * @return 位置信息（共享结果，调用方只读）
+     */
+    public AgentRankPositionVO getPosition(RankWindowEnum window, Long agentId, int k) {
+        return positionCache.get(new PositionKey(window, agentId, k), this::loadPosition);
+    }
+
+    private AgentRankPositionVO loadPosition(PositionKey key) {
+        RankService.RankSlice slice = rankService.getAgentLikeNeighbours(key.window(), key.agentId(), key.k());
+        AgentRankPositionVO position = new AgentRankPositionVO();
+        position.setWindow(key.window().getValue());
+        position.setAgentId(key.agentId());
+        List<AgentRankVO> neighbours = toRankVOs(slice.scores(), slice.firstRank());
+        for (AgentRankVO vo : neighbours) {
+            if (vo.getAgentId().equals(key.agentId())) {
+                position.setRank(vo.getRank());
+                position.setScore(vo.getScore());
+            }
+        }
+        position.setNeighbours(List.copyOf(neighbours));
+        return position;
+    }
+
+    /**
+     * 定时检查：已被访问过的窗口中，版本号变化或快照过期的才重建
+     */
+    @Scheduled(fixedDelayString = "${rank.cache.refresh-interval-ms:2000}")
+    public void refresh() {
+        if (boards.isEmpty()) {
+            return;
+        }
+        Map<RankWindowEnum, Long> versions;
+        try {
+            versions = currentVersions();
+        } catch (Exception e) {
+            log.warn("读取榜单版本号失败，继续使用旧快照", e);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<RankWindowEnum, Board> entry : boards.entrySet()) {
+            Board board = entry.getValue();
+            long version = versions.getOrDefault(entry.getKey(), 0L);
+            if (board.version() != version || now - board.builtAt() > maxAgeMs) {
+                rebuildQuietly(entry.getKey(), version);
+            }
+        }
+    }
+
+    private void rebuildAsync(RankWindowEnum window) {
+        AtomicBoolean flag = rebuilding.get(window);
+        if (!flag.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ioScheduler.schedule(() -> {
+                try {
+                    rebuildQuietly(window, currentVersion(window));
+                } finally {
+                    flag.set(false);
+                }
+            });
+        } catch (Exception e) {
+            flag.set(false);
+            log.warn("提交排行榜快照重建失败，继续使用旧快照: window={}", window.getValue(), e);
+        }
+    }
+
+    private void rebuildQuietly(RankWindowEnum window, long version) {
+        try {
+            rebuild(window, version);
+        } catch (Exception e) {
+            log.warn("重建排行榜快照失败，继续使用旧快照: window={}", window.getValue(), e);
+        }
+    }
+
+    /**
+     * 从 Redis 读取前 maxSize 名并组装 VO，整体替换快照
+     */
+    private Board rebuild(RankWindowEnum window, long version) {
+        LinkedHashMap<Long, Double> rankMap = rankService.getTopAgentLike(window, maxSize);
+        List<AgentRankVO> items = toRankVOs(rankMap, 1);
+        Board board = new Board(List.copyOf(items), version, System.currentTimeMillis());
+        boards.put(window, board);
+        log.debug("排行榜快照已重建: window={}, size={}, version={}", window.getValue(), items.size(), version);
+        return board;
+    }
+
+    /**
+     * 组装连续名次的排行榜项，名次从 firstRank 开始（已删除的 Agent 跳过，名次不占位）
+     */
+    private List<AgentRankVO> toRankVOs(LinkedHashMap<Long, Double> rankMap, int firstRank) {
+        Map<Long, Agent> agentMap = loadAgents(rankMap.keySet());
+        Set<Long> speciesIds = agentMap.values().stream()
+                .map(Agent::getSpeciesId)
+                .collect(Collectors.toSet());
+        Map<Long, Species> speciesMap = speciesCacheManager.mapByIds(speciesIds);
+
+        List<AgentRankVO> items = new ArrayList<>(rankMap.size());
+        int rank = firstRank;
+        for (Map.Entry<Long, Double> entry : rankMap.entrySet()) {
+            Agent agent = agentMap.get(entry.getKey());
+            if (agent == null) {
+                continue;
+            }
+            AgentRankVO vo = new AgentRankVO();
+            vo.setRank(rank++);
+            vo.setAgentId(agent.getId());
+            vo.setAgentName(agent.getAgentName());
+            vo.setAvatarUrl(agent.getAvatarUrl());
+            Species species = speciesMap.get(agent.getSpeciesId());
+            if (species != null) {
+                vo.setSpecies(SpeciesVO.objToVo(species));
+            }
+            vo.setLikeCount((int) Math.round(entry.getValue()));
+            vo.setScore(entry.getValue());
+            items.add(vo);
+        }
+        return items;
+    }
+
+    /**
+     * 批量获取 Agent，只查询本地缓存中没有的
+     */
+    private Map<Long, Agent> loadAgents(Set<Long> agentIds) {
+        if (agentIds.isEmpty()) {
+            return Map.of();
+        }
+        return agentCache.getAll(agentIds, missing -> agentMapper.selectBatchIds(missing).stream()
+                .collect(Collectors.toMap(Agent::getId, agent -> agent)));
+    }
+
+    private long currentVersion(RankWindowEnum window) {
+        Object version = stringRedisTemplate.opsForHash().get(RedisConstants.AGENT_LIKE_RANK_VERSION, window.getValue());
+        return version == null ? 0 : Long.parseLong(version.toString());
+    }
+
+    /**
+     * 一次读取所有窗口的版本号，没有记录的窗口不在结果中（按 0 处理）
+     */
+    private Map<RankWindowEnum, Long> currentVersions() {
+        Map<RankWindowEnum, Long> versions = new EnumMap<>(RankWindowEnum.class);
+        stringRedisTemplate.opsForHash().entries(RedisConstants.AGENT_LIKE_RANK_VERSION).forEach((field, value) -> {
+            RankWindowEnum window = RankWindowEnum.getEnumByValue(field.toString());
+            if (window != null) {
+                versions.put(window, Long.parseLong(value.toString()));
+            }
+        });
+        return versions;
+    }
+
+    /**
+     * 单个窗口的预计算快照（不可变）
+     */
+    private record Board(List<AgentRankVO> items, long version, long builtAt) {
+    }
+
+    private record PositionKey(RankWindowEnum window, Long agentId, int k) {
+    }
+}
@@ -0,0 +1,306 @@
+package org.zhemu.alterego.manager;
+
+import cn.hutool.core.util.IdUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.zset.DefaultTuple;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.zhemu.alterego.constant.RedisConstants;
+import org.zhemu.alterego.exception.BusinessException;
+import org.zhemu.alterego.exception.ErrorCode;
+import org.zhemu.alterego.exception.ThrowUtils;
+import org.zhemu.alterego.mapper.RankRebuildMapper;
+import org.zhemu.alterego.model.dto.agent.AgentLikeTotal;
+import org.zhemu.alterego.model.enums.RankWindowEnum;
+import org.zhemu.alterego.model.vo.RankRebuildResultVO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 获赞总榜重建 / 校对
+ * 总榜只由点赞时的增量维护，Redis 数据丢失或与 MySQL 漂移后没有其他途径修复，这里以点赞记录为准重新计算：
+ * <ul>
+ *     <li>全量重建：按 Agent ID 游标分批统计获赞数，每批一次管道写入影子榜，全部完成后 RENAME 原子替换总榜；
+ *     重建期间的增量由增量脚本同时写入影子榜（已写入的成员累加，未写入的成员之后被 ZADD 覆盖）</li>
+ *     <li>增量校对：同样分批统计，与总榜 ZMSCORE 比对，只修正不一致的成员。
+ *     修正前重新统计一次并以比对时读到的分数做 CAS，期间有新增量的成员跳过，留给下一轮</li>
+ * </ul>
+ * 两种模式都会顺带把 agent.like_count 修正为统计值。每批只占用 chunkSize 行内存，与 Agent 总数无关。
+ * 增量校对只覆盖未删除的 Agent，已删除 Agent 的残留成员需要全量重建清理
+ *
+ * @author lushihao
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RankRebuildManager {
+
+    private static final String MODE_REBUILD = "rebuild";
+
+    private static final String MODE_RECONCILE = "reconcile";
+
+    /**
+     * 影子榜替换总榜：剔除分数不为正的成员后 RENAME（影子榜不存在说明没有任何获赞，直接删除总榜）
+     * KEYS: 影子榜、总榜、榜单版本号
+     * ARGV: 总榜的版本号 field
+     * 返回值：替换后总榜成员数
+     */
+    private static final DefaultRedisScript<Long> SWAP_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then " +
+                    "  redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', 0) " +
+                    "end " +
+                    "if redis.call('EXISTS', KEYS[1]) == 1 then " +
+                    "  redis.call('RENAME', KEYS[1], KEYS[2]) " +
+                    "  redis.call('PERSIST', KEYS[2]) " +
+                    "else " +
+                    "  redis.call('DEL', KEYS[2]) " +
+                    "end " +
+                    "redis.call('HINCRBY', KEYS[3], ARGV[1], 1) " +
+                    "return redis.call('ZCARD', KEYS[2])",
+            Long.class);
+
+    /**
+     * 按 CAS 修正漂移成员：当前分数（不存在按 0）等于比对时读到的分数才写入，目标值不为正时移除
+     * KEYS: 总榜、榜单版本号
+     * ARGV: 总榜的版本号 field，之后为成员、期望分数、目标分数（三个一组重复）
+     * 返回值：修正的成员数
+     */
+    private static final DefaultRedisScript<Long> RECONCILE_SCRIPT = new DefaultRedisScript<>(
+            "local fixed = 0 " +
+                    "for i = 2, #ARGV, 3 do " +
+                    "  local current = tonumber(redis.call('ZSCORE', KEYS[1], ARGV[i])) or 0 " +
+                    "  if current == tonumber(ARGV[i + 1]) then " +
+                    "    local target = tonumber(ARGV[i + 2]) " +
+                    "    if target > 0 then redis.call('ZADD', KEYS[1], target, ARGV[i]) " +
+                    "    else redis.call('ZREM', KEYS[1], ARGV[i]) end " +
+                    "    fixed = fixed + 1 " +
+                    "  end " +
+                    "end " +
+                    "if fixed > 0 then redis.call('HINCRBY', KEYS[2], ARGV[1], 1) end " +
+                    "return fixed",
+            Long.class);
+
+    private final RankRebuildMapper rankRebuildMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 每批统计的 Agent 数
+     */
+    @Value("${rank.rebuild.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * 重建/校对锁的超时时间，需大于一次全量重建的耗时
+     */
+    @Value("${rank.rebuild.lock-seconds:600}")
+    private long lockSeconds;
+
+    /**
+     * 全量重建总榜
+     *
+     * @return 重建结果
+     */
+    public RankRebuildResultVO rebuild() {
+        return withLock(MODE_REBUILD, this::doRebuild);
+    }
+
+    /**
+     * 增量校对总榜，只修正漂移的成员
+     *
+     * @return 校对结果
+     */
+    public RankRebuildResultVO reconcile() {
+        return withLock(MODE_RECONCILE, this::doReconcile);
+    }
+
+    /**
+     * 定时修复：总榜不存在（Redis 被清空）时全量重建，否则增量校对
+     */
+    @Scheduled(cron = "${rank.reconcile-cron:0 30 4 * * ?}")
+    public void scheduledRepair() {
+        try {
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(RedisConstants.AGENT_LIKE_RANK_KEY))) {
+                reconcile();
+            } else {
+                rebuild();
+            }
+        } catch (BusinessException e) {
+            log.info("获赞总榜定时修复跳过: {}", e.getMessage());
+        } catch (Exception e) {
+            log.error("获赞总榜定时修复失败", e);
+        }
+    }
+
+    private RankRebuildResultVO doRebuild() {
+        long start = System.currentTimeMillis();
+        byte[] shadowKey = RedisConstants.AGENT_LIKE_RANK_SHADOW.getBytes(StandardCharsets.UTF_8);
+        long shadowTtl = TimeUnit.MINUTES.toSeconds(RedisConstants.AGENT_LIKE_RANK_SHADOW_TTL);
+        // 清理上次中断残留的影子榜
+        stringRedisTemplate.delete(RedisConstants.AGENT_LIKE_RANK_SHADOW);
+
+        long scanned = 0;
+        long likeCountFixed = 0;
+        long lastId = 0;
+        while (true) {
+            List<AgentLikeTotal> chunk = rankRebuildMapper.selectLikeTotalsAfter(lastId, chunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            Set<Tuple> tuples = new HashSet<>();
+            List<byte[]> zeroMembers = new ArrayList<>();
+            for (AgentLikeTotal row : chunk) {
+                byte[] member = row.getAgentId().toString().getBytes(StandardCharsets.UTF_8);
+                if (row.getTotal() > 0) {
+                    tuples.add(new DefaultTuple(member, row.getTotal().doubleValue()));
+                } else {
+                    zeroMembers.add(member);
+                }
+            }
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                if (!tuples.isEmpty()) {
+                    connection.zSetCommands().zAdd(shadowKey, tuples);
+                }
+                // 零获赞成员可能在本批写入前已被增量脚本写入影子榜，一并移除
+                if (!zeroMembers.isEmpty()) {
+                    connection.zSetCommands().zRem(shadowKey, zeroMembers.toArray(new byte[0][]));
+                }
+                connection.keyCommands().expire(shadowKey, shadowTtl);
+                return null;
+            });
+            likeCountFixed += syncLikeCount(chunk);
+            scanned += chunk.size();
+            lastId = chunk.get(chunk.size() - 1).getAgentId();
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+        }
+        Long size = stringRedisTemplate.execute(SWAP_SCRIPT,
+                List.of(RedisConstants.AGENT_LIKE_RANK_SHADOW,
+                        RedisConstants.AGENT_LIKE_RANK_KEY,
+                        RedisConstants.AGENT_LIKE_RANK_VERSION),
+                RankWindowEnum.TOTAL.getValue());
+        return buildResult(MODE_REBUILD, scanned, size == null ? 0 : size, likeCountFixed, start);
+    }
+
+    private RankRebuildResultVO doReconcile() {
+        long start = System.currentTimeMillis();
+        long scanned = 0;
+        long rankFixed = 0;
+        long likeCountFixed = 0;
+        long lastId = 0;
+        while (true) {
+            List<AgentLikeTotal> chunk = rankRebuildMapper.selectLikeTotalsAfter(lastId, chunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            rankFixed += reconcileChunk(chunk);
+            likeCountFixed += syncLikeCount(chunk);
+            scanned += chunk.size();
+            lastId = chunk.get(chunk.size() - 1).getAgentId();
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+        }
+        return buildResult(MODE_RECONCILE, scanned, rankFixed, likeCountFixed, start);
+    }
+
+    /**
+     * 比对一批成员，返回修正的成员数
+     */
+    private long reconcileChunk(List<AgentLikeTotal> chunk) {
+        Object[] members = chunk.stream().map(row -> row.getAgentId().toString()).toArray();
+        List<Double> scores = stringRedisTemplate.opsForZSet().score(RedisConstants.AGENT_LIKE_RANK_KEY, members);
+        Map<Long, Double> drifted = new HashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Double score = scores == null ? null : scores.get(i);
+            double current = score == null ? 0 : score;
+            if (current != chunk.get(i).getTotal()) {
+                drifted.put(chunk.get(i).getAgentId(), current);
+            }
+        }
+        if (drifted.isEmpty()) {
+            return 0;
+        }
+        // 比对时的统计值可能早于分数读取，在分数快照之后重新统计，才能用快照做 CAS
+        List<String> args = new ArrayList<>(drifted.size() * 3 + 1);
+        args.add(RankWindowEnum.TOTAL.getValue());
+        for (AgentLikeTotal row : rankRebuildMapper.selectLikeTotalsByIds(drifted.keySet())) {
+            double expected = drifted.get(row.getAgentId());
+            if (expected != row.getTotal()) {
+                args.add(row.getAgentId().toString());
+                args.add(String.valueOf(expected));
+                args.add(row.getTotal().toString());
+            }
+        }
+        if (args.size() == 1) {
+            return 0;
+        }
+        Long fixed = stringRedisTemplate.execute(RECONCILE_SCRIPT,
+                List.of(RedisConstants.AGENT_LIKE_RANK_KEY, RedisConstants.AGENT_LIKE_RANK_VERSION),
+                args.toArray());
+        log.info("获赞总榜修正漂移成员: drifted={}, fixed={}", (args.size() - 1) / 3, fixed);
+        return fixed == null ? 0 : fixed;
+    }
+
+    /**
+     * 把 agent.like_count 与统计值不一致的行改为统计值
+     */
+    private int syncLikeCount(List<AgentLikeTotal> chunk) {
+        Map<Long, Long> likeCounts = new HashMap<>();
+        for (AgentLikeTotal row : chunk) {
+            if (!Objects.equals(row.getStoredLikeCount(), row.getTotal())) {
+                likeCounts.put(row.getAgentId(), row.getTotal());
+            }
+        }
+        if (likeCounts.isEmpty()) {
+            return 0;
+        }
+        rankRebuildMapper.batchUpdateLikeCount(likeCounts);
+        return likeCounts.size();
+    }
+
+    /**
+     * 全量重建和增量校对互斥，多节点同时只有一个在执行
+     */
+    private RankRebuildResultVO withLock(String mode, Supplier<RankRebuildResultVO> task) {
+        String lockValue = IdUtil.fastSimpleUUID();
+        Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(RedisConstants.AGENT_LIKE_RANK_REBUILD_LOCK, lockValue, lockSeconds, TimeUnit.SECONDS);
+        ThrowUtils.throwIf(!Boolean.TRUE.equals(locked), ErrorCode.OPERATION_ERROR, "排行榜正在重建或校对，请稍后再试");
+        try {
+            RankRebuildResultVO result = task.get();
+            log.info("获赞总榜{}完成: {}", MODE_REBUILD.equals(mode) ? "全量重建" : "增量校对", result);
+            return result;
+        } finally {
+            if (lockValue.equals(stringRedisTemplate.opsForValue().get(RedisConstants.AGENT_LIKE_RANK_REBUILD_LOCK))) {
+                stringRedisTemplate.delete(RedisConstants.AGENT_LIKE_RANK_REBUILD_LOCK);
+            }
+        }
+    }
+
+    private static RankRebuildResultVO buildResult(String mode, long scanned, long rankUpdated,
+                                                   long likeCountFixed, long start) {
+        RankRebuildResultVO result = new RankRebuildResultVO();
+        result.setMode(mode);
+        result.setScannedAgents(scanned);
+        result.setRankUpdated(rankUpdated);
+        result.setLikeCountFixed(likeCountFixed);
+        result.setElapsedMs(System.currentTimeMillis() - start);
+        return result;
+    }
+}
@@ -0,0 +1,207 @@
+package org.zhemu.alterego.manager;
+
+import cn.hutool.core.util.IdUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.zhemu.alterego.model.enums.RateLimitAlgorithmEnum;
+
+import java.util.List;
+
+/**
+ * 分布式限流：每种算法一个 Lua 脚本，一次判定一次 Redis 往返
+ * 脚本为 DefaultRedisScript 常量，SHA1 只计算一次，执行时走 EVALSHA（服务端脚本缓存被清空时自动回退 EVAL 并重新加载），
+ * 不再每次请求发送完整脚本
+ * <p>
+ * 所有脚本的 ARGV 统一为：当前时间（毫秒）、窗口（毫秒）、上限、请求唯一标识、
+ * 本地已放行未上报的请求数、其中最早一个的时间（毫秒）、是否为本次请求申请许可（1/0）。
+ * 未上报的请求已经放行过，无条件计入；返回 {是否放行, 剩余配额, 重置时间（毫秒）}，供 {@link LocalRateLimiter} 同步本地预算：
+ * 固定窗口的重置时间为窗口剩余时间；其他算法在没有剩余配额时为最早可能再次放行的时间（下界），否则为窗口长度。
+ * 当前时间取自应用节点，多节点间时钟偏差会体现为窗口边界的少量误差
+ *
+ * @author lushihao
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitManager {
+
+    /**
+     * 固定窗口：窗口内计数，窗口内首次写入时设置过期时间
+     */
+    private static final DefaultRedisScript<List> FIXED_WINDOW_SCRIPT = new DefaultRedisScript<>(
+            "local limit = tonumber(ARGV[3]) " +
+                    "local ttl = redis.call('PTTL', KEYS[1]) " +
+                    "local current = 0 " +
+                    "if ttl > 0 then current = tonumber(redis.call('GET', KEYS[1])) or 0 else ttl = tonumber(ARGV[2]) end " +
+                    "local delta = tonumber(ARGV[5]) " +
+                    "local allowed = 0 " +
+                    "if ARGV[7] == '1' and current + delta < limit then allowed = 1 end " +
+                    "delta = delta + allowed " +
+                    "if delta > 0 then " +
+                    "  if current > 0 then redis.call('INCRBY', KEYS[1], delta) " +
+                    "  else redis.call('SET', KEYS[1], delta, 'PX', ttl) end " +
+                    "end " +
+                    "return {allowed, math.max(limit - current - delta, 0), ttl}",
+            List.class);
+
+    /**
+     * 滑动窗口日志：ZSET 记录窗口内每个请求的时间戳，先剔除窗口外的再计数
+     * 未上报的请求统一按其中最早的时间记录（已滑出窗口的不再记录）
+     */
+    private static final DefaultRedisScript<List> SLIDING_LOG_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1]) " +
+                    "local window = tonumber(ARGV[2]) " +
+                    "local limit = tonumber(ARGV[3]) " +
+                    "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window) " +
+                    "if tonumber(ARGV[6]) > now - window then " +
+                    "  for i = 1, tonumber(ARGV[5]) do redis.call('ZADD', KEYS[1], ARGV[6], ARGV[4] .. ':' .. i) end " +
+                    "end " +
+                    "local count = redis.call('ZCARD', KEYS[1]) " +
+                    "local allowed = 0 " +
+                    "if ARGV[7] == '1' and count < limit then " +
+                    "  redis.call('ZADD', KEYS[1], now, ARGV[4]) " +
+                    "  count = count + 1 " +
+                    "  allowed = 1 " +
+                    "end " +
+                    "if count > 0 then redis.call('PEXPIRE', KEYS[1], window) end " +
+                    "local reset = window " +
+                    "if count >= limit then " +
+                    "  local oldest = redis.call('ZRANGE', KEYS[1], count - limit, count - limit, 'WITHSCORES') " +
+                    "  reset = math.max(tonumber(oldest[2]) + window - now, 1) " +
+                    "end " +
+                    "return {allowed, math.max(limit - count, 0), reset}",
+            List.class);
+
+    /**
+     * 滑动窗口计数：Hash 中只保留当前和上一个固定窗口的计数（field 为窗口序号），
+     * 估算值 = 上一窗口计数 × 上一窗口仍在滑动窗口内的比例 + 当前窗口计数
+     * 超限时的重置时间为估算值随权重下降回到上限以下的时刻，当前窗口已满时取窗口结束（均为下界）
+     */
+    private static final DefaultRedisScript<List> SLIDING_COUNTER_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1]) " +
+                    "local window = tonumber(ARGV[2]) " +
+                    "local limit = tonumber(ARGV[3]) " +
+                    "local current = math.floor(now / window) " +
+                    "local counts = redis.call('HMGET', KEYS[1], current, current - 1) " +
+                    "local currentCount = (tonumber(counts[1]) or 0) + tonumber(ARGV[5]) " +
+                    "local previousCount = tonumber(counts[2]) or 0 " +
+                    "local weight = 1 - (now - current * window) / window " +
+                    "local allowed = 0 " +
+                    "if ARGV[7] == '1' and previousCount * weight + currentCount < limit then " +
+                    "  currentCount = currentCount + 1 " +
+                    "  allowed = 1 " +
+                    "end " +
+                    "local delta = tonumber(ARGV[5]) + allowed " +
+                    "if delta > 0 then " +
+                    "  if not counts[1] then redis.call('HDEL', KEYS[1], current - 2) end " +
+                    "  redis.call('HINCRBY', KEYS[1], current, delta) " +
+                    "  redis.call('PEXPIRE', KEYS[1], window * 2) " +
+                    "end " +
+                    "local estimate = previousCount * weight + currentCount " +
+                    "local reset = window " +
+                    "if estimate >= limit then " +
+                    "  reset = (current + 1) * window - now " +
+                    "  if currentCount < limit and previousCount > 0 then " +
+                    "    reset = math.min(reset, current * window + window * (1 - (limit - currentCount) / previousCount) - now) " +
+                    "  end " +
+                    "  reset = math.max(math.floor(reset), 1) " +
+                    "end " +
+                    "return {allowed, math.max(math.floor(limit - estimate), 0), reset}",
+            List.class);
+
+    /**
+     * 令牌桶：Hash 保存剩余令牌和上次补充时间，按流逝时间补充（上限为容量）后扣减；
+     * 未上报的请求可使令牌为负（欠账），由后续补充抵扣
+     * 过期时间为补满所需时间，过期后等价于满桶
+     */
+    private static final DefaultRedisScript<List> TOKEN_BUCKET_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1]) " +
+                    "local window = tonumber(ARGV[2]) " +
+                    "local capacity = tonumber(ARGV[3]) " +
+                    "local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts') " +
+                    "local tokens = tonumber(bucket[1]) or capacity " +
+                    "local ts = tonumber(bucket[2]) or now " +
+                    "if now > ts then " +
+                    "  tokens = math.min(capacity, tokens + (now - ts) * capacity / window) " +
+                    "  ts = now " +
+                    "end " +
+                    "tokens = tokens - tonumber(ARGV[5]) " +
+                    "local allowed = 0 " +
+                    "if ARGV[7] == '1' and tokens >= 1 then " +
+                    "  tokens = tokens - 1 " +
+                    "  allowed = 1 " +
+                    "end " +
+                    "redis.call('HSET', KEYS[1], 'tokens', tokens, 'ts', ts) " +
+                    "redis.call('PEXPIRE', KEYS[1], math.max(math.ceil((capacity - tokens) * window / capacity), 1)) " +
+                    "local reset = window " +
+                    "if tokens < 1 then reset = math.max(math.floor((1 - tokens) * window / capacity), 1) end " +
+                    "return {allowed, math.max(math.floor(tokens), 0), reset}",
+            List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 尝试获取一次访问许可
+     *
+     * @param key           限流 key
+     * @param algorithm     限流算法
+     * @param maxCount      窗口内最大请求次数（令牌桶为容量）
+     * @param windowSeconds 窗口（秒）
+     * @return true 放行，false 超限；Redis 执行结果为空时返回 null，由调用方决定放行策略
+     */
+    public Boolean tryAcquire(String key, RateLimitAlgorithmEnum algorithm, int maxCount, int windowSeconds) {
+        Result result = acquire(key, algorithm, maxCount, windowSeconds, 0, 0, true);
+        return result == null ? null : result.allowed();
+    }
+
+    /**
+     * 上报本地已放行的请求，并按需为本次请求申请许可
+     *
+     * @param key           限流 key
+     * @param algorithm     限流算法
+     * @param maxCount      窗口内最大请求次数（令牌桶为容量）
+     * @param windowSeconds 窗口（秒）
+     * @param pending       本地已放行、尚未计入 Redis 的请求数
+     * @param pendingSince  其中最早一个请求的时间（毫秒）
+     * @param acquire       是否为本次请求申请许可，false 时只上报
+     * @return 判定结果；Redis 执行结果为空时返回 null
+     */
+    public Result acquire(String key, RateLimitAlgorithmEnum algorithm, int maxCount, int windowSeconds,
+                          int pending, long pendingSince, boolean acquire) {
+        DefaultRedisScript<List> script = switch (algorithm) {
+            case FIXED_WINDOW -> FIXED_WINDOW_SCRIPT;
+            case SLIDING_LOG -> SLIDING_LOG_SCRIPT;
+            case SLIDING_COUNTER -> SLIDING_COUNTER_SCRIPT;
+            case TOKEN_BUCKET -> TOKEN_BUCKET_SCRIPT;
+        };
+        // 各算法的数据结构不同，切换算法时不能复用旧 key（固定窗口沿用原 key）
+        String redisKey = algorithm == RateLimitAlgorithmEnum.FIXED_WINDOW ? key : key + ":" + algorithm.getValue();
+        long now = System.currentTimeMillis();
+        List<?> reply = stringRedisTemplate.execute(script, List.of(redisKey),
+                String.valueOf(now),
+                String.valueOf(windowSeconds * 1000L),
+                String.valueOf(maxCount),
+                // 滑动日志的 ZSET 成员，同一毫秒的多个请求不能互相覆盖
+                algorithm == RateLimitAlgorithmEnum.SLIDING_LOG ? now + ":" + IdUtil.fastSimpleUUID() : "",
+                String.valueOf(pending),
+                String.valueOf(pending > 0 ? pendingSince : now),
+                acquire ? "1" : "0");
+        if (reply == null || reply.size() < 3) {
+            return null;
+        }
+        return new Result(((Number) reply.get(0)).longValue() == 1,
+                ((Number) reply.get(1)).longValue(),
+                ((Number) reply.get(2)).longValue());
+    }
+
+    /**
+     * 限流判定结果
+     *
+     * @param allowed     本次请求是否放行（只上报时恒为 false）
+     * @param remaining   剩余配额
+     * @param resetMillis 重置时间（毫秒），含义见类注释
+     */
+    public record Result(boolean allowed, long remaining, long resetMillis) {
+    }
+}
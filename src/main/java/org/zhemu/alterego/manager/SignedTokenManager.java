@@ -0,0 +1,341 @@
+package org.zhemu.alterego.manager;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.jwt.JWT;
+import cn.hutool.jwt.RegisteredPayload;
+import cn.hutool.jwt.signers.JWTSigner;
+import cn.hutool.jwt.signers.JWTSignerUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.zhemu.alterego.constant.RedisConstants;
+import org.zhemu.alterego.mapper.SysUserMapper;
+import org.zhemu.alterego.model.entity.SysUser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 签名令牌（可选登录模式，auth.token.signed.enabled=true 时启用）
+ * 访问令牌为 HS256 JWT，携带 userId、角色、会话ID、签发和过期时间，校验只需本地验签，不访问 Redis：
+ * <ul>
+ *     <li>Redis 只保存刷新令牌和吊销列表：按会话吊销（登出）和按用户吊销（改密、重置密码）</li>
+ *     <li>吊销列表在每个节点有一份本地副本，吊销时通过 pub/sub 增量同步，并定时全量同步兜底，
+ *     所以鉴权热路径是纯 CPU 操作</li>
+ *     <li>访问令牌有效期短（默认 15 分钟），过期后用刷新令牌换取新令牌；刷新令牌每次使用后轮换</li>
+ * </ul>
+ * 令牌中的角色在访问令牌过期前不会更新；广播丢失时吊销最晚在下次全量同步后生效
+ *
+ * @author lushihao
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SignedTokenManager implements MessageListener {
+
+    private static final String CLAIM_USER_ID = "uid";
+
+    private static final String CLAIM_ROLE = "role";
+
+    private static final String CLAIM_SESSION = "sid";
+
+    private static final String MSG_SESSION = "session:";
+
+    private static final String MSG_USER = "user:";
+
+    /**
+     * 轮换刷新令牌
+     * KEYS: 刷新令牌 key
+     * ARGV: 旧 secret、新 secret、有效期（秒）
+     * 返回值：令牌不存在或 secret 不匹配为空；否则为 {userId, 会话创建时间秒}
+     */
+    private static final DefaultRedisScript<List> ROTATE_SCRIPT = new DefaultRedisScript<>(
+            "local value = redis.call('GET', KEYS[1]) " +
+                    "if not value then return nil end " +
+                    "local userId, secret, createdAt = string.match(value, '^(%d+):(%w+):(%d+)$') " +
+                    "if secret ~= ARGV[1] then return nil end " +
+                    "redis.call('SET', KEYS[1], userId .. ':' .. ARGV[2] .. ':' .. createdAt, 'EX', ARGV[3]) " +
+                    "return {userId, createdAt}",
+            List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SysUserMapper sysUserMapper;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${auth.token.signed.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * HS256 密钥，启用时必须配置且不少于 32 字节，所有节点一致
+     */
+    @Value("${auth.token.signed.secret:}")
+    private String secret;
+
+    @Value("${auth.token.signed.access-ttl-seconds:900}")
+    private long accessTtlSeconds;
+
+    @Value("${auth.token.signed.refresh-ttl-days:30}")
+    private long refreshTtlDays;
+
+    /**
+     * HMac 实例非线程安全，每个线程一个
+     */
+    private ThreadLocal<JWTSigner> signer;
+
+    /**
+     * 已吊销的会话ID -> 访问令牌最晚过期时间（毫秒）
+     */
+    private final Map<String, Long> revokedSessions = new ConcurrentHashMap<>();
+
+    /**
+     * userId -> 该时间（秒）及之前签发的令牌全部失效
+     */
+    private final Map<Long, Long> revokedUsers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        byte[] key = StrUtil.bytes(secret, StandardCharsets.UTF_8);
+        if (key.length < 32) {
+            throw new IllegalStateException("签名令牌已启用，但 auth.token.signed.secret 未配置或少于 32 字节");
+        }
+        signer = ThreadLocal.withInitial(() -> JWTSignerUtil.hs256(key));
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(RedisConstants.AUTH_REVOKE_CHANNEL));
+        syncRevocations();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 判断是否为签名令牌（JWT 含两个点，旧的 UUID 令牌不含点），用于切换期间两种令牌并存
+     */
+    public boolean isSignedToken(String token) {
+        return enabled && StrUtil.count(token, '.') == 2;
+    }
+
+    /**
+     * 登录时签发令牌对，创建新会话
+     */
+    public TokenPair issue(SysUser user) {
+        String sessionId = IdUtil.fastSimpleUUID();
+        String refreshSecret = IdUtil.fastSimpleUUID();
+        long now = System.currentTimeMillis() / 1000;
+        stringRedisTemplate.opsForValue().set(RedisConstants.USER_REFRESH_TOKEN + sessionId,
+                user.getId() + ":" + refreshSecret + ":" + now, refreshTtlDays, TimeUnit.DAYS);
+        return new TokenPair(user.getId(), sign(user.getId(), user.getUserRole(), sessionId, now),
+                sessionId + "." + refreshSecret, accessTtlSeconds);
+    }
+
+    /**
+     * 用刷新令牌换取新令牌对（同一会话，刷新令牌轮换）
+     *
+     * @return 刷新令牌无效、已轮换或已被吊销时返回 null
+     */
+    public TokenPair refresh(String refreshToken) {
+        String sessionId = StrUtil.subBefore(refreshToken, ".", false);
+        String oldSecret = StrUtil.subAfter(refreshToken, ".", false);
+        if (StrUtil.isBlank(sessionId) || StrUtil.isBlank(oldSecret) || revokedSessions.containsKey(sessionId)) {
+            return null;
+        }
+        String newSecret = IdUtil.fastSimpleUUID();
+        List<?> reply = stringRedisTemplate.execute(ROTATE_SCRIPT,
+                List.of(RedisConstants.USER_REFRESH_TOKEN + sessionId),
+                oldSecret, newSecret, String.valueOf(TimeUnit.DAYS.toSeconds(refreshTtlDays)));
+        if (reply == null || reply.size() < 2) {
+            return null;
+        }
+        Long userId = Long.parseLong(reply.get(0).toString());
+        long createdAt = Long.parseLong(reply.get(1).toString());
+        SysUser user = sysUserMapper.selectById(userId);
+        if (user == null || isRevokedForUser(userId, createdAt)) {
+            stringRedisTemplate.delete(RedisConstants.USER_REFRESH_TOKEN + sessionId);
+            return null;
+        }
+        long now = System.currentTimeMillis() / 1000;
+        return new TokenPair(userId, sign(userId, user.getUserRole(), sessionId, now),
+                sessionId + "." + newSecret, accessTtlSeconds);
+    }
+
+    /**
+     * 校验访问令牌（纯本地计算）
+     *
+     * @return 仅含 id 和角色的用户；令牌无效、过期或已吊销返回 null
+     */
+    public SysUser verify(String token) {
+        JWT jwt;
+        try {
+            jwt = JWT.of(token);
+            if (!jwt.verify(signer.get())) {
+                return null;
+            }
+        } catch (Exception e) {
+            log.debug("签名令牌格式无效: {}", e.getMessage());
+            return null;
+        }
+        Long userId = Convert.toLong(jwt.getPayload(CLAIM_USER_ID));
+        Long issuedAt = Convert.toLong(jwt.getPayload(RegisteredPayload.ISSUED_AT));
+        Long expiresAt = Convert.toLong(jwt.getPayload(RegisteredPayload.EXPIRES_AT));
+        String sessionId = Convert.toStr(jwt.getPayload(CLAIM_SESSION));
+        if (userId == null || issuedAt == null || expiresAt == null || sessionId == null) {
+            return null;
+        }
+        if (expiresAt * 1000 <= System.currentTimeMillis()
+                || revokedSessions.containsKey(sessionId)
+                || isRevokedForUser(userId, issuedAt)) {
+            return null;
+        }
+        SysUser user = new SysUser();
+        user.setId(userId);
+        user.setUserRole(Convert.toStr(jwt.getPayload(CLAIM_ROLE)));
+        return user;
+    }
+
+    /**
+     * 吊销访问令牌所属会话（登出），同时删除刷新令牌
+     */
+    public void revokeSession(String token) {
+        String sessionId;
+        try {
+            sessionId = Convert.toStr(JWT.of(token).getPayload(CLAIM_SESSION));
+        } catch (Exception e) {
+            return;
+        }
+        if (sessionId == null) {
+            return;
+        }
+        stringRedisTemplate.delete(RedisConstants.USER_REFRESH_TOKEN + sessionId);
+        // 会话内最后一个访问令牌最晚在此时过期，之后吊销记录可清理
+        long expireAtMs = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(accessTtlSeconds);
+        stringRedisTemplate.opsForZSet().add(RedisConstants.AUTH_REVOKED_SESSIONS, sessionId, expireAtMs);
+        revokedSessions.put(sessionId, expireAtMs);
+        publish(MSG_SESSION + sessionId + ":" + expireAtMs);
+    }
+
+    /**
+     * 吊销用户此前签发的全部令牌（改密、重置密码），同一秒内签发的令牌也会失效
+     */
+    public void revokeUser(Long userId) {
+        long now = System.currentTimeMillis() / 1000;
+        stringRedisTemplate.opsForHash().put(RedisConstants.AUTH_REVOKED_USERS, userId.toString(), String.valueOf(now));
+        revokedUsers.merge(userId, now, Math::max);
+        publish(MSG_USER + userId + ":" + now);
+    }
+
+    /**
+     * 全量同步吊销列表，兜底丢失的广播，并清理已无意义的记录
+     */
+    @Scheduled(fixedDelayString = "${auth.token.signed.revocation-sync-ms:60000}")
+    public void syncRevocations() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long nowMs = System.currentTimeMillis();
+            stringRedisTemplate.opsForZSet().removeRangeByScore(RedisConstants.AUTH_REVOKED_SESSIONS, 0, nowMs);
+            Set<ZSetOperations.TypedTuple<String>> sessions = stringRedisTemplate.opsForZSet()
+                    .rangeWithScores(RedisConstants.AUTH_REVOKED_SESSIONS, 0, -1);
+            Map<String, Long> latestSessions = new HashMap<>();
+            if (sessions != null) {
+                for (ZSetOperations.TypedTuple<String> tuple : sessions) {
+                    if (tuple.getValue() != null && tuple.getScore() != null) {
+                        latestSessions.put(tuple.getValue(), tuple.getScore().longValue());
+                    }
+                }
+            }
+            revokedSessions.putAll(latestSessions);
+            revokedSessions.entrySet().removeIf(entry -> entry.getValue() <= nowMs);
+
+            // 刷新令牌有效期过后，吊销时间之前签发的令牌都已失效，记录可删除
+            long staleBefore = nowMs / 1000 - TimeUnit.DAYS.toSeconds(refreshTtlDays);
+            Map<Object, Object> users = stringRedisTemplate.opsForHash().entries(RedisConstants.AUTH_REVOKED_USERS);
+            for (Map.Entry<Object, Object> entry : users.entrySet()) {
+                Long userId = Convert.toLong(entry.getKey());
+                Long revokedBefore = Convert.toLong(entry.getValue());
+                if (userId == null || revokedBefore == null) {
+                    continue;
+                }
+                if (revokedBefore < staleBefore) {
+                    stringRedisTemplate.opsForHash().delete(RedisConstants.AUTH_REVOKED_USERS, entry.getKey());
+                    revokedUsers.remove(userId);
+                } else {
+                    revokedUsers.merge(userId, revokedBefore, Math::max);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("同步令牌吊销列表失败", e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            if (body.startsWith(MSG_SESSION)) {
+                String payload = body.substring(MSG_SESSION.length());
+                revokedSessions.put(StrUtil.subBefore(payload, ":", true),
+                        Long.parseLong(StrUtil.subAfter(payload, ":", true)));
+            } else if (body.startsWith(MSG_USER)) {
+                String payload = body.substring(MSG_USER.length());
+                revokedUsers.merge(Long.parseLong(StrUtil.subBefore(payload, ":", true)),
+                        Long.parseLong(StrUtil.subAfter(payload, ":", true)), Math::max);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("无效的令牌吊销消息: {}", body);
+        }
+    }
+
+    private String sign(Long userId, String role, String sessionId, long issuedAt) {
+        return JWT.create()
+                .setPayload(CLAIM_USER_ID, userId)
+                .setPayload(CLAIM_ROLE, role)
+                .setPayload(CLAIM_SESSION, sessionId)
+                .setPayload(RegisteredPayload.ISSUED_AT, issuedAt)
+                .setPayload(RegisteredPayload.EXPIRES_AT, issuedAt + accessTtlSeconds)
+                .sign(signer.get());
+    }
+
+    private boolean isRevokedForUser(Long userId, long issuedAt) {
+        Long revokedBefore = revokedUsers.get(userId);
+        return revokedBefore != null && issuedAt <= revokedBefore;
+    }
+
+    private void publish(String message) {
+        try {
+            stringRedisTemplate.convertAndSend(RedisConstants.AUTH_REVOKE_CHANNEL, message);
+        } catch (Exception e) {
+            log.warn("广播令牌吊销失败，其他节点将在下次全量同步后生效: {}", message, e);
+        }
+    }
+
+    /**
+     * 令牌对
+     *
+     * @param userId           用户ID
+     * @param accessToken      访问令牌
+     * @param refreshToken     刷新令牌
+     * @param expiresInSeconds 访问令牌有效期（秒）
+     */
+    public record TokenPair(Long userId, String accessToken, String refreshToken, long expiresInSeconds) {
+    }
+}
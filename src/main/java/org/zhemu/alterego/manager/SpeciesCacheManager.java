@@ -0,0 +1,126 @@
+package org.zhemu.alterego.manager;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.zhemu.alterego.constant.RedisConstants;
+import org.zhemu.alterego.mapper.SpeciesMapper;
+import org.zhemu.alterego.model.entity.Species;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 物种进程内快照
+ * 物种表很小且几乎不变，启动时全量加载为不可变快照，之后整体替换（写时复制）
+ * 按ID查询、随机抽取均为 O(1)，读路径不访问 MySQL
+ * 刷新时机：定时刷新 + 物种变更后通过 Redis 广播通知所有节点
+ *
+ * @author lushihao
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SpeciesCacheManager implements MessageListener {
+
+    private final SpeciesMapper speciesMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private volatile Snapshot snapshot = new Snapshot(List.of(), Map.of());
+
+    @PostConstruct
+    public void init() {
+        refresh();
+        redisMessageListenerContainer.addMessageListener(this,
+                new ChannelTopic(RedisConstants.SPECIES_CHANGED_CHANNEL));
+    }
+
+    /**
+     * 从 MySQL 重新加载快照，加载失败时保留旧快照
+     */
+    @Scheduled(fixedDelayString = "${species.cache.refresh-interval-ms:300000}",
+            initialDelayString = "${species.cache.refresh-interval-ms:300000}")
+    public void refresh() {
+        try {
+            // 逻辑删除由 MyBatis-Plus 自动过滤
+            List<Species> speciesList = List.copyOf(speciesMapper.selectList(null));
+            Map<Long, Species> speciesMap = new HashMap<>(speciesList.size() * 2);
+            speciesList.forEach(species -> speciesMap.put(species.getId(), species));
+            snapshot = new Snapshot(speciesList, Map.copyOf(speciesMap));
+            log.debug("物种快照已刷新，数量: {}", speciesList.size());
+        } catch (Exception e) {
+            log.error("刷新物种快照失败，继续使用旧快照", e);
+        }
+    }
+
+    /**
+     * 通知所有节点（包括本节点）刷新快照，物种增删改后调用
+     */
+    public void notifyChanged() {
+        refresh();
+        try {
+            stringRedisTemplate.convertAndSend(RedisConstants.SPECIES_CHANGED_CHANNEL, "refresh");
+        } catch (Exception e) {
+            log.warn("广播物种变更失败，其他节点将在下次定时刷新时生效", e);
+        }
+    }
+
+    /**
+     * 按ID获取物种（返回的对象为快照共享实例，调用方只读）
+     */
+    public Species getById(Long id) {
+        return id == null ? null : snapshot.byId().get(id);
+    }
+
+    /**
+     * 批量按ID获取物种
+     *
+     * @return speciesId -> Species（仅包含存在的物种）
+     */
+    public Map<Long, Species> mapByIds(Collection<Long> ids) {
+        Map<Long, Species> all = snapshot.byId();
+        Map<Long, Species> result = new HashMap<>();
+        for (Long id : ids) {
+            Species species = id == null ? null : all.get(id);
+            if (species != null) {
+                result.put(id, species);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 随机抽取一个物种
+     *
+     * @return 随机物种，快照为空时返回 null
+     */
+    public Species random() {
+        List<Species> speciesList = snapshot.list();
+        if (speciesList.isEmpty()) {
+            return null;
+        }
+        return speciesList.get(ThreadLocalRandom.current().nextInt(speciesList.size()));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        refresh();
+    }
+
+    /**
+     * 不可变快照：列表用于随机抽取，Map 用于按ID查询
+     */
+    private record Snapshot(List<Species> list, Map<Long, Species> byId) {
+    }
+}
@@ -0,0 +1,93 @@
+package org.zhemu.alterego.manager;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.zhemu.alterego.mapper.AgentMapper;
+import org.zhemu.alterego.model.entity.Agent;
+
+import java.time.Duration;
+
+/**
+ * userId -> agentId 映射缓存
+ * 用户与 Agent 一一对应（uk_user_id）且创建后不变，详情/列表接口每次都要用它查询点赞、投票状态：
+ * <ul>
+ *     <li>请求级：解析结果记在 request attribute 中，同一请求内多次调用（如列表逐行组装）只解析一次</li>
+ *     <li>进程级：Caffeine 缓存已存在的映射，命中时不查库</li>
+ * </ul>
+ * 还没有 Agent 的用户不做进程级缓存（创建后需立即可见），仅在请求内记住“无 Agent”
+ *
+ * @author lushihao
+ */
+@Component
+@RequiredArgsConstructor
+public class UserAgentCacheManager {
+
+    private static final String REQUEST_ATTR_PREFIX = "agentIdOfUser:";
+
+    /**
+     * 请求内“无 Agent”的占位值
+     */
+    private static final Long NO_AGENT = -1L;
+
+    private final AgentMapper agentMapper;
+
+    @Value("${agent.user-mapping.cache-max-size:100000}")
+    private long maxSize;
+
+    @Value("${agent.user-mapping.cache-expire-minutes:60}")
+    private long expireMinutes;
+
+    private Cache<Long, Long> agentIdCache;
+
+    @PostConstruct
+    public void init() {
+        agentIdCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(Duration.ofMinutes(expireMinutes))
+                .build();
+    }
+
+    /**
+     * 获取用户的 Agent ID
+     *
+     * @param userId 用户ID
+     * @return Agent ID；用户为空或还没有 Agent 时返回 null
+     */
+    public Long getAgentId(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        // 非 Web 线程（MQ 消费、定时任务）没有请求上下文，只走进程级缓存
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        String attrName = REQUEST_ATTR_PREFIX + userId;
+        if (attributes != null) {
+            Object resolved = attributes.getAttribute(attrName, RequestAttributes.SCOPE_REQUEST);
+            if (resolved != null) {
+                return NO_AGENT.equals(resolved) ? null : (Long) resolved;
+            }
+        }
+
+        Long agentId = agentIdCache.getIfPresent(userId);
+        if (agentId == null) {
+            Agent agent = agentMapper.selectOne(Wrappers.<Agent>lambdaQuery()
+                    .select(Agent::getId)
+                    .eq(Agent::getUserId, userId));
+            if (agent != null) {
+                agentId = agent.getId();
+                agentIdCache.put(userId, agentId);
+            }
+        }
+
+        if (attributes != null) {
+            attributes.setAttribute(attrName, agentId == null ? NO_AGENT : agentId, RequestAttributes.SCOPE_REQUEST);
+        }
+        return agentId;
+    }
+}
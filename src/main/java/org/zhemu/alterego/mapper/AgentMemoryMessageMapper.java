@@ -0,0 +1,38 @@
+package org.zhemu.alterego.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.zhemu.alterego.model.entity.AgentMemoryMessage;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agent 记忆消息 Mapper
+ *
+ * @author lushihao
+ */
+public interface AgentMemoryMessageMapper extends BaseMapper<AgentMemoryMessage> {
+
+    /**
+     * 会话当前最大序号（走唯一索引，O(1)），无记录返回 null
+     */
+    Long selectMaxSeq(@Param("sessionId") String sessionId);
+
+    /**
+     * 批量追加消息
+     */
+    int batchInsert(@Param("list") List<AgentMemoryMessage> list);
+
+    /**
+     * 消息数超过上限的会话
+     *
+     * @return session_id, max_seq
+     */
+    List<Map<String, Object>> selectOversizedSessions(@Param("limit") int limit);
+
+    /**
+     * 删除会话中序号不大于 seq 的旧消息
+     */
+    int deleteUpToSeq(@Param("sessionId") String sessionId, @Param("seq") long seq);
+}
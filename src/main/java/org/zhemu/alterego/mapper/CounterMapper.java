@@ -0,0 +1,41 @@
+package org.zhemu.alterego.mapper;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 写回式计数器刷盘 Mapper
+ *
+ * @author lushihao
+ */
+public interface CounterMapper {
+
+    /**
+     * 批量累加同一张表同一列的计数（一条 UPDATE ... CASE id），结果不小于 0
+     *
+     * @param tableName  表名（来自 CounterFieldEnum 白名单）
+     * @param columnName 列名（来自 CounterFieldEnum 白名单）
+     * @param deltas     id -> 增量
+     * @return 影响行数
+     */
+    int batchIncrement(@Param("tableName") String tableName,
+                       @Param("columnName") String columnName,
+                       @Param("deltas") Map<Long, Long> deltas);
+
+    /**
+     * 记录刷盘批次（与计数更新同一事务）
+     */
+    int insertFlushLog(@Param("batchId") String batchId);
+
+    /**
+     * 批次是否已刷盘
+     */
+    int countFlushLog(@Param("batchId") String batchId);
+
+    /**
+     * 清理过期的刷盘日志
+     */
+    int deleteFlushLogBefore(@Param("time") LocalDateTime time);
+}
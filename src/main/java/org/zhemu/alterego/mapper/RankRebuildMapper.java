@@ -0,0 +1,38 @@
+package org.zhemu.alterego.mapper;
+
+import org.apache.ibatis.annotations.Param;
+import org.zhemu.alterego.model.dto.agent.AgentLikeTotal;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 获赞排行榜重建 / 校对 Mapper
+ *
+ * @author lushihao
+ */
+public interface RankRebuildMapper {
+
+    /**
+     * 按 Agent ID 游标分批统计累计获赞数（WHERE id > lastId ORDER BY id LIMIT n，每批只占用 n 行内存）
+     *
+     * @param lastId 上一批最后一个 AgentID，首批传 0
+     * @param limit  每批 Agent 数
+     * @return 按 AgentID 升序
+     */
+    List<AgentLikeTotal> selectLikeTotalsAfter(@Param("lastId") long lastId, @Param("limit") int limit);
+
+    /**
+     * 统计指定 Agent 的累计获赞数
+     */
+    List<AgentLikeTotal> selectLikeTotalsByIds(@Param("agentIds") Collection<Long> agentIds);
+
+    /**
+     * 批量覆盖 agent.like_count（一条 UPDATE ... CASE id）
+     *
+     * @param likeCounts agentId -> 累计获赞数
+     * @return 影响行数
+     */
+    int batchUpdateLikeCount(@Param("likeCounts") Map<Long, Long> likeCounts);
+}
@@ -0,0 +1,27 @@
+package org.zhemu.alterego.model.dto.agent;
+
+import lombok.Data;
+
+/**
+ * Agent 累计获赞数：按点赞记录实时统计的值与 agent.like_count 中保存的值
+ *
+ * @author lushihao
+ */
+@Data
+public class AgentLikeTotal {
+
+    /**
+     * AgentID
+     */
+    private Long agentId;
+
+    /**
+     * 名下帖子和评论收到的赞（post_like / comment_like 中 like_type = 1 的记录数）
+     */
+    private Long total;
+
+    /**
+     * agent.like_count 当前值
+     */
+    private Long storedLikeCount;
+}
@@ -0,0 +1,20 @@
+package org.zhemu.alterego.model.dto.agent;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * AI 记忆摘要结果
+ * @author lushihao
+ */
+@Data
+public class AiMemorySummaryResult implements Serializable {
+
+    /**
+     * 摘要内容
+     */
+    public String summary;
+
+    private static final long serialVersionUID = 1L;
+}
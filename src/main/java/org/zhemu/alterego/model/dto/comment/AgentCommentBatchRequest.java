@@ -0,0 +1,38 @@
+package org.zhemu.alterego.model.dto.comment;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 批量 Agent AI 评论请求（多个 Agent 对同一帖子发表一级评论）
+ * @author lushihao
+ */
+@Data
+@Schema(description = "批量 Agent AI 评论请求")
+public class AgentCommentBatchRequest implements Serializable {
+
+    /**
+     * 帖子ID
+     */
+    @Schema(description = "帖子ID", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotNull(message = "帖子ID不能为空")
+    private Long postId;
+
+    /**
+     * 参与评论的 Agent ID 列表
+     */
+    @Schema(description = "Agent ID 列表（最多 100 个）", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotEmpty(message = "Agent ID 列表不能为空")
+    @Size(max = 100, message = "单次最多 100 个 Agent")
+    private List<Long> agentIds;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,31 @@
+package org.zhemu.alterego.model.dto.job;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.io.Serial;
+import java.io.Serializable;
+import lombok.Data;
+
+/**
+ * AI 异步生成任务消息（RabbitMQ）
+ *
+ * @author lushihao
+ */
+@Data
+@Schema(description = "AI异步生成任务消息")
+public class AiJobMessage implements Serializable {
+
+    @Schema(description = "任务ID")
+    private String jobId;
+
+    @Schema(description = "任务类型：post/comment/pk_create/pk_vote")
+    private String jobType;
+
+    @Schema(description = "提交任务的用户ID")
+    private Long userId;
+
+    @Schema(description = "原始请求参数（JSON）")
+    private String payload;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
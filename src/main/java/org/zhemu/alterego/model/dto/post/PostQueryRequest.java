@@ -1,11 +1,15 @@
 package org.zhemu.alterego.model.dto.post;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.AssertTrue;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import org.zhemu.alterego.common.PageRequest;
 
 import java.io.Serial;
 import java.io.Serializable;
+import java.time.LocalDateTime;
 
 /**
  * 帖子查询请求
@@ -33,4 +37,28 @@ public class PostQueryRequest extends PageRequest implements Serializable {
      * 指定 Agent ID (查看某个 Agent 的帖子)
      */
     private Long agentId;
+
+    /**
+     * 是否查询总数（仅 OFFSET 分页生效，关闭后省去 COUNT(*)）
+     */
+    @Schema(description = "是否查询总条数（OFFSET 分页使用，默认 true）")
+    private boolean searchCount = true;
+
+    /**
+     * 游标时间（游标分页使用，首屏不传）
+     */
+    @Schema(description = "游标时间（游标分页使用，取上一页返回的 nextCursorTime）")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime cursorTime;
+
+    /**
+     * 游标ID（游标分页使用，与 cursorTime 配合）
+     */
+    @Schema(description = "游标ID（游标分页使用，与 cursorTime 配合）")
+    private Long cursorId;
+
+    @AssertTrue(message = "cursorTime 与 cursorId 必须同时传或同时为空")
+    public boolean isCursorPairValid() {
+        return (cursorTime == null && cursorId == null) || (cursorTime != null && cursorId != null);
+    }
 }
@@ -0,0 +1,25 @@
+package org.zhemu.alterego.model.dto.user;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 刷新令牌请求（签名令牌模式）
+ *
+ * @author lushihao
+ */
+@Data
+public class SysUserTokenRefreshRequest implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 刷新令牌
+     */
+    @NotBlank(message = "刷新令牌不能为空")
+    private String refreshToken;
+}
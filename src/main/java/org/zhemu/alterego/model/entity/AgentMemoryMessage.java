@@ -0,0 +1,56 @@
+package org.zhemu.alterego.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Agent 记忆消息表（按会话追加写入，每条对话消息一行）
+ * @author lushihao
+ * @TableName agent_memory_message
+ */
+@TableName(value = "agent_memory_message")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AgentMemoryMessage implements Serializable {
+    /**
+     * 主键ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 会话ID（如 agent_post_{agentId}）
+     */
+    private String sessionId;
+
+    /**
+     * 会话内序号，单调递增，重写后继续递增
+     */
+    private Long seq;
+
+    /**
+     * 消息 JSON
+     */
+    private String msgData;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    @Serial
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
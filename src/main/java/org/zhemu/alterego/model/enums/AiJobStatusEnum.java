@@ -0,0 +1,48 @@
+package org.zhemu.alterego.model.enums;
+
+import lombok.Getter;
+
+/**
+ * AI 异步生成任务状态枚举
+ *
+ * @author lushihao
+ */
+@Getter
+public enum AiJobStatusEnum {
+
+    PENDING("pending", "排队中"),
+    RUNNING("running", "生成中"),
+    SUCCEED("succeed", "成功"),
+    FAILED("failed", "失败");
+
+    private final String value;
+
+    private final String text;
+
+    AiJobStatusEnum(String value, String text) {
+        this.value = value;
+        this.text = text;
+    }
+
+    /**
+     * 是否为终态（成功或失败）
+     */
+    public boolean isFinished() {
+        return this == SUCCEED || this == FAILED;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     */
+    public static AiJobStatusEnum getEnumByValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (AiJobStatusEnum anEnum : AiJobStatusEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
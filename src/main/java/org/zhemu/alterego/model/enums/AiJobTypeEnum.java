@@ -0,0 +1,50 @@
+package org.zhemu.alterego.model.enums;
+
+import lombok.Getter;
+import org.zhemu.alterego.model.vo.CommentVO;
+import org.zhemu.alterego.model.vo.PkPostVO;
+import org.zhemu.alterego.model.vo.PostVO;
+
+/**
+ * AI 异步生成任务类型枚举
+ *
+ * @author lushihao
+ */
+@Getter
+public enum AiJobTypeEnum {
+
+    POST("post", "Agent 发帖", PostVO.class),
+    COMMENT("comment", "Agent 评论", CommentVO.class),
+    PK_CREATE("pk_create", "Agent 发起 PK", PkPostVO.class),
+    PK_VOTE("pk_vote", "Agent PK 投票", PkPostVO.class);
+
+    private final String value;
+
+    private final String text;
+
+    /**
+     * 任务结果类型（从 Redis 反序列化时使用）
+     */
+    private final Class<?> resultClass;
+
+    AiJobTypeEnum(String value, String text, Class<?> resultClass) {
+        this.value = value;
+        this.text = text;
+        this.resultClass = resultClass;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     */
+    public static AiJobTypeEnum getEnumByValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (AiJobTypeEnum anEnum : AiJobTypeEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
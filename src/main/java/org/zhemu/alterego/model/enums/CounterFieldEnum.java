@@ -0,0 +1,52 @@
+package org.zhemu.alterego.model.enums;
+
+import lombok.Getter;
+
+/**
+ * 写回式计数字段枚举
+ * 表名、列名只允许来自此白名单，刷盘 SQL 中以 ${} 拼接
+ *
+ * @author lushihao
+ */
+@Getter
+public enum CounterFieldEnum {
+
+    POST_LIKE("pl", "post", "like_count"),
+    POST_DISLIKE("pd", "post", "dislike_count"),
+    POST_COMMENT("pc", "post", "comment_count"),
+    COMMENT_LIKE("cl", "comment", "like_count"),
+    COMMENT_DISLIKE("cd", "comment", "dislike_count"),
+    COMMENT_REPLY("cr", "comment", "reply_count"),
+    AGENT_COMMENT("ac", "agent", "comment_count"),
+    PK_OPTION_VOTE("pv", "pk_vote_option", "vote_count");
+
+    /**
+     * Redis Hash field 前缀
+     */
+    private final String code;
+
+    private final String tableName;
+
+    private final String columnName;
+
+    CounterFieldEnum(String code, String tableName, String columnName) {
+        this.code = code;
+        this.tableName = tableName;
+        this.columnName = columnName;
+    }
+
+    /**
+     * 根据 code 获取枚举
+     */
+    public static CounterFieldEnum getEnumByCode(String code) {
+        if (code == null) {
+            return null;
+        }
+        for (CounterFieldEnum anEnum : CounterFieldEnum.values()) {
+            if (anEnum.code.equals(code)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
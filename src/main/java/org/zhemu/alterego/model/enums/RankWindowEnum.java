@@ -0,0 +1,41 @@
+package org.zhemu.alterego.model.enums;
+
+import lombok.Getter;
+
+/**
+ * 获赞排行榜时间窗口枚举
+ *
+ * @author lushihao
+ */
+@Getter
+public enum RankWindowEnum {
+
+    TOTAL("total", "总榜"),
+    DAILY("daily", "日榜（最近 24 小时）"),
+    WEEKLY("weekly", "周榜（最近 7 天）"),
+    HOT("hot", "热度榜（按时间指数衰减）");
+
+    private final String value;
+
+    private final String text;
+
+    RankWindowEnum(String value, String text) {
+        this.value = value;
+        this.text = text;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     */
+    public static RankWindowEnum getEnumByValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (RankWindowEnum anEnum : RankWindowEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,41 @@
+package org.zhemu.alterego.model.enums;
+
+import lombok.Getter;
+
+/**
+ * 限流算法枚举
+ *
+ * @author lushihao
+ */
+@Getter
+public enum RateLimitAlgorithmEnum {
+
+    FIXED_WINDOW("fixed_window", "固定窗口（窗口交界处最多放行 2 倍请求）"),
+    SLIDING_LOG("sliding_log", "滑动窗口日志（精确，每个 key 占用 maxCount 个 ZSET 成员）"),
+    SLIDING_COUNTER("sliding_counter", "滑动窗口计数（按上一窗口计数加权估算，固定内存）"),
+    TOKEN_BUCKET("token_bucket", "令牌桶（容量 maxCount，匀速补充，允许满桶突发）");
+
+    private final String value;
+
+    private final String text;
+
+    RateLimitAlgorithmEnum(String value, String text) {
+        this.value = value;
+        this.text = text;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     */
+    public static RateLimitAlgorithmEnum getEnumByValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (RateLimitAlgorithmEnum anEnum : RateLimitAlgorithmEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,36 @@
+package org.zhemu.alterego.model.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 当前 Agent 在获赞榜中的位置
+ *
+ * @author lushihao
+ */
+@Data
+@Schema(description = "我的获赞榜位置")
+public class AgentRankPositionVO implements Serializable {
+
+    @Schema(description = "时间窗口：total/daily/weekly/hot")
+    private String window;
+
+    @Schema(description = "Agent ID")
+    private Long agentId;
+
+    @Schema(description = "排行名次，未上榜为 null")
+    private Integer rank;
+
+    @Schema(description = "榜单分数，未上榜为 null")
+    private Double score;
+
+    @Schema(description = "前后各 k 名（含自己，按名次排序），未上榜为空")
+    private List<AgentRankVO> neighbours;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
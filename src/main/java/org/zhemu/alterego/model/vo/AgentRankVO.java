@@ -27,9 +27,12 @@ public class AgentRankVO implements Serializable {
     @Schema(description = "物种信息")
     private SpeciesVO species;
 
-    @Schema(description = "获赞数")
+    @Schema(description = "获赞数（窗口内净获赞数，热度榜为衰减后热度取整）")
     private Integer likeCount;
 
+    @Schema(description = "榜单分数（热度榜为衰减到当前时刻的热度，其余同获赞数）")
+    private Double score;
+
     @Serial
     private static final long serialVersionUID = 1L;
 }
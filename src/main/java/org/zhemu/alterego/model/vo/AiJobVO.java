@@ -0,0 +1,69 @@
+package org.zhemu.alterego.model.vo;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import lombok.Data;
+import org.zhemu.alterego.model.enums.AiJobTypeEnum;
+
+/**
+ * AI 异步生成任务状态
+ *
+ * @author lushihao
+ */
+@Data
+@Schema(description = "AI异步生成任务状态")
+public class AiJobVO implements Serializable {
+
+    @Schema(description = "任务ID")
+    private String jobId;
+
+    @Schema(description = "任务类型：post/comment/pk_create/pk_vote")
+    private String jobType;
+
+    @Schema(description = "任务状态：pending/running/succeed/failed")
+    private String status;
+
+    /**
+     * 提交任务的用户ID（仅用于鉴权，不返回前端）
+     */
+    @JsonIgnore
+    private Long userId;
+
+    @Schema(description = "生成结果（PostVO/CommentVO/PkPostVO），成功时返回")
+    private Object result;
+
+    @Schema(description = "失败原因")
+    private String errorMessage;
+
+    @Schema(description = "创建时间")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createTime;
+
+    @Schema(description = "更新时间")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime updateTime;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 从 JSON 还原任务状态，result 按任务类型还原为具体 VO
+     */
+    public static AiJobVO fromJson(String json) {
+        if (json == null) {
+            return null;
+        }
+        AiJobVO jobVO = JSONUtil.toBean(json, AiJobVO.class);
+        AiJobTypeEnum jobType = AiJobTypeEnum.getEnumByValue(jobVO.getJobType());
+        if (jobType != null && jobVO.getResult() instanceof JSONObject result) {
+            jobVO.setResult(result.toBean(jobType.getResultClass()));
+        }
+        return jobVO;
+    }
+}
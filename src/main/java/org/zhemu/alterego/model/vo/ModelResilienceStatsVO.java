@@ -0,0 +1,62 @@
+package org.zhemu.alterego.model.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 大模型调用保护指标（按调用类型）
+ *
+ * @author lushihao
+ */
+@Data
+@Schema(description = "大模型调用保护指标")
+public class ModelResilienceStatsVO implements Serializable {
+
+    @Schema(description = "调用类型：comment/post/pk/pk_vote/memory_summary")
+    private String type;
+
+    @Schema(description = "熔断状态：CLOSED/OPEN/HALF_OPEN")
+    private String circuitState;
+
+    @Schema(description = "当前进行中的调用数")
+    private Integer inFlight;
+
+    @Schema(description = "当前自适应并发上限")
+    private Integer concurrencyLimit;
+
+    @Schema(description = "舱壁并发上限")
+    private Integer bulkheadMaxConcurrent;
+
+    @Schema(description = "成功次数")
+    private Long successCount;
+
+    @Schema(description = "失败次数（不含超时）")
+    private Long failureCount;
+
+    @Schema(description = "超时次数")
+    private Long timeoutCount;
+
+    @Schema(description = "被舱壁拒绝次数")
+    private Long rejectedByBulkhead;
+
+    @Schema(description = "被自适应并发上限拒绝次数")
+    private Long rejectedByLimit;
+
+    @Schema(description = "熔断打开期间被直接拒绝次数")
+    private Long shortCircuited;
+
+    @Schema(description = "发起对冲请求次数")
+    private Long hedgeCount;
+
+    @Schema(description = "对冲请求先于原请求完成的次数")
+    private Long hedgeWinCount;
+
+    @Schema(description = "成功调用平均耗时（毫秒）")
+    private Long avgLatencyMs;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
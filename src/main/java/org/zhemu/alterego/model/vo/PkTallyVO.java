@@ -0,0 +1,33 @@
+package org.zhemu.alterego.model.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * PK 实时票数（SSE 推送）
+ *
+ * @author lushihao
+ */
+@Data
+@Schema(description = "PK 实时票数")
+public class PkTallyVO implements Serializable {
+
+    @Schema(description = "PK 帖子ID")
+    private Long postId;
+
+    @Schema(description = "各选项当前票数：optionId -> 票数")
+    private Map<Long, Long> voteCounts;
+
+    @Schema(description = "相对上次推送的增量：optionId -> 增量，仅供展示变化，以 voteCounts 为准；首次推送为空")
+    private Map<Long, Long> deltas;
+
+    @Schema(description = "总票数")
+    private Long totalVotes;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,37 @@
+package org.zhemu.alterego.model.vo;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * 帖子游标分页响应（带 hasMore，不含总数）
+ * @author lushihao
+ */
+@Data
+@Schema(description = "帖子游标分页响应")
+public class PostPageVO implements Serializable {
+
+    @Schema(description = "帖子列表")
+    private List<PostVO> records;
+
+    @Schema(description = "是否还有更多")
+    private boolean hasMore;
+
+    @Schema(description = "每页数量")
+    private long pageSize;
+
+    @Schema(description = "下一页游标时间（无更多时为 null）")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime nextCursorTime;
+
+    @Schema(description = "下一页游标ID（无更多时为 null）")
+    private Long nextCursorId;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,35 @@
+package org.zhemu.alterego.model.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 获赞总榜重建 / 校对结果
+ *
+ * @author lushihao
+ */
+@Data
+@Schema(description = "获赞总榜重建/校对结果")
+public class RankRebuildResultVO implements Serializable {
+
+    @Schema(description = "模式：rebuild（全量重建）/reconcile（增量校对）")
+    private String mode;
+
+    @Schema(description = "扫描的 Agent 数")
+    private Long scannedAgents;
+
+    @Schema(description = "写入总榜的成员数（全量重建）或修正的漂移成员数（增量校对）")
+    private Long rankUpdated;
+
+    @Schema(description = "修正的 agent.like_count 行数")
+    private Long likeCountFixed;
+
+    @Schema(description = "耗时（毫秒）")
+    private Long elapsedMs;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -49,6 +49,16 @@ public class SysUserVO implements Serializable {
      */
     private String token;
 
+    /**
+     * 刷新令牌（仅签名令牌模式返回）
+     */
+    private String refreshToken;
+
+    /**
+     * 访问令牌有效期（秒，仅签名令牌模式返回）
+     */
+    private Long expiresIn;
+
     @Serial
     private static final long serialVersionUID = 1L;
 
@@ -10,9 +10,11 @@ import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Component;
 import org.zhemu.alterego.config.RabbitMqConfig;
 import org.zhemu.alterego.model.dto.agent.AgentAvatarTaskMessage;
+import org.zhemu.alterego.model.dto.job.AiJobMessage;
 import org.zhemu.alterego.model.entity.Agent;
 import org.zhemu.alterego.service.AiAvatarService;
 import org.zhemu.alterego.service.AgentService;
+import org.zhemu.alterego.service.AiJobService;
 
 /**
  * 消息队列消费者
@@ -29,6 +31,7 @@ public class MessageConsumer {
     private final JavaMailSender javaMailSender;
     private final AiAvatarService aiAvatarService;
     private final AgentService agentService;
+    private final AiJobService aiJobService;
 
     @Value("${spring.mail.username}")
     private String SENDER_EMAIL;
@@ -94,4 +97,20 @@ public class MessageConsumer {
         }
     }
 
+    /**
+     * AI 文本生成任务：监听并发数即工作线程池上限，AI 高峰时消息在队列中排队，不占用请求线程
+     */
+    @RabbitListener(queues = RabbitMqConfig.AI_GENERATE_QUEUE, concurrency = "${ai.job.concurrency:4}")
+    public void receiveAiJob(String message) {
+        try {
+            AiJobMessage job = JSONUtil.toBean(message, AiJobMessage.class);
+            if (job == null || job.getJobId() == null) {
+                return;
+            }
+            aiJobService.executeJob(job);
+        } catch (Exception e) {
+            log.error("Failed to process ai job", e);
+        }
+    }
+
 }
@@ -6,6 +6,7 @@ import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Component;
 import org.zhemu.alterego.config.RabbitMqConfig;
 import org.zhemu.alterego.model.dto.agent.AgentAvatarTaskMessage;
+import org.zhemu.alterego.model.dto.job.AiJobMessage;
 import cn.hutool.json.JSONUtil;
 
 /**
@@ -47,4 +48,17 @@ public class MessageProducer {
         String payload = JSONUtil.toJsonStr(message);
         rabbitTemplate.convertAndSend(RabbitMqConfig.AGENT_AVATAR_QUEUE, payload);
     }
+
+    /**
+     * 发送 AI 文本生成任务
+     *
+     * @param message AI 生成任务消息
+     */
+    public void sendAiJob(AiJobMessage message) {
+        if (message == null) {
+            return;
+        }
+        String payload = JSONUtil.toJsonStr(message);
+        rabbitTemplate.convertAndSend(RabbitMqConfig.AI_GENERATE_QUEUE, payload);
+    }
 }
@@ -0,0 +1,35 @@
+package org.zhemu.alterego.scheduled;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.zhemu.alterego.service.AiJobService;
+
+/**
+ * AI 异步任务定时任务
+ *
+ * @author lushihao
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AiJobScheduledTask {
+
+    private final AiJobService aiJobService;
+
+    /**
+     * 每分钟执行一次，将执行超时的任务置为失败
+     */
+    @Scheduled(fixedDelayString = "${ai.job.reap-interval-ms:60000}")
+    public void failStaleJobs() {
+        try {
+            int count = aiJobService.failStaleJobs();
+            if (count > 0) {
+                log.info("AI 任务超时处理完成，置为失败数量: {}", count);
+            }
+        } catch (Exception e) {
+            log.error("AI 任务超时处理失败", e);
+        }
+    }
+}
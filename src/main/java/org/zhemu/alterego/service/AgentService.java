@@ -3,6 +3,8 @@ package org.zhemu.alterego.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import org.zhemu.alterego.model.dto.agent.AgentCreateRequest;
 import org.zhemu.alterego.model.entity.Agent;
+import org.zhemu.alterego.model.enums.RankWindowEnum;
+import org.zhemu.alterego.model.vo.AgentRankPositionVO;
 import org.zhemu.alterego.model.vo.AgentRankVO;
 import org.zhemu.alterego.model.vo.AgentVO;
 
@@ -30,6 +32,14 @@ public interface AgentService extends IService<Agent> {
      */
     AgentVO getAgentByUserId(Long userId);
 
+    /**
+     * 获取用户的 Agent ID（请求内只解析一次，并有进程级缓存）
+     *
+     * @param userId 用户ID
+     * @return Agent ID（用户为空或还没有 Agent 时返回null）
+     */
+    Long getAgentIdByUserId(Long userId);
+
     /**
      * 触发生成 Agent 头像
      *
@@ -41,10 +51,38 @@ public interface AgentService extends IService<Agent> {
     /**
      * 获取获赞排行榜
      *
-     * @param limit Top N
+     * @param window 时间窗口
+     * @param limit  Top N
      * @return 排行榜列表
      */
-    java.util.List<AgentRankVO> getLikeRankTop(int limit);
+    java.util.List<AgentRankVO> getLikeRankTop(RankWindowEnum window, int limit);
+
+    /**
+     * 获取用户的 Agent 在获赞榜中的名次及前后各 k 名
+     *
+     * @param userId 用户ID
+     * @param window 时间窗口
+     * @param k      前后各取的名次数
+     * @return 位置信息
+     */
+    AgentRankPositionVO getLikeRankPosition(Long userId, RankWindowEnum window, int k);
+
+    /**
+     * 预扣能量（原子检查 + 扣除，自动提交），AI 生成前调用
+     *
+     * @param agentId Agent ID
+     * @param cost    消耗能量
+     * @return 能量充足且扣除成功返回 true
+     */
+    boolean reserveEnergy(Long agentId, int cost);
+
+    /**
+     * 退还预扣的能量（AI 生成或落库失败时的补偿）
+     *
+     * @param agentId Agent ID
+     * @param cost    退还能量
+     */
+    void refundEnergy(Long agentId, int cost);
 
 
 
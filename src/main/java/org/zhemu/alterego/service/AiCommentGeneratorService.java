@@ -5,6 +5,10 @@ import org.zhemu.alterego.model.entity.Agent;
 import org.zhemu.alterego.model.entity.Comment;
 import org.zhemu.alterego.model.entity.Post;
 import org.zhemu.alterego.model.entity.Species;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * AI 评论生成服务
@@ -26,4 +30,25 @@ public interface AiCommentGeneratorService {
     AiCommentGenerateResult generateComment(Agent agent, Species species, 
                                             Post post, Agent postAuthor,
                                             Comment parentComment, Agent parentCommentAuthor);
+
+    /**
+     * 非阻塞版本，订阅时才发起调用，参数同 {@link #generateComment}
+     *
+     * @return AI生成结果
+     */
+    Mono<AiCommentGenerateResult> generateCommentAsync(Agent agent, Species species,
+                                                       Post post, Agent postAuthor,
+                                                       Comment parentComment, Agent parentCommentAuthor);
+
+    /**
+     * 批量生成：多个 Agent 对同一帖子发表一级评论，按并发上限同时发起，单条失败使用降级结果
+     *
+     * @param agents     评论者 Agent 列表
+     * @param speciesMap speciesId -> 物种
+     * @param post       帖子信息
+     * @param postAuthor 帖子作者
+     * @return 与 agents 顺序一一对应的生成结果
+     */
+    List<AiCommentGenerateResult> generateCommentBatch(List<Agent> agents, Map<Long, Species> speciesMap,
+                                                       Post post, Agent postAuthor);
 }
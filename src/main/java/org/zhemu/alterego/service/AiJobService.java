@@ -0,0 +1,66 @@
+package org.zhemu.alterego.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.zhemu.alterego.model.dto.job.AiJobMessage;
+import org.zhemu.alterego.model.enums.AiJobTypeEnum;
+import org.zhemu.alterego.model.vo.AiJobVO;
+
+/**
+ * AI 异步生成任务服务
+ * 发帖/评论/PK/投票请求入队后立即返回任务ID，由 MQ 消费者在有界线程池中执行
+ *
+ * @author lushihao
+ */
+public interface AiJobService {
+
+    /**
+     * 提交异步生成任务
+     *
+     * @param jobType 任务类型
+     * @param request 原始请求参数（AgentPostGenerateRequest 等）
+     * @param userId  当前用户ID
+     * @return 任务状态（pending）
+     */
+    AiJobVO submitJob(AiJobTypeEnum jobType, Object request, Long userId);
+
+    /**
+     * 查询任务状态（轮询）
+     *
+     * @param jobId  任务ID
+     * @param userId 当前用户ID，只能查询自己的任务
+     * @return 任务状态
+     */
+    AiJobVO getJob(String jobId, Long userId);
+
+    /**
+     * 签发订阅票据：短期有效、只能使用一次、只对该任务有效，随查询参数传给 SSE 接口
+     *
+     * @param jobId  任务ID
+     * @param userId 当前用户ID，只能订阅自己的任务
+     * @return 票据
+     */
+    String createSubscribeTicket(String jobId, Long userId);
+
+    /**
+     * 凭票据订阅任务状态推送（SSE），终态后服务端关闭连接
+     *
+     * @param jobId  任务ID
+     * @param ticket 订阅票据
+     * @return SSE 连接
+     */
+    SseEmitter subscribeJob(String jobId, String ticket);
+
+    /**
+     * 执行任务（MQ 消费者调用）
+     *
+     * @param message 任务消息
+     */
+    void executeJob(AiJobMessage message);
+
+    /**
+     * 将执行超时仍未结束的任务（执行节点崩溃等）置为失败并通知订阅者
+     *
+     * @return 置为失败的任务数
+     */
+    int failStaleJobs();
+}
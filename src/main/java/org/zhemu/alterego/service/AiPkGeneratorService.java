@@ -3,6 +3,7 @@ package org.zhemu.alterego.service;
 import org.zhemu.alterego.model.dto.pk.AiPkGenerateResult;
 import org.zhemu.alterego.model.entity.Agent;
 import org.zhemu.alterego.model.entity.Species;
+import reactor.core.publisher.Mono;
 
 /**
  * AI PK 话题生成服务
@@ -18,4 +19,13 @@ public interface AiPkGeneratorService {
      * @return PK 话题生成结果
      */
     AiPkGenerateResult generatePk(Agent agent, Species species);
+
+    /**
+     * 非阻塞版本，订阅时才发起调用
+     *
+     * @param agent Agent 实体
+     * @param species 物种实体
+     * @return AI 生成的 PK 内容
+     */
+    Mono<AiPkGenerateResult> generatePkAsync(Agent agent, Species species);
 }
@@ -5,6 +5,7 @@ import org.zhemu.alterego.model.entity.Agent;
 import org.zhemu.alterego.model.entity.PkVoteOption;
 import org.zhemu.alterego.model.entity.Post;
 import org.zhemu.alterego.model.entity.Species;
+import reactor.core.publisher.Mono;
 
 /**
  * AI PK 投票生成服务
@@ -24,4 +25,11 @@ public interface AiPkVoteGeneratorService {
      * @return AI 生成的投票结果
      */
     AiPkVoteResult generateVote(Agent agent, Species species, Post pkPost, PkVoteOption optionA, PkVoteOption optionB);
+
+    /**
+     * 非阻塞版本，订阅时才发起调用，参数同 {@link #generateVote}
+     *
+     * @return AI 生成的投票结果
+     */
+    Mono<AiPkVoteResult> generateVoteAsync(Agent agent, Species species, Post pkPost, PkVoteOption optionA, PkVoteOption optionB);
 }
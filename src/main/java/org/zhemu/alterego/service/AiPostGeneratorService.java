@@ -3,6 +3,7 @@ package org.zhemu.alterego.service;
 import org.zhemu.alterego.model.dto.post.AiPostGenerateResult;
 import org.zhemu.alterego.model.entity.Agent;
 import org.zhemu.alterego.model.entity.Species;
+import reactor.core.publisher.Mono;
 
 /**
  * AI 帖子生成服务
@@ -18,4 +19,13 @@ public interface AiPostGeneratorService {
      * @return 生成结果
      */
     AiPostGenerateResult generatePost(Agent agent, Species species);
+
+    /**
+     * 非阻塞版本，订阅时才发起调用
+     *
+     * @param agent Agent信息
+     * @param species 物种信息
+     * @return 生成结果
+     */
+    Mono<AiPostGenerateResult> generatePostAsync(Agent agent, Species species);
 }
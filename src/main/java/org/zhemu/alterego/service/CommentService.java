@@ -1,12 +1,15 @@
 package org.zhemu.alterego.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import org.zhemu.alterego.model.dto.comment.AgentCommentBatchRequest;
 import org.zhemu.alterego.model.dto.comment.AgentCommentGenerateRequest;
 import org.zhemu.alterego.model.dto.comment.CommentQueryRequest;
 import org.zhemu.alterego.model.entity.Comment;
 import org.zhemu.alterego.model.vo.CommentPageVO;
 import org.zhemu.alterego.model.vo.CommentVO;
 
+import java.util.List;
+
 /**
  * @author lushihao
  * @description 针对表【comment(评论表)】的数据库操作Service
@@ -23,6 +26,15 @@ public interface CommentService extends IService<Comment> {
      */
     CommentVO aiGenerateComment(AgentCommentGenerateRequest request, Long userId);
 
+    /**
+     * 批量 AI 生成评论：多个 Agent 并发对同一帖子发表一级评论（管理员操作）
+     * 能量不足的 Agent 跳过；单条生成失败使用降级内容，单条落库失败只退还该 Agent 的能量
+     *
+     * @param request 批量评论请求
+     * @return 成功保存的评论VO
+     */
+    List<CommentVO> aiBatchGenerateComment(AgentCommentBatchRequest request);
+
     /**
      * 分页查询评论
      *
@@ -4,7 +4,9 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.zhemu.alterego.model.dto.pk.PkCreateRequest;
 import org.zhemu.alterego.model.dto.pk.PkQueryRequest;
 import org.zhemu.alterego.model.dto.pk.PkVoteRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.zhemu.alterego.model.vo.PkPostVO;
+import org.zhemu.alterego.model.vo.PkTallyVO;
 
 /**
  * PK 服务接口
@@ -54,4 +56,21 @@ public interface PkService {
      * @return 更新的记录数
      */
     int closeExpiredPks();
+
+    /**
+     * 订阅 PK 实时票数（SSE），连接建立后立即推送一次当前票数
+     *
+     * @param postId PK 帖子 ID
+     * @param client 客户端标识（IP），用于限制单个客户端的连接数
+     * @return SSE 事件流
+     */
+    SseEmitter subscribeTally(Long postId, String client);
+
+    /**
+     * 校对 PK 实时票数：以 MySQL + 待刷盘增量重建并推送给订阅者
+     *
+     * @param postId PK 帖子 ID
+     * @return 重建后的票数
+     */
+    PkTallyVO reconcileTally(Long postId);
 }
@@ -5,6 +5,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.zhemu.alterego.model.dto.post.AgentPostGenerateRequest;
 import org.zhemu.alterego.model.dto.post.PostQueryRequest;
 import org.zhemu.alterego.model.entity.Post;
+import org.zhemu.alterego.model.vo.PostPageVO;
 import org.zhemu.alterego.model.vo.PostVO;
 
 /**
@@ -31,6 +32,15 @@ public interface PostService extends IService<Post> {
      */
     Page<PostVO> listPostByPage(PostQueryRequest postQueryRequest);
 
+    /**
+     * 游标分页查询帖子列表（按创建时间、ID 倒序，不查总数）
+     * 深翻页与首页代价相同，适合信息流无限滚动
+     *
+     * @param postQueryRequest 查询请求（cursorTime + cursorId 为空时查询首页）
+     * @return 游标分页列表
+     */
+    PostPageVO listPostByCursor(PostQueryRequest postQueryRequest);
+
     /**
      * 获取帖子详情（含点赞状态）
      *
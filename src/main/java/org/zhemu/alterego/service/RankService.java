@@ -1,5 +1,7 @@
 package org.zhemu.alterego.service;
 
+import org.zhemu.alterego.model.enums.RankWindowEnum;
+
 import java.util.LinkedHashMap;
 
 /**
@@ -9,7 +11,7 @@ import java.util.LinkedHashMap;
 public interface RankService {
 
     /**
-     * 累计获赞榜增量
+     * 获赞榜增量（同时累加总榜、日榜、周榜和热度榜）
      *
      * @param agentId Agent ID
      * @param delta   增量（可为负）
@@ -19,8 +21,28 @@ public interface RankService {
     /**
      * 获取获赞榜 Top N（含分数）
      *
-     * @param limit Top N
-     * @return agentId -> score（有序）
+     * @param window 时间窗口
+     * @param limit  Top N
+     * @return agentId -> score（有序）；热度榜为衰减到当前时刻的热度值，其余为窗口内获赞数
+     */
+    LinkedHashMap<Long, Double> getTopAgentLike(RankWindowEnum window, int limit);
+
+    /**
+     * 获取 Agent 在获赞榜中的名次及前后各 k 名（一次 ZREVRANK + ZREVRANGE，O(log N + k)）
+     *
+     * @param window  时间窗口
+     * @param agentId Agent ID
+     * @param k       前后各取的名次数
+     * @return 包含该 Agent 的连续名次片段；未上榜时 scores 为空
+     */
+    RankSlice getAgentLikeNeighbours(RankWindowEnum window, Long agentId, int k);
+
+    /**
+     * 榜单中连续名次的片段
+     *
+     * @param firstRank 片段第一个成员的名次（从 1 开始）
+     * @param scores    agentId -> score（按名次有序）
      */
-    LinkedHashMap<Long, Integer> getTopAgentLike(int limit);
+    record RankSlice(int firstRank, LinkedHashMap<Long, Double> scores) {
+    }
 }
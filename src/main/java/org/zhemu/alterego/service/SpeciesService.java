@@ -4,6 +4,9 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import org.zhemu.alterego.model.entity.Species;
 import org.zhemu.alterego.model.vo.SpeciesVO;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * @author lushihao
  * @description 针对表【species(物种表)】的数据库操作Service
@@ -25,4 +28,20 @@ public interface SpeciesService extends IService<Species> {
      * @return 物种 VO
      */
     SpeciesVO getSpeciesById(Long id);
+
+    /**
+     * 从进程内快照获取物种实体（只读，不访问数据库）
+     *
+     * @param id 物种ID
+     * @return 物种实体，不存在返回 null
+     */
+    Species getCachedSpecies(Long id);
+
+    /**
+     * 从进程内快照批量获取物种实体（只读，不访问数据库）
+     *
+     * @param ids 物种ID集合
+     * @return speciesId -> Species
+     */
+    Map<Long, Species> getCachedSpeciesMap(Collection<Long> ids);
 }
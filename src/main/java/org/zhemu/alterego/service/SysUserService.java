@@ -5,6 +5,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.zhemu.alterego.model.dto.user.SysUserLoginRequest;
 import org.zhemu.alterego.model.dto.user.SysUserPasswordResetRequest;
 import org.zhemu.alterego.model.dto.user.SysUserRegisterRequest;
+import org.zhemu.alterego.model.dto.user.SysUserTokenRefreshRequest;
 import org.zhemu.alterego.model.dto.user.SysUserUpdatePasswordRequest;
 import org.zhemu.alterego.model.entity.SysUser;
 import org.zhemu.alterego.model.vo.SysUserVO;
@@ -62,5 +63,14 @@ public interface SysUserService extends IService<SysUser> {
      * @return 当前用户信息
      */
     SysUserVO getCurrentUser();
+
+    /**
+     * 用刷新令牌换取新的访问令牌（签名令牌模式）
+     *
+     * @param request     刷新令牌请求
+     * @param httpRequest HTTP 请求
+     * @return 用户信息及新的令牌
+     */
+    SysUserVO refreshToken(SysUserTokenRefreshRequest request, HttpServletRequest httpRequest);
 }
 
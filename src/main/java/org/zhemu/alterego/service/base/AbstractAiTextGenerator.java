@@ -1,5 +1,7 @@
 package org.zhemu.alterego.service.base;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.agentscope.core.ReActAgent;
 import io.agentscope.core.memory.autocontext.AutoContextConfig;
 import io.agentscope.core.memory.autocontext.AutoContextMemory;
@@ -7,13 +9,27 @@ import io.agentscope.core.message.Msg;
 import io.agentscope.core.message.MsgRole;
 import io.agentscope.core.message.TextBlock;
 import io.agentscope.core.model.Model;
-import io.agentscope.core.session.Session;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.zhemu.alterego.exception.BusinessException;
 import org.zhemu.alterego.exception.ErrorCode;
+import org.zhemu.alterego.manager.AgentMemoryStore;
+import org.zhemu.alterego.manager.AgentSummaryManager;
+import org.zhemu.alterego.manager.ModelResilienceManager;
 import org.zhemu.alterego.model.entity.Agent;
 import org.zhemu.alterego.model.entity.Species;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * AI 文本生成服务抽象基类
@@ -28,10 +44,50 @@ import org.zhemu.alterego.model.entity.Species;
 public abstract class AbstractAiTextGenerator<TRequest, TResult> {
     
     protected final Model dashScopeModel;
-    protected final Session mysqlSession;
+    protected final AgentMemoryStore agentMemoryStore;
+    protected final AgentSummaryManager agentSummaryManager;
+    
+    /**
+     * 阻塞 IO 调度器，平台线程模式下为 boundedElastic，虚拟线程模式下每个任务一个虚拟线程
+     * 见 {@link org.zhemu.alterego.config.VirtualThreadConfig}
+     */
+    protected final Scheduler ioScheduler;
+    
+    /**
+     * 模型调用保护（舱壁/自适应并发/熔断/对冲），按 {@link #getGeneratorType()} 隔离
+     */
+    protected final ModelResilienceManager modelResilienceManager;
+    
+    /**
+     * 系统 Prompt（通用设定 + 人设）缓存，key 为 agentId + 人设指纹
+     * 同一 Agent 每次调用的 Prompt 前缀字节级一致，可命中模型侧的前缀缓存
+     */
+    private final Cache<String, String> systemPromptCache = Caffeine.newBuilder()
+        .maximumSize(10_000)
+        .expireAfterAccess(Duration.ofHours(1))
+        .build();
+    
+    /**
+     * 批量生成的并发上限（同一生成器类型的所有批量请求共享）
+     */
+    @Value("${ai.batch.parallelism:8}")
+    private int batchParallelism;
+    
+    /**
+     * 批量生成中单条请求的超时时间，超时后该条降级
+     */
+    @Value("${ai.batch.item-timeout-ms:60000}")
+    private long batchItemTimeoutMs;
     
     /**
-     * 模板方法：定义 AI 生成的完整流程
+     * 批量生成任务队列，由单个分发管道按并发上限消费，首次提交时启动
+     */
+    private final Sinks.Many<BatchTask<TRequest, TResult>> batchQueue = Sinks.many().unicast().onBackpressureBuffer();
+    
+    private final AtomicBoolean batchDispatcherStarted = new AtomicBoolean();
+    
+    /**
+     * 模板方法：定义 AI 生成的完整流程（阻塞版本）
      * final 防止子类覆盖，确保流程一致性
      * 
      * @param agent Agent 实体
@@ -40,27 +96,110 @@ public abstract class AbstractAiTextGenerator<TRequest, TResult> {
      * @return 生成结果
      */
     public final TResult generate(Agent agent, Species species, TRequest request) {
-        log.info("AI 生成开始: agent={}, type={}", agent.getAgentName(), getGeneratorType());
-        
-        try {
-            String sessionId = buildSessionId(agent, request);
-            String prompt = buildPrompt(agent, species, request);
-            TResult result = callAi(sessionId, prompt);
-            
-            if (!validateResult(result)) {
+        return generateAsync(agent, species, request).block();
+    }
+    
+    /**
+     * 模板方法：定义 AI 生成的完整流程（非阻塞版本）
+     * 会话加载 -> 模型调用 -> 结构化解析 -> 会话保存 串成一条响应式链，调用线程不会被阻塞；
+     * 会话读写是 JDBC 阻塞 IO，切到 ioScheduler 执行，避免占用模型调用的事件循环线程
+     * 
+     * @param agent Agent 实体
+     * @param species 物种实体
+     * @param request 额外请求参数（可为 null）
+     * @return 生成结果，订阅时才真正发起调用
+     */
+    public final Mono<TResult> generateAsync(Agent agent, Species species, TRequest request) {
+        return Mono.defer(() -> {
+                if (!modelResilienceManager.isCallPermitted(getGeneratorType())) {
+                    log.warn("模型调用已熔断，直接降级: agent={}, type={}", agent.getAgentName(), getGeneratorType());
+                    return Mono.fromSupplier(this::getFallbackResult);
+                }
+                log.info("AI 生成开始: agent={}, type={}", agent.getAgentName(), getGeneratorType());
+                String sessionId = buildSessionId(agent, request);
+                String prompt = buildPrompt(agent, species, request);
+                return callAi(sessionId, resolveSystemPrompt(agent, species), prompt);
+            })
+            .filter(this::validateResult)
+            .switchIfEmpty(Mono.fromSupplier(() -> {
                 log.warn("AI 结果验证失败，使用降级策略");
-                result = getFallbackResult();
+                return getFallbackResult();
+            }))
+            .doOnSuccess(result -> log.info("AI 生成成功: agent={}, type={}", agent.getAgentName(), getGeneratorType()))
+            .onErrorResume(ModelResilienceManager::isCircuitOpen, e -> {
+                log.warn("模型调用已熔断，使用降级策略: agent={}, type={}", agent.getAgentName(), getGeneratorType());
+                return Mono.fromSupplier(this::getFallbackResult);
+            })
+            .onErrorMap(e -> !(e instanceof BusinessException), e -> {
+                log.error("AI 生成失败: agent={}, type={}", agent.getAgentName(), getGeneratorType(), e);
+                return new BusinessException(ErrorCode.SYSTEM_ERROR, "AI 生成失败: " + e.getMessage());
+            });
+    }
+    
+    /**
+     * 批量生成（阻塞版本），见 {@link #generateBatchAsync}
+     * 
+     * @param items 批量条目
+     * @return 与 items 一一对应的结果
+     */
+    public final List<TResult> generateBatch(List<BatchItem<TRequest>> items) {
+        return generateBatchAsync(items).block();
+    }
+    
+    /**
+     * 批量生成：条目进入该生成器类型的共享队列，按 ai.batch.parallelism 并发发起，每条单独超时；
+     * 失败或超时的条目逐条降级为 {@link #getFallbackResult()}，不影响同批其他条目
+     * 
+     * @param items 批量条目
+     * @return 与 items 顺序一一对应的结果
+     */
+    public final Mono<List<TResult>> generateBatchAsync(List<BatchItem<TRequest>> items) {
+        if (items.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return Mono.defer(() -> {
+            startBatchDispatcher();
+            List<Mono<TResult>> results = new ArrayList<>(items.size());
+            for (BatchItem<TRequest> item : items) {
+                BatchTask<TRequest, TResult> task = new BatchTask<>(item, Sinks.one());
+                batchQueue.emitNext(task, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+                results.add(task.result().asMono());
             }
-            
-            log.info("AI 生成成功: agent={}, type={}", agent.getAgentName(), getGeneratorType());
-            return result;
-            
-        } catch (BusinessException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("AI 生成失败: agent={}, type={}", agent.getAgentName(), getGeneratorType(), e);
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "AI 生成失败: " + e.getMessage());
+            return Flux.mergeSequential(results).collectList();
+        });
+    }
+    
+    private void startBatchDispatcher() {
+        if (!batchDispatcherStarted.compareAndSet(false, true)) {
+            return;
         }
+        batchQueue.asFlux()
+            .flatMap(this::runBatchTask, batchParallelism)
+            .subscribe();
+    }
+    
+    private Mono<Void> runBatchTask(BatchTask<TRequest, TResult> task) {
+        BatchItem<TRequest> item = task.item();
+        return generateAsync(item.agent(), item.species(), item.request())
+            .timeout(Duration.ofMillis(batchItemTimeoutMs))
+            .onErrorResume(e -> {
+                log.warn("批量生成单条失败，使用降级结果: agent={}, type={}, error={}",
+                    item.agent().getAgentName(), getGeneratorType(), e.getMessage());
+                return Mono.fromSupplier(this::getFallbackResult);
+            })
+            .doOnSuccess(result -> {
+                if (result == null) {
+                    task.result().tryEmitError(new BusinessException(ErrorCode.SYSTEM_ERROR, "AI 生成结果为空"));
+                } else {
+                    task.result().tryEmitValue(result);
+                }
+            })
+            .onErrorResume(e -> {
+                // 降级本身失败时把异常交给提交方，分发管道继续运行
+                task.result().tryEmitError(e);
+                return Mono.empty();
+            })
+            .then();
     }
     
     /**
@@ -149,6 +288,23 @@ public abstract class AbstractAiTextGenerator<TRequest, TResult> {
         return "你是一个擅长角色扮演的 AI，能够完美代入各种角色的性格和说话方式。你有长期的记忆，记得自己之前说过什么。";
     }
     
+    /**
+     * 钩子方法：构建人设（拼接在系统 Prompt 之后，按 Agent 缓存）
+     * 人设放在系统 Prompt 而不是用户 Prompt 中，保证同一 Agent 的请求前缀稳定
+     * 
+     * @param agent Agent 实体
+     * @param species 物种实体
+     * @return 人设描述
+     */
+    protected String buildPersona(Agent agent, Species species) {
+        return String.format("""
+            你的身份：
+            - 物种：%s
+            - 名字：%s
+            - 性格：%s
+            """, species.getName(), agent.getAgentName(), agent.getPersonality());
+    }
+    
     /**
      * 钩子方法：获取 AutoContext 配置
      * 默认配置：tokenRatio=0.4, lastKeep=10
@@ -173,66 +329,185 @@ public abstract class AbstractAiTextGenerator<TRequest, TResult> {
         return 3;
     }
     
+    /**
+     * 系统 Prompt = 通用设定 + 人设，人设变化（改名、改性格、换物种）时指纹随之变化
+     */
+    private String resolveSystemPrompt(Agent agent, Species species) {
+        String key = agent.getId() + ":" + Objects.hash(agent.getAgentName(), agent.getPersonality(), species.getName());
+        return systemPromptCache.get(key, k -> getSystemPrompt() + "\n\n" + buildPersona(agent, species));
+    }
+    
     /**
      * 核心私有方法：调用 AI（封装 AgentScope 完整流程）
      * 
      * @param sessionId 会话 ID
+     * @param systemPrompt 系统 Prompt
      * @param prompt 用户 Prompt
-     * @return AI 解析后的结果对象
+     * @return AI 解析后的结果对象，解析失败时为空
+     */
+    private Mono<TResult> callAi(String sessionId, String systemPrompt, String prompt) {
+        Model model = modelResilienceManager.guard(getGeneratorType(), dashScopeModel);
+        AutoContextMemory memory = new AutoContextMemory(
+            getAutoContextConfig(), 
+            model
+        );
+        
+        ReActAgent aiAgent = ReActAgent.builder()
+            .name(getAgentName())
+            .sysPrompt(systemPrompt)
+            .model(model)
+            .memory(memory)
+            .maxIters(getMaxIters())
+            .build();
+        
+        Msg userMsg = Msg.builder()
+            .role(MsgRole.USER)
+            .content(TextBlock.builder().text(prompt).build())
+            .build();
+        
+        return loadSession(aiAgent, memory, sessionId)
+            .flatMap(loaded -> Mono.defer(() -> aiAgent.call(userMsg, getResultClass()))
+                .switchIfEmpty(Mono.error(() -> new BusinessException(ErrorCode.SYSTEM_ERROR, "AI 生成无响应")))
+                .flatMap(response -> saveSession(memory, sessionId, loaded, userMsg).thenReturn(response)))
+            .mapNotNull(response -> {
+                TResult structuredData = response.getStructuredData(getResultClass());
+                if (structuredData == null) {
+                    log.warn("AI 返回数据为空，可能解析失败");
+                }
+                return structuredData;
+            })
+            .onErrorMap(e -> !(e instanceof BusinessException) && !ModelResilienceManager.isCircuitOpen(e), e -> {
+                log.error("AI 调用异常", e);
+                return new BusinessException(ErrorCode.SYSTEM_ERROR, "AI 调用失败: " + e.getMessage());
+            });
+    }
+    
+    /**
+     * 加载会话历史（阻塞 IO，切到 ioScheduler 执行）
+     * 送入记忆的是"摘要 + 最近消息"，只有未摘要部分超过阈值时才调用模型更新摘要；
+     * 新表无记录时回退旧版快照；加载失败时从空白会话开始，且本次不保存，避免覆盖已有历史
+     * 
+     * @return 加载结果，加载失败时为 {@link Optional#empty()}
      */
-    private TResult callAi(String sessionId, String prompt) {
+    private Mono<Optional<LoadedSession>> loadSession(ReActAgent aiAgent, AutoContextMemory memory, String sessionId) {
+        return Mono.fromCallable(() -> agentMemoryStore.load(sessionId))
+            .flatMap(snapshot -> {
+                if (snapshot.isEmpty()) {
+                    loadLegacySession(aiAgent, sessionId);
+                    return Mono.just(new LoadedSession(snapshot, List.copyOf(memory.getMessages())));
+                }
+                return agentSummaryManager.buildContext(sessionId, snapshot)
+                    .map(context -> {
+                        context.forEach(memory::addMessage);
+                        return new LoadedSession(snapshot, context);
+                    });
+            })
+            .map(loaded -> {
+                log.debug("加载会话历史成功: sessionId={}, size={}", sessionId, loaded.context().size());
+                return Optional.of(loaded);
+            })
+            .onErrorResume(e -> {
+                log.warn("加载会话历史失败，本次不保存: sessionId={}", sessionId, e);
+                return Mono.just(Optional.empty());
+            })
+            .subscribeOn(ioScheduler);
+    }
+    
+    /**
+     * 新表无记录的会话：读取旧版快照，读不到则从空白会话开始
+     */
+    private void loadLegacySession(ReActAgent aiAgent, String sessionId) {
         try {
-            AutoContextMemory memory = new AutoContextMemory(
-                getAutoContextConfig(), 
-                dashScopeModel
-            );
-            
-            ReActAgent aiAgent = ReActAgent.builder()
-                .name(getAgentName())
-                .sysPrompt(getSystemPrompt())
-                .model(dashScopeModel)
-                .memory(memory)
-                .maxIters(getMaxIters())
-                .build();
-            
-            try {
-                aiAgent.loadIfExists(mysqlSession, sessionId);
-                log.debug("加载会话历史成功: sessionId={}", sessionId);
-            } catch (Exception e) {
-                log.debug("会话历史不存在或加载失败（首次调用？）: sessionId={}", sessionId);
-            }
-            
-            Msg userMsg = Msg.builder()
-                .role(MsgRole.USER)
-                .content(TextBlock.builder().text(prompt).build())
-                .build();
-            
-            Msg response = aiAgent.call(userMsg, getResultClass()).block();
-            
-            try {
-                aiAgent.saveTo(mysqlSession, sessionId);
-                log.debug("保存会话历史成功: sessionId={}", sessionId);
-            } catch (Exception e) {
-                log.warn("保存会话历史失败: sessionId={}", sessionId, e);
-            }
-            
-            if (response == null) {
-                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "AI 生成无响应");
+            agentMemoryStore.loadLegacy(aiAgent, sessionId);
+        } catch (Exception e) {
+            log.debug("会话历史不存在或加载失败（首次调用？）: sessionId={}", sessionId);
+        }
+    }
+    
+    /**
+     * 保存会话历史（阻塞 IO，切到 ioScheduler 执行），只追加本次新增的消息；失败只记录日志不影响生成结果
+     * 旧版快照迁移的会话首次保存时连同旧消息一起写入
+     */
+    private Mono<Void> saveSession(AutoContextMemory memory, String sessionId, Optional<LoadedSession> loaded, Msg userMsg) {
+        if (loaded.isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.<Void>fromRunnable(() -> {
+                try {
+                    LoadedSession session = loaded.get();
+                    List<Msg> added = newMessages(session.context(), memory.getMessages(), userMsg);
+                    if (added == null) {
+                        log.warn("无法识别本次新增的消息，跳过保存: sessionId={}", sessionId);
+                        return;
+                    }
+                    if (session.snapshot().isEmpty() && !session.context().isEmpty()) {
+                        List<Msg> migrated = new ArrayList<>(session.context());
+                        migrated.addAll(added);
+                        added = migrated;
+                    }
+                    agentMemoryStore.append(sessionId, session.snapshot(), added);
+                    log.debug("保存会话历史成功: sessionId={}, added={}", sessionId, added.size());
+                } catch (Exception e) {
+                    log.warn("保存会话历史失败: sessionId={}", sessionId, e);
+                }
+            })
+            .subscribeOn(ioScheduler);
+    }
+    
+    /**
+     * 本次新增的消息：记忆仍以送入的上下文为前缀时取其后部分；
+     * 否则（调用中途被 AutoContext 压缩）从本次用户消息开始截取，找不到返回 null
+     */
+    private static List<Msg> newMessages(List<Msg> context, List<Msg> current, Msg userMsg) {
+        if (isPrefix(context, current)) {
+            return current.subList(context.size(), current.size());
+        }
+        for (int i = 0; i < current.size(); i++) {
+            if (isSameMsg(current.get(i), userMsg)) {
+                return current.subList(i, current.size());
             }
-            
-            TResult structuredData = response.getStructuredData(getResultClass());
-            if (structuredData == null) {
-                log.warn("AI 返回数据为空，可能解析失败");
-                return null;
+        }
+        return null;
+    }
+    
+    private static boolean isPrefix(List<Msg> prefix, List<Msg> list) {
+        if (list.size() < prefix.size()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.size(); i++) {
+            if (!isSameMsg(prefix.get(i), list.get(i))) {
+                return false;
             }
-            
-            return structuredData;
-            
-        } catch (BusinessException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("AI 调用异常", e);
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "AI 调用失败: " + e.getMessage());
         }
+        return true;
+    }
+    
+    private static boolean isSameMsg(Msg a, Msg b) {
+        return a == b || (a.getId() != null && Objects.equals(a.getId(), b.getId()));
+    }
+    
+    /**
+     * 批量生成条目
+     * 
+     * @param agent Agent 实体
+     * @param species 物种实体
+     * @param request 额外请求参数
+     */
+    public record BatchItem<R>(Agent agent, Species species, R request) {
+    }
+    
+    /**
+     * 排队中的批量任务，结果通过 result 回传给提交方
+     */
+    private record BatchTask<R, T>(BatchItem<R> item, Sinks.One<T> result) {
+    }
+    
+    /**
+     * 会话加载结果
+     * 
+     * @param snapshot 完整历史快照（追加写入的序号基准）
+     * @param context 实际送入记忆的消息
+     */
+    private record LoadedSession(AgentMemoryStore.Snapshot snapshot, List<Msg> context) {
     }
 }
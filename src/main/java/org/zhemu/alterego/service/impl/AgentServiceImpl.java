@@ -10,17 +10,21 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.zhemu.alterego.exception.ErrorCode;
 import org.zhemu.alterego.exception.ThrowUtils;
+import org.zhemu.alterego.manager.CounterManager;
+import org.zhemu.alterego.manager.RankCacheManager;
+import org.zhemu.alterego.manager.UserAgentCacheManager;
 import org.zhemu.alterego.mapper.AgentMapper;
 import org.zhemu.alterego.model.dto.agent.AgentAvatarTaskMessage;
 import org.zhemu.alterego.model.dto.agent.AgentCreateRequest;
 import org.zhemu.alterego.model.entity.Agent;
-import org.zhemu.alterego.model.entity.Species;
+import org.zhemu.alterego.model.enums.CounterFieldEnum;
+import org.zhemu.alterego.model.enums.RankWindowEnum;
 import org.zhemu.alterego.model.vo.AgentVO;
+import org.zhemu.alterego.model.vo.AgentRankPositionVO;
 import org.zhemu.alterego.model.vo.AgentRankVO;
 import org.zhemu.alterego.model.vo.SpeciesVO;
 import org.zhemu.alterego.mq.MessageProducer;
 import org.zhemu.alterego.service.AgentService;
-import org.zhemu.alterego.service.RankService;
 import org.zhemu.alterego.service.SpeciesService;
 
 import static org.zhemu.alterego.constant.Constants.AGENT_INITIAL_ENERGY;
@@ -28,7 +32,6 @@ import static org.zhemu.alterego.constant.Constants.AGENT_INITIAL_ENERGY;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 
 /**
@@ -42,11 +45,19 @@ public class AgentServiceImpl extends ServiceImpl<AgentMapper, Agent>
 
     private final SpeciesService speciesService;
     private final MessageProducer messageProducer;
-    private final RankService rankService;
+    private final RankCacheManager rankCacheManager;
+    private final CounterManager counterManager;
+    private final UserAgentCacheManager userAgentCacheManager;
 
     @Value("${agent.avatar.default-url:}")
     private String defaultAvatarUrl;
 
+    /**
+     * "我的名次"前后最多各取的名次数
+     */
+    @Value("${rank.position.max-neighbours:10}")
+    private int maxRankNeighbours;
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public AgentVO createAgent(Long userId, AgentCreateRequest request) {
@@ -99,13 +110,25 @@ public class AgentServiceImpl extends ServiceImpl<AgentMapper, Agent>
             return null;
         }
 
-        // 2. 获取物种信息
+        // 2. 合并尚未刷盘的评论数
+        Long pendingComments = counterManager.getPendingDeltas(CounterFieldEnum.AGENT_COMMENT, List.of(agent.getId()))
+                .get(agent.getId());
+        if (pendingComments != null) {
+            agent.setCommentCount((int) Math.max(0, agent.getCommentCount() + pendingComments));
+        }
+
+        // 3. 获取物种信息
         SpeciesVO speciesVO = speciesService.getSpeciesById(agent.getSpeciesId());
         
-        // 3. 封装VO
+        // 4. 封装VO
         return AgentVO.objToVo(agent, speciesVO);
     }
 
+    @Override
+    public Long getAgentIdByUserId(Long userId) {
+        return userAgentCacheManager.getAgentId(userId);
+    }
+
     @Override
     public boolean generateAvatar(Long userId, Long agentId) {
         ThrowUtils.throwIf(agentId == null || agentId <= 0, ErrorCode.PARAMS_ERROR, "Agent ID不合法");
@@ -124,44 +147,42 @@ public class AgentServiceImpl extends ServiceImpl<AgentMapper, Agent>
     }
 
     @Override
-    public List<AgentRankVO> getLikeRankTop(int limit) {
+    public List<AgentRankVO> getLikeRankTop(RankWindowEnum window, int limit) {
         if (limit <= 0) {
             return Collections.emptyList();
         }
-       LinkedHashMap<Long, Integer> rankMap = rankService.getTopAgentLike(limit);
-        if (rankMap.isEmpty()) {
-            return Collections.emptyList();
-        }
-        Set<Long> agentIds = rankMap.keySet();
-        Map<Long, Agent> agentMap = this.listByIds(agentIds).stream()
-                .collect(Collectors.toMap(Agent::getId, agent -> agent));
-        Set<Long> speciesIds = agentMap.values().stream()
-                .map(Agent::getSpeciesId)
-                .collect(Collectors.toSet());
-        Map<Long, Species> speciesMap =
-                speciesService.listByIds(speciesIds).stream()
-                        .collect(Collectors.toMap(
-                                Species::getId, s -> s));
-
-        List<AgentRankVO> result = new ArrayList<>();
-        int rank = 1;
-        for (Map.Entry<Long, Integer> entry : rankMap.entrySet()) {
-            Agent agent = agentMap.get(entry.getKey());
-            if (agent == null) {
-                continue;
-            }
-            AgentRankVO vo = new AgentRankVO();
-            vo.setRank(rank++);
-            vo.setAgentId(agent.getId());
-            vo.setAgentName(agent.getAgentName());
-            vo.setAvatarUrl(agent.getAvatarUrl());
-            Species species = speciesMap.get(agent.getSpeciesId());
-            if (species != null) {
-                vo.setSpecies(SpeciesVO.objToVo(species));
-            }
-            vo.setLikeCount(entry.getValue());
-            result.add(vo);
+        // 预计算快照，请求路径不访问 Redis/MySQL
+        return rankCacheManager.getTop(window, limit);
+    }
+
+    @Override
+    public AgentRankPositionVO getLikeRankPosition(Long userId, RankWindowEnum window, int k) {
+        ThrowUtils.throwIf(k < 0 || k > maxRankNeighbours, ErrorCode.PARAMS_ERROR, "k 超出范围");
+        Long agentId = userAgentCacheManager.getAgentId(userId);
+        ThrowUtils.throwIf(agentId == null, ErrorCode.NOT_FOUND_ERROR, "Agent不存在");
+        return rankCacheManager.getPosition(window, agentId, k);
+    }
+
+    @Override
+    public boolean reserveEnergy(Long agentId, int cost) {
+        return this.lambdaUpdate()
+                .eq(Agent::getId, agentId)
+                .ge(Agent::getEnergy, cost)
+                .setSql("energy = energy - " + cost)
+                .update();
+    }
+
+    @Override
+    public void refundEnergy(Long agentId, int cost) {
+        try {
+            this.lambdaUpdate()
+                    .eq(Agent::getId, agentId)
+                    .setSql("energy = energy + " + cost)
+                    .update();
+            log.info("Agent {} 能量已退还: {}", agentId, cost);
+        } catch (Exception e) {
+            // 补偿失败只记录日志，不覆盖原始异常
+            log.error("Agent {} 能量退还失败: {}", agentId, cost, e);
         }
-        return result;
     }
 }
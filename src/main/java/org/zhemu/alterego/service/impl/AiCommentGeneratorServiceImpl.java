@@ -1,11 +1,13 @@
 package org.zhemu.alterego.service.impl;
 
 import io.agentscope.core.model.Model;
-import io.agentscope.core.session.Session;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.zhemu.alterego.manager.AgentMemoryStore;
+import org.zhemu.alterego.manager.AgentSummaryManager;
+import org.zhemu.alterego.manager.ModelResilienceManager;
 import org.zhemu.alterego.model.dto.comment.AiCommentGenerateResult;
 import org.zhemu.alterego.model.entity.Agent;
 import org.zhemu.alterego.model.entity.Comment;
@@ -13,6 +15,11 @@ import org.zhemu.alterego.model.entity.Post;
 import org.zhemu.alterego.model.entity.Species;
 import org.zhemu.alterego.service.AiCommentGeneratorService;
 import org.zhemu.alterego.service.base.AbstractAiTextGenerator;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+import java.util.Map;
 
 import static org.zhemu.alterego.constant.Constants.AGENT_COMMENT_SESSION_PREFIX;
 
@@ -36,8 +43,10 @@ public class AiCommentGeneratorServiceImpl
         private Agent parentCommentAuthor;
     }
 
-    public AiCommentGeneratorServiceImpl(Model dashScopeModel, Session mysqlSession) {
-        super(dashScopeModel, mysqlSession);
+    public AiCommentGeneratorServiceImpl(Model dashScopeModel, AgentMemoryStore agentMemoryStore,
+                                         AgentSummaryManager agentSummaryManager, Scheduler ioScheduler,
+                                         ModelResilienceManager modelResilienceManager) {
+        super(dashScopeModel, agentMemoryStore, agentSummaryManager, ioScheduler, modelResilienceManager);
     }
 
     @Override
@@ -65,17 +74,11 @@ public class AiCommentGeneratorServiceImpl
         StringBuilder sb = new StringBuilder();
         
         sb.append(String.format("""
-                你的身份：
-                - 物种：%s
-                - 名字：%s
-                - 性格：%s
-                
                 帖子信息：
                 - 标题：%s
                 - 内容：%s
                 - 作者：%s
                 """, 
-                species.getName(), agent.getAgentName(), agent.getPersonality(),
                 post.getTitle(), post.getContent(), postAuthor.getAgentName()));
 
         if (parentComment != null) {
@@ -154,4 +157,22 @@ public class AiCommentGeneratorServiceImpl
         CommentRequest request = new CommentRequest(post, postAuthor, parentComment, parentCommentAuthor);
         return generate(agent, species, request);
     }
+
+    @Override
+    public Mono<AiCommentGenerateResult> generateCommentAsync(Agent agent, Species species,
+                                                              Post post, Agent postAuthor,
+                                                              Comment parentComment, Agent parentCommentAuthor) {
+        CommentRequest request = new CommentRequest(post, postAuthor, parentComment, parentCommentAuthor);
+        return generateAsync(agent, species, request);
+    }
+
+    @Override
+    public List<AiCommentGenerateResult> generateCommentBatch(List<Agent> agents, Map<Long, Species> speciesMap,
+                                                              Post post, Agent postAuthor) {
+        CommentRequest request = new CommentRequest(post, postAuthor, null, null);
+        List<BatchItem<CommentRequest>> items = agents.stream()
+                .map(agent -> new BatchItem<>(agent, speciesMap.get(agent.getSpeciesId()), request))
+                .toList();
+        return generateBatch(items);
+    }
 }
@@ -0,0 +1,226 @@
+package org.zhemu.alterego.service.impl;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.zhemu.alterego.constant.RedisConstants;
+import org.zhemu.alterego.exception.BusinessException;
+import org.zhemu.alterego.exception.ErrorCode;
+import org.zhemu.alterego.exception.ThrowUtils;
+import org.zhemu.alterego.manager.AiJobSseManager;
+import org.zhemu.alterego.model.dto.comment.AgentCommentGenerateRequest;
+import org.zhemu.alterego.model.dto.job.AiJobMessage;
+import org.zhemu.alterego.model.dto.pk.PkCreateRequest;
+import org.zhemu.alterego.model.dto.pk.PkVoteRequest;
+import org.zhemu.alterego.model.dto.post.AgentPostGenerateRequest;
+import org.zhemu.alterego.model.enums.AiJobStatusEnum;
+import org.zhemu.alterego.model.enums.AiJobTypeEnum;
+import org.zhemu.alterego.model.vo.AiJobVO;
+import org.zhemu.alterego.mq.MessageProducer;
+import org.zhemu.alterego.service.AiJobService;
+import org.zhemu.alterego.service.CommentService;
+import org.zhemu.alterego.service.PkService;
+import org.zhemu.alterego.service.PostService;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AI 异步生成任务服务实现
+ * 任务状态存 Redis（带 TTL），状态变更经 Redis 频道广播给 SSE 订阅者。
+ * 执行权与执行中登记的有效期为 running-timeout-minutes：执行节点崩溃后重复投递的消息不会重复生成，
+ * 任务由 {@link #failStaleJobs} 在超时后置为失败；执行节点仍存活、只是超时的任务随后完成时以实际结果覆盖
+ *
+ * @author lushihao
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AiJobServiceImpl implements AiJobService {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MessageProducer messageProducer;
+    private final AiJobSseManager aiJobSseManager;
+    private final PostService postService;
+    private final CommentService commentService;
+    private final PkService pkService;
+
+    /**
+     * 任务执行超时时间（分钟），应大于单次生成的最长耗时（模型调用超时、对冲与重试）
+     */
+    @Value("${ai.job.running-timeout-minutes:10}")
+    private long runningTimeoutMinutes;
+
+    @Override
+    public AiJobVO submitJob(AiJobTypeEnum jobType, Object request, Long userId) {
+        ThrowUtils.throwIf(jobType == null || request == null, ErrorCode.PARAMS_ERROR);
+
+        // 1. 记录任务状态
+        AiJobVO jobVO = new AiJobVO();
+        jobVO.setJobId(IdUtil.fastSimpleUUID());
+        jobVO.setJobType(jobType.getValue());
+        jobVO.setStatus(AiJobStatusEnum.PENDING.getValue());
+        jobVO.setUserId(userId);
+        jobVO.setCreateTime(LocalDateTime.now());
+        jobVO.setUpdateTime(LocalDateTime.now());
+        saveJob(jobVO);
+
+        // 2. 入队，由消费者异步执行
+        AiJobMessage message = new AiJobMessage();
+        message.setJobId(jobVO.getJobId());
+        message.setJobType(jobType.getValue());
+        message.setUserId(userId);
+        message.setPayload(JSONUtil.toJsonStr(request));
+        try {
+            messageProducer.sendAiJob(message);
+        } catch (Exception e) {
+            log.error("AI 任务入队失败: jobId={}", jobVO.getJobId(), e);
+            jobVO.setErrorMessage("任务提交失败");
+            updateStatus(jobVO, AiJobStatusEnum.FAILED);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "任务提交失败，请稍后重试");
+        }
+
+        log.info("用户 {} 提交 AI 任务: jobId={}, type={}", userId, jobVO.getJobId(), jobType.getValue());
+        return jobVO;
+    }
+
+    @Override
+    public AiJobVO getJob(String jobId, Long userId) {
+        AiJobVO jobVO = loadJob(jobId);
+        ThrowUtils.throwIf(jobVO == null, ErrorCode.NOT_FOUND_ERROR, "任务不存在或已过期");
+        ThrowUtils.throwIf(!jobVO.getUserId().equals(userId), ErrorCode.NO_AUTH_ERROR, "只能查看自己的任务");
+        return jobVO;
+    }
+
+    @Override
+    public String createSubscribeTicket(String jobId, Long userId) {
+        // 先校验权限
+        getJob(jobId, userId);
+        String ticket = IdUtil.fastSimpleUUID();
+        stringRedisTemplate.opsForValue().set(RedisConstants.AI_JOB_TICKET + ticket, jobId,
+                RedisConstants.AI_JOB_TICKET_TTL, TimeUnit.SECONDS);
+        return ticket;
+    }
+
+    @Override
+    public SseEmitter subscribeJob(String jobId, String ticket) {
+        ThrowUtils.throwIf(StrUtil.hasBlank(jobId, ticket), ErrorCode.PARAMS_ERROR);
+        // 票据一次性使用，且只对签发时的任务有效
+        String ticketJobId = stringRedisTemplate.opsForValue().getAndDelete(RedisConstants.AI_JOB_TICKET + ticket);
+        ThrowUtils.throwIf(!jobId.equals(ticketJobId), ErrorCode.NO_AUTH_ERROR, "订阅票据无效或已过期");
+        ThrowUtils.throwIf(loadJob(jobId) == null, ErrorCode.NOT_FOUND_ERROR, "任务不存在或已过期");
+        // 先注册再读取当前状态，避免两者之间的状态变更丢失
+        SseEmitter emitter = aiJobSseManager.register(jobId);
+        aiJobSseManager.send(emitter, loadJob(jobId));
+        return emitter;
+    }
+
+    @Override
+    public void executeJob(AiJobMessage message) {
+        AiJobVO jobVO = loadJob(message.getJobId());
+        if (jobVO == null) {
+            log.warn("AI 任务状态不存在（已过期？），跳过: jobId={}", message.getJobId());
+            return;
+        }
+        AiJobStatusEnum currentStatus = AiJobStatusEnum.getEnumByValue(jobVO.getStatus());
+        if (currentStatus != null && currentStatus.isFinished()) {
+            log.info("AI 任务已结束，跳过重复投递: jobId={}, status={}", message.getJobId(), jobVO.getStatus());
+            return;
+        }
+        // 原子抢占执行权：消费者崩溃或 nack 导致的重复投递（任务正在执行）直接确认，不再重复生成
+        Boolean claimed = stringRedisTemplate.opsForValue().setIfAbsent(RedisConstants.AI_JOB_CLAIM + message.getJobId(),
+                AiJobStatusEnum.RUNNING.getValue(), runningTimeoutMinutes, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(claimed)) {
+            log.info("AI 任务重复投递，已在执行中，跳过: jobId={}, status={}", message.getJobId(), jobVO.getStatus());
+            return;
+        }
+
+        stringRedisTemplate.opsForZSet().add(RedisConstants.AI_JOB_RUNNING, message.getJobId(), System.currentTimeMillis());
+        updateStatus(jobVO, AiJobStatusEnum.RUNNING);
+        try {
+            Object result = dispatch(message);
+            jobVO.setResult(result);
+            updateStatus(jobVO, AiJobStatusEnum.SUCCEED);
+            log.info("AI 任务执行成功: jobId={}, type={}", message.getJobId(), message.getJobType());
+        } catch (BusinessException e) {
+            jobVO.setErrorMessage(e.getMessage());
+            updateStatus(jobVO, AiJobStatusEnum.FAILED);
+            log.warn("AI 任务执行失败: jobId={}, reason={}", message.getJobId(), e.getMessage());
+        } catch (Exception e) {
+            jobVO.setErrorMessage("系统内部异常");
+            updateStatus(jobVO, AiJobStatusEnum.FAILED);
+            log.error("AI 任务执行异常: jobId={}", message.getJobId(), e);
+        } finally {
+            stringRedisTemplate.opsForZSet().remove(RedisConstants.AI_JOB_RUNNING, message.getJobId());
+        }
+    }
+
+    @Override
+    public int failStaleJobs() {
+        long deadline = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(runningTimeoutMinutes);
+        Set<String> jobIds = stringRedisTemplate.opsForZSet().rangeByScore(RedisConstants.AI_JOB_RUNNING, 0, deadline);
+        if (jobIds == null || jobIds.isEmpty()) {
+            return 0;
+        }
+        int failed = 0;
+        for (String jobId : jobIds) {
+            // 多节点同时执行时，只有移除成功的节点处理该任务
+            Long removed = stringRedisTemplate.opsForZSet().remove(RedisConstants.AI_JOB_RUNNING, jobId);
+            if (removed == null || removed == 0) {
+                continue;
+            }
+            AiJobVO jobVO = loadJob(jobId);
+            if (jobVO == null || !AiJobStatusEnum.RUNNING.getValue().equals(jobVO.getStatus())) {
+                continue;
+            }
+            jobVO.setErrorMessage("任务执行超时");
+            updateStatus(jobVO, AiJobStatusEnum.FAILED);
+            failed++;
+            log.warn("AI 任务执行超时，已置为失败: jobId={}, type={}", jobId, jobVO.getJobType());
+        }
+        return failed;
+    }
+
+    /**
+     * 按任务类型调用对应的同步生成逻辑
+     */
+    private Object dispatch(AiJobMessage message) {
+        AiJobTypeEnum jobType = AiJobTypeEnum.getEnumByValue(message.getJobType());
+        ThrowUtils.throwIf(jobType == null, ErrorCode.PARAMS_ERROR, "未知的任务类型");
+        String payload = message.getPayload();
+        Long userId = message.getUserId();
+        return switch (jobType) {
+            case POST -> postService.aiGeneratePost(
+                    JSONUtil.toBean(payload, AgentPostGenerateRequest.class), userId);
+            case COMMENT -> commentService.aiGenerateComment(
+                    JSONUtil.toBean(payload, AgentCommentGenerateRequest.class), userId);
+            case PK_CREATE -> pkService.createPk(
+                    JSONUtil.toBean(payload, PkCreateRequest.class), userId);
+            case PK_VOTE -> pkService.vote(
+                    JSONUtil.toBean(payload, PkVoteRequest.class), userId);
+        };
+    }
+
+    private void updateStatus(AiJobVO jobVO, AiJobStatusEnum status) {
+        jobVO.setStatus(status.getValue());
+        jobVO.setUpdateTime(LocalDateTime.now());
+        saveJob(jobVO);
+        aiJobSseManager.publish(jobVO);
+    }
+
+    private void saveJob(AiJobVO jobVO) {
+        stringRedisTemplate.opsForValue().set(RedisConstants.AI_JOB + jobVO.getJobId(),
+                JSONUtil.toJsonStr(jobVO), RedisConstants.AI_JOB_TTL, TimeUnit.HOURS);
+    }
+
+    private AiJobVO loadJob(String jobId) {
+        return AiJobVO.fromJson(stringRedisTemplate.opsForValue().get(RedisConstants.AI_JOB + jobId));
+    }
+}
@@ -1,14 +1,18 @@
 package org.zhemu.alterego.service.impl;
 
 import io.agentscope.core.model.Model;
-import io.agentscope.core.session.Session;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.zhemu.alterego.manager.AgentMemoryStore;
+import org.zhemu.alterego.manager.AgentSummaryManager;
+import org.zhemu.alterego.manager.ModelResilienceManager;
 import org.zhemu.alterego.model.dto.pk.AiPkGenerateResult;
 import org.zhemu.alterego.model.entity.Agent;
 import org.zhemu.alterego.model.entity.Species;
 import org.zhemu.alterego.service.AiPkGeneratorService;
 import org.zhemu.alterego.service.base.AbstractAiTextGenerator;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.util.Collections;
 
@@ -25,8 +29,10 @@ public class AiPkGeneratorServiceImpl
     extends AbstractAiTextGenerator<Void, AiPkGenerateResult> 
     implements AiPkGeneratorService {
 
-    public AiPkGeneratorServiceImpl(Model dashScopeModel, Session mysqlSession) {
-        super(dashScopeModel, mysqlSession);
+    public AiPkGeneratorServiceImpl(Model dashScopeModel, AgentMemoryStore agentMemoryStore,
+                                    AgentSummaryManager agentSummaryManager, Scheduler ioScheduler,
+                                    ModelResilienceManager modelResilienceManager) {
+        super(dashScopeModel, agentMemoryStore, agentSummaryManager, ioScheduler, modelResilienceManager);
     }
 
     @Override
@@ -41,14 +47,9 @@ public class AiPkGeneratorServiceImpl
 
     @Override
     protected String buildPrompt(Agent agent, Species species, Void unused) {
-        return String.format("""
+        return """
             现在你想发起一个有趣的 PK 投票话题。
             
-            你的身份：
-            - 物种：%s
-            - 名字：%s
-            - 性格：%s
-            
             要求：
             1. 话题要有趣、有争议性
             2. 两个选项要对立但都有道理
@@ -63,7 +64,7 @@ public class AiPkGeneratorServiceImpl
               "optionB": "选项B文字",
               "tags": ["标签1", "标签2"]
             }
-            """, species.getName(), agent.getAgentName(), agent.getPersonality());
+            """;
     }
 
     @Override
@@ -101,4 +102,9 @@ public class AiPkGeneratorServiceImpl
     public AiPkGenerateResult generatePk(Agent agent, Species species) {
         return generate(agent, species, null);
     }
+
+    @Override
+    public Mono<AiPkGenerateResult> generatePkAsync(Agent agent, Species species) {
+        return generateAsync(agent, species, null);
+    }
 }
@@ -1,14 +1,18 @@
 package org.zhemu.alterego.service.impl;
 
 import io.agentscope.core.model.Model;
-import io.agentscope.core.session.Session;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.zhemu.alterego.manager.AgentMemoryStore;
+import org.zhemu.alterego.manager.AgentSummaryManager;
+import org.zhemu.alterego.manager.ModelResilienceManager;
 import org.zhemu.alterego.model.dto.post.AiPostGenerateResult;
 import org.zhemu.alterego.model.entity.Agent;
 import org.zhemu.alterego.model.entity.Species;
 import org.zhemu.alterego.service.AiPostGeneratorService;
 import org.zhemu.alterego.service.base.AbstractAiTextGenerator;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.util.Collections;
 
@@ -25,8 +29,10 @@ public class AiPostGeneratorServiceImpl
     extends AbstractAiTextGenerator<Void, AiPostGenerateResult> 
     implements AiPostGeneratorService {
     
-    public AiPostGeneratorServiceImpl(Model dashScopeModel, Session mysqlSession) {
-        super(dashScopeModel, mysqlSession);
+    public AiPostGeneratorServiceImpl(Model dashScopeModel, AgentMemoryStore agentMemoryStore,
+                                      AgentSummaryManager agentSummaryManager, Scheduler ioScheduler,
+                                      ModelResilienceManager modelResilienceManager) {
+        super(dashScopeModel, agentMemoryStore, agentSummaryManager, ioScheduler, modelResilienceManager);
     }
     
     @Override
@@ -41,14 +47,9 @@ public class AiPostGeneratorServiceImpl
     
     @Override
     protected String buildPrompt(Agent agent, Species species, Void unused) {
-        return String.format("""
+        return """
             现在你想发一条社交动态。
             
-            你的身份：
-            - 物种：%s
-            - 名字：%s
-            - 性格：%s
-            
             要求：
             1. 标题要吸引人，符合你的性格。
             2. 内容要短小精悍（100字以内），像发朋友圈一样。
@@ -61,7 +62,7 @@ public class AiPostGeneratorServiceImpl
               "content": "内容",
               "tags": ["标签1", "标签2"]
             }
-            """, species.getName(), agent.getAgentName(), agent.getPersonality());
+            """;
     }
     
     @Override
@@ -92,4 +93,9 @@ public class AiPostGeneratorServiceImpl
     public AiPostGenerateResult generatePost(Agent agent, Species species) {
         return generate(agent, species, null);
     }
+    
+    @Override
+    public Mono<AiPostGenerateResult> generatePostAsync(Agent agent, Species species) {
+        return generateAsync(agent, species, null);
+    }
 }
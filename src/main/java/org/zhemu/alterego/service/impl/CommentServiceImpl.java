@@ -8,13 +8,17 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.zhemu.alterego.exception.ErrorCode;
 import org.zhemu.alterego.exception.ThrowUtils;
+import org.zhemu.alterego.manager.CounterManager;
 import org.zhemu.alterego.mapper.CommentMapper;
+import org.zhemu.alterego.model.dto.comment.AgentCommentBatchRequest;
 import org.zhemu.alterego.model.dto.comment.AgentCommentGenerateRequest;
 import org.zhemu.alterego.model.dto.comment.AiCommentGenerateResult;
 import org.zhemu.alterego.model.dto.comment.CommentQueryRequest;
 import org.zhemu.alterego.model.entity.*;
+import org.zhemu.alterego.model.enums.CounterFieldEnum;
 import org.zhemu.alterego.model.enums.LikeTypeEnum;
 import org.zhemu.alterego.model.vo.AgentVO;
 import org.zhemu.alterego.model.vo.CommentPageVO;
@@ -25,7 +29,9 @@ import org.zhemu.alterego.service.*;
 import static org.zhemu.alterego.constant.Constants.COMMENT_ENERGY_COST;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -47,9 +53,10 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
     private final CommentLikeService commentLikeService;
     private final AiCommentGeneratorService aiCommentGeneratorService;
     private final RankService rankService;
+    private final CounterManager counterManager;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public CommentVO aiGenerateComment(AgentCommentGenerateRequest request, Long userId) {
         // 评论agent Id
         Long agentId = request.getAgentId();
@@ -68,11 +75,6 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
         ThrowUtils.throwIf(!agent.getUserId().equals(userId), 
                            ErrorCode.NO_AUTH_ERROR, "只能操作自己的Agent");
 
-        // 1.3 校验能量
-        ThrowUtils.throwIf(agent.getEnergy() < COMMENT_ENERGY_COST, 
-                           ErrorCode.OPERATION_ERROR, 
-                           "能量不足，无法评论（需要 " + COMMENT_ENERGY_COST + " 点）");
-
         // 1.4 获取帖子
         Post post = postService.getById(postId);
         ThrowUtils.throwIf(post == null, ErrorCode.NOT_FOUND_ERROR, "帖子不存在");
@@ -106,15 +108,99 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
         }
 
         // 1.6 获取物种信息
-        Species species = speciesService.getById(agent.getSpeciesId());
+        Species species = speciesService.getCachedSpecies(agent.getSpeciesId());
 
-        // ========== 2. AI 生成阶段 ==========
-        
-        AiCommentGenerateResult aiResult = aiCommentGeneratorService.generateComment(
-                agent, species, post, postAuthor, parentComment, parentCommentAuthor);
+        // 1.7 预扣能量（原子检查 + 扣除，自动提交，不开启事务）
+        boolean reserved = agentService.reserveEnergy(agentId, COMMENT_ENERGY_COST);
+        ThrowUtils.throwIf(!reserved, ErrorCode.OPERATION_ERROR,
+                           "能量不足，无法评论（需要 " + COMMENT_ENERGY_COST + " 点）");
 
-        // ========== 3. 保存评论 ==========
-        
+        Comment comment;
+        try {
+            // ========== 2. AI 生成阶段（事务外，不占用数据库连接） ==========
+
+            AiCommentGenerateResult aiResult = aiCommentGeneratorService.generateComment(
+                    agent, species, post, postAuthor, parentComment, parentCommentAuthor);
+
+            // ========== 3. 短事务落库 ==========
+
+            Comment finalParentComment = parentComment;
+            Long finalRootCommentId = rootCommentId;
+            comment = transactionTemplate.execute(status ->
+                    saveAiComment(agentId, postId, finalParentComment, finalRootCommentId, aiResult));
+        } catch (RuntimeException e) {
+            // 生成或落库失败，退还预扣能量
+            agentService.refundEnergy(agentId, COMMENT_ENERGY_COST);
+            throw e;
+        }
+
+        log.info("Agent {} generated comment on post {}", agentId, postId);
+
+        return CommentVO.objToVo(comment);
+    }
+
+    @Override
+    public List<CommentVO> aiBatchGenerateComment(AgentCommentBatchRequest request) {
+        Long postId = request.getPostId();
+
+        // ========== 1. 校验 + 预扣能量 ==========
+
+        Post post = postService.getById(postId);
+        ThrowUtils.throwIf(post == null, ErrorCode.NOT_FOUND_ERROR, "帖子不存在");
+        Agent postAuthor = agentService.getById(post.getAgentId());
+
+        List<Agent> agents = new ArrayList<>();
+        for (Agent agent : agentService.listByIds(new LinkedHashSet<>(request.getAgentIds()))) {
+            if (agentService.reserveEnergy(agent.getId(), COMMENT_ENERGY_COST)) {
+                agents.add(agent);
+            } else {
+                log.info("Agent {} 能量不足，跳过批量评论", agent.getId());
+            }
+        }
+        if (agents.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Species> speciesMap = speciesService.getCachedSpeciesMap(
+                agents.stream().map(Agent::getSpeciesId).collect(Collectors.toSet()));
+
+        // ========== 2. 批量 AI 生成（事务外，并发发起） ==========
+
+        List<AiCommentGenerateResult> aiResults;
+        try {
+            aiResults = aiCommentGeneratorService.generateCommentBatch(agents, speciesMap, post, postAuthor);
+        } catch (RuntimeException e) {
+            agents.forEach(agent -> agentService.refundEnergy(agent.getId(), COMMENT_ENERGY_COST));
+            throw e;
+        }
+
+        // ========== 3. 逐条短事务落库，单条失败只影响该 Agent ==========
+
+        List<CommentVO> commentVOList = new ArrayList<>(agents.size());
+        for (int i = 0; i < agents.size(); i++) {
+            Long agentId = agents.get(i).getId();
+            AiCommentGenerateResult aiResult = aiResults.get(i);
+            try {
+                Comment comment = transactionTemplate.execute(status ->
+                        saveAiComment(agentId, postId, null, null, aiResult));
+                commentVOList.add(CommentVO.objToVo(comment));
+            } catch (RuntimeException e) {
+                log.warn("批量评论落库失败, agentId={}, postId={}", agentId, postId, e);
+                agentService.refundEnergy(agentId, COMMENT_ENERGY_COST);
+            }
+        }
+        log.info("批量评论完成: postId={}, 请求 {} 个 Agent, 成功 {} 条", postId, request.getAgentIds().size(),
+                commentVOList.size());
+        return commentVOList;
+    }
+
+    /**
+     * 保存 AI 评论并处理点赞/踩、各项计数（在短事务内调用）
+     */
+    private Comment saveAiComment(Long agentId, Long postId, Comment parentComment, Long rootCommentId,
+                                  AiCommentGenerateResult aiResult) {
+        Long parentCommentId = parentComment != null ? parentComment.getId() : null;
+
+        // 1. 保存评论
         Comment comment = Comment.builder()
                 .postId(postId)
                 .agentId(agentId)
@@ -130,53 +216,33 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
         boolean saved = this.save(comment);
         ThrowUtils.throwIf(!saved, ErrorCode.OPERATION_ERROR, "评论失败");
 
-        // 3.1 如果是一级评论，rootCommentId 指向自己
+        // 1.1 如果是一级评论，rootCommentId 指向自己
         if (parentCommentId == null) {
             comment.setRootCommentId(comment.getId());
             this.updateById(comment);
         }
 
-        // 3.2 更新父评论的 replyCount
+        // 1.2 更新父评论的 replyCount（写回式计数，事务提交后生效）
         if (parentComment != null) {
-            this.lambdaUpdate()
-                    .eq(Comment::getId, parentComment.getId())
-                    .setSql("reply_count = reply_count + 1")
-                    .update();
+            counterManager.increment(CounterFieldEnum.COMMENT_REPLY, parentComment.getId(), 1);
 
             // 如果父评论不是根评论，也要更新根评论的回复数（用于两级评论展示）
             if (!parentComment.getId().equals(rootCommentId)) {
-                this.lambdaUpdate()
-                        .eq(Comment::getId, rootCommentId)
-                        .setSql("reply_count = reply_count + 1")
-                        .update();
+                counterManager.increment(CounterFieldEnum.COMMENT_REPLY, rootCommentId, 1);
             }
         }
 
-        // ========== 4. 处理 Like/Dislike ==========
-        
+        // 2. 处理 Like/Dislike
         if (parentCommentId != null) {
             handleCommentLike(agentId, parentCommentId, aiResult);
         } else {
             handlePostLike(agentId, postId, aiResult);
         }
 
-        // ========== 5. 更新帖子评论数 ==========
-        
-        postService.lambdaUpdate()
-                .eq(Post::getId, postId)
-                .setSql("comment_count = comment_count + 1")
-                .update();
-
-        // ========== 6. 更新 Agent 状态 ==========
-        
-        agentService.lambdaUpdate()
-                .eq(Agent::getId, agentId)
-                .setSql("energy = energy - " + COMMENT_ENERGY_COST + ", comment_count = comment_count + 1")
-                .update();
-
-        log.info("Agent {} generated comment on post {}", agentId, postId);
-
-        return CommentVO.objToVo(comment);
+        // 3. 更新帖子评论数、Agent 评论数（能量已在生成前预扣）
+        counterManager.increment(CounterFieldEnum.POST_COMMENT, postId, 1);
+        counterManager.increment(CounterFieldEnum.AGENT_COMMENT, agentId, 1);
+        return comment;
     }
 
     @Override
@@ -267,19 +333,18 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
 
         // 物种
         Set<Long> speciesIds = agentMap.values().stream().map(Agent::getSpeciesId).collect(Collectors.toSet());
-        Map<Long, Species> speciesMap = speciesService.listByIds(speciesIds).stream()
-                .collect(Collectors.toMap(Species::getId, species -> species));
+        Map<Long, Species> speciesMap = speciesService.getCachedSpeciesMap(speciesIds);
 
         // 点赞状态
         Map<Long, Integer> likeStatusMap = new HashMap<>();
         if (userId != null) {
-            Agent userAgent = agentService.lambdaQuery().eq(Agent::getUserId, userId).one();
-            if (userAgent != null) {
+            Long userAgentId = agentService.getAgentIdByUserId(userId);
+            if (userAgentId != null) {
                 Set<Long> commentIds = commentList.stream().map(Comment::getId).collect(Collectors.toSet());
                 if (CollUtil.isNotEmpty(commentIds)) {
                     List<CommentLike> likes = commentLikeService.lambdaQuery()
                             .in(CommentLike::getCommentId, commentIds)
-                            .eq(CommentLike::getAgentId, userAgent.getId())
+                            .eq(CommentLike::getAgentId, userAgentId)
                             .list();
                     likeStatusMap = likes.stream()
                             .collect(Collectors.toMap(CommentLike::getCommentId, CommentLike::getLikeType));
@@ -288,9 +353,20 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
         }
         Map<Long, Integer> finalLikeStatusMap = likeStatusMap;
 
+        // 合并尚未刷盘的计数增量
+        Map<CounterFieldEnum, Map<Long, Long>> pendingDeltas = counterManager.getPendingDeltas(
+                List.of(CounterFieldEnum.COMMENT_LIKE, CounterFieldEnum.COMMENT_DISLIKE, CounterFieldEnum.COMMENT_REPLY),
+                commentList.stream().map(Comment::getId).collect(Collectors.toList()));
+
         List<CommentVO> commentVOList = commentList.stream().map(comment -> {
             CommentVO commentVO = CommentVO.objToVo(comment);
-            
+            commentVO.setLikeCount(CounterManager.merge(commentVO.getLikeCount(),
+                    pendingDeltas, CounterFieldEnum.COMMENT_LIKE, comment.getId()));
+            commentVO.setDislikeCount(CounterManager.merge(commentVO.getDislikeCount(),
+                    pendingDeltas, CounterFieldEnum.COMMENT_DISLIKE, comment.getId()));
+            commentVO.setReplyCount(CounterManager.merge(commentVO.getReplyCount(),
+                    pendingDeltas, CounterFieldEnum.COMMENT_REPLY, comment.getId()));
+
             // 设置当前评论作者
             Agent agent = agentMap.get(comment.getAgentId());
             if (agent != null) {
@@ -368,20 +444,16 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
             existingLike.setUpdateTime(LocalDateTime.now());
             postLikeService.updateById(existingLike);
 
-            // 使用 setSql 原子更新
+            // 写回式计数，刷盘时以 GREATEST(..., 0) 兜底
             if (wasLike) {
                 // 原来是赞，现在变成踩
-                postService.lambdaUpdate()
-                        .eq(Post::getId, postId)
-                        .setSql("like_count = GREATEST(like_count - 1, 0), dislike_count = dislike_count + 1")
-                        .update();
+                counterManager.increment(CounterFieldEnum.POST_LIKE, postId, -1);
+                counterManager.increment(CounterFieldEnum.POST_DISLIKE, postId, 1);
                 rankService.incrementAgentLike(postOwnerAgentId, -1);
             } else {
                 // 原来是踩，现在变成赞
-                postService.lambdaUpdate()
-                        .eq(Post::getId, postId)
-                        .setSql("dislike_count = GREATEST(dislike_count - 1, 0), like_count = like_count + 1")
-                        .update();
+                counterManager.increment(CounterFieldEnum.POST_DISLIKE, postId, -1);
+                counterManager.increment(CounterFieldEnum.POST_LIKE, postId, 1);
                 rankService.incrementAgentLike(postOwnerAgentId, 1);
             }
         } else {
@@ -396,18 +468,12 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
                     .build();
             postLikeService.save(postLike);
 
-            // 原子更新计数
+            // 写回式计数
             if (newTypeEnum == LikeTypeEnum.LIKE) {
-                postService.lambdaUpdate()
-                        .eq(Post::getId, postId)
-                        .setSql("like_count = like_count + 1")
-                        .update();
+                counterManager.increment(CounterFieldEnum.POST_LIKE, postId, 1);
                 rankService.incrementAgentLike(postOwnerAgentId, 1);
             } else {
-                postService.lambdaUpdate()
-                        .eq(Post::getId, postId)
-                        .setSql("dislike_count = dislike_count + 1")
-                        .update();
+                counterManager.increment(CounterFieldEnum.POST_DISLIKE, postId, 1);
             }
         }
     }
@@ -451,20 +517,16 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
             existingLike.setUpdateTime(LocalDateTime.now());
             commentLikeService.updateById(existingLike);
 
-            // 原子更新计数
+            // 写回式计数，刷盘时以 GREATEST(..., 0) 兜底
             if (wasLike) {
                 // 原来是赞，现在变成踩
-                this.lambdaUpdate()
-                        .eq(Comment::getId, commentId)
-                        .setSql("like_count = GREATEST(like_count - 1, 0), dislike_count = dislike_count + 1")
-                        .update();
+                counterManager.increment(CounterFieldEnum.COMMENT_LIKE, commentId, -1);
+                counterManager.increment(CounterFieldEnum.COMMENT_DISLIKE, commentId, 1);
                 rankService.incrementAgentLike(commentOwnerAgentId, -1);
             } else {
                 // 原来是踩，现在变成赞
-                this.lambdaUpdate()
-                        .eq(Comment::getId, commentId)
-                        .setSql("dislike_count = GREATEST(dislike_count - 1, 0), like_count = like_count + 1")
-                        .update();
+                counterManager.increment(CounterFieldEnum.COMMENT_DISLIKE, commentId, -1);
+                counterManager.increment(CounterFieldEnum.COMMENT_LIKE, commentId, 1);
                 rankService.incrementAgentLike(commentOwnerAgentId, 1);
             }
         } else {
@@ -479,18 +541,12 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
                     .build();
             commentLikeService.save(commentLike);
 
-            // 原子更新计数
+            // 写回式计数
             if (newTypeEnum == LikeTypeEnum.LIKE) {
-                this.lambdaUpdate()
-                        .eq(Comment::getId, commentId)
-                        .setSql("like_count = like_count + 1")
-                        .update();
+                counterManager.increment(CounterFieldEnum.COMMENT_LIKE, commentId, 1);
                 rankService.incrementAgentLike(commentOwnerAgentId, 1);
             } else {
-                this.lambdaUpdate()
-                        .eq(Comment::getId, commentId)
-                        .setSql("dislike_count = dislike_count + 1")
-                        .update();
+                counterManager.increment(CounterFieldEnum.COMMENT_DISLIKE, commentId, 1);
             }
         }
     }
@@ -518,10 +574,7 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
         comment.setRootCommentId(comment.getId());
         this.updateById(comment);
 
-        postService.lambdaUpdate()
-                .eq(Post::getId, postId)
-                .setSql("comment_count = comment_count + 1")
-                .update();
+        counterManager.increment(CounterFieldEnum.POST_COMMENT, postId, 1);
 
         return comment;
     }
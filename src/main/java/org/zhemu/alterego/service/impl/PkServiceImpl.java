@@ -5,19 +5,26 @@ import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.zhemu.alterego.event.PostChangedEvent;
 import org.zhemu.alterego.exception.BusinessException;
 import org.zhemu.alterego.exception.ErrorCode;
 import org.zhemu.alterego.exception.ThrowUtils;
+import org.zhemu.alterego.manager.CounterManager;
+import org.zhemu.alterego.manager.PkTallyManager;
 import org.zhemu.alterego.model.dto.pk.AiPkGenerateResult;
 import org.zhemu.alterego.model.dto.pk.AiPkVoteResult;
 import org.zhemu.alterego.model.dto.pk.PkCreateRequest;
 import org.zhemu.alterego.model.dto.pk.PkQueryRequest;
 import org.zhemu.alterego.model.dto.pk.PkVoteRequest;
 import org.zhemu.alterego.model.entity.*;
+import org.zhemu.alterego.model.enums.CounterFieldEnum;
 import org.zhemu.alterego.model.vo.PkPostVO;
+import org.zhemu.alterego.model.vo.PkTallyVO;
 import org.zhemu.alterego.model.vo.PkVoteOptionVO;
 import org.zhemu.alterego.model.vo.PostVO;
 import org.zhemu.alterego.service.AgentService;
@@ -32,9 +39,11 @@ import org.zhemu.alterego.service.SpeciesService;
 import org.zhemu.alterego.service.TagService;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.zhemu.alterego.constant.Constants.PK_CREATE_ENERGY_COST;
@@ -59,9 +68,12 @@ public class PkServiceImpl implements PkService {
     private final AiPkVoteGeneratorService aiPkVoteGeneratorService;
     private final CommentService commentService;
     private final TagService tagService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CounterManager counterManager;
+    private final PkTallyManager pkTallyManager;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public PkPostVO createPk(PkCreateRequest request, Long userId) {
         Long agentId = request.getAgentId();
         
@@ -72,21 +84,36 @@ public class PkServiceImpl implements PkService {
         // 2. 校验归属
         ThrowUtils.throwIf(!agent.getUserId().equals(userId), ErrorCode.NO_AUTH_ERROR, "只能操作自己的Agent");
         
-        // 3. 原子能量检查+扣除（CRITICAL: 修复并发问题）
-        boolean energyOk = agentService.lambdaUpdate()
-            .eq(Agent::getId, agentId)
-            .ge(Agent::getEnergy, PK_CREATE_ENERGY_COST)
-            .setSql("energy = energy - " + PK_CREATE_ENERGY_COST + ", post_count = post_count + 1")
-            .update();
+        // 3. 原子能量检查+预扣（自动提交，不开启事务）
+        boolean energyOk = agentService.reserveEnergy(agentId, PK_CREATE_ENERGY_COST);
         ThrowUtils.throwIf(!energyOk, ErrorCode.OPERATION_ERROR, "能量不足或并发冲突（需" + PK_CREATE_ENERGY_COST + " 点）");
         
-        // 4. 获取物种信息
-        Species species = speciesService.getById(agent.getSpeciesId());
+        Post post;
+        try {
+            // 4. 调用 AI 生成 PK 话题（事务外，不占用数据库连接）
+            Species species = speciesService.getCachedSpecies(agent.getSpeciesId());
+            AiPkGenerateResult aiResult = aiPkGeneratorService.generatePk(agent, species);
+            
+            // 5. 短事务落库
+            post = transactionTemplate.execute(status -> savePk(agentId, aiResult));
+        } catch (RuntimeException e) {
+            // 生成或落库失败，退还预扣能量
+            agentService.refundEnergy(agentId, PK_CREATE_ENERGY_COST);
+            throw e;
+        }
         
-        // 5. 调用 AI 生成 PK 话题
-        AiPkGenerateResult aiResult = aiPkGeneratorService.generatePk(agent, species);
+        log.info("Agent {} created PK successfully: {}", agentId, post.getId());
+        eventPublisher.publishEvent(PostChangedEvent.created(post.getId()));
         
-        // 6. 保存 Post（postType = 'pk'）
+        // 6. 返回 PkPostVO
+        return getPkById(post.getId(), userId);
+    }
+    
+    /**
+     * 保存 PK 帖子、两个投票选项、标签并更新 Agent 发帖数（在短事务内调用）
+     */
+    private Post savePk(Long agentId, AiPkGenerateResult aiResult) {
+        // 1. 保存 Post（postType = 'pk'）
         Post post = Post.builder()
             .agentId(agentId)
             .postType("pk")
@@ -102,7 +129,7 @@ public class PkServiceImpl implements PkService {
         boolean saved = postService.save(post);
         ThrowUtils.throwIf(!saved, ErrorCode.OPERATION_ERROR, "发起PK失败");
         
-        // 7. 保存两个 PkVoteOption（status='active', endTime=now+24h）
+        // 2. 保存两个 PkVoteOption（status='active', endTime=now+24h）
         LocalDateTime endTime = LocalDateTime.now().plusHours(PK_DURATION_HOURS);
         PkVoteOption optionA = PkVoteOption.builder()
             .postId(post.getId())
@@ -125,18 +152,21 @@ public class PkServiceImpl implements PkService {
             .isDelete(0)
             .build();
         pkVoteOptionService.saveBatch(Arrays.asList(optionA, optionB));
+        // 实时票数 Hash 随 PK 创建（事务提交后）
+        pkTallyManager.initTally(post.getId(), List.of(optionA.getId(), optionB.getId()));
         
-        // 8. 保存标签
+        // 3. 保存标签
         tagService.savePostTags(post.getId(), aiResult.tags);
         
-        log.info("Agent {} created PK successfully: {}", agentId, post.getId());
-        
-        // 9. 返回 PkPostVO
-        return getPkById(post.getId(), userId);
+        // 4. 更新 Agent 发帖数
+        agentService.lambdaUpdate()
+            .eq(Agent::getId, agentId)
+            .setSql("post_count = post_count + 1")
+            .update();
+        return post;
     }
     
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public PkPostVO vote(PkVoteRequest request, Long userId) {
         Long agentId = request.getAgentId();
         Long postId = request.getPostId();
@@ -167,32 +197,55 @@ public class PkServiceImpl implements PkService {
         // 5. 校验未过期
         ThrowUtils.throwIf(optionA.getEndTime().isBefore(LocalDateTime.now()), ErrorCode.OPERATION_ERROR, "PK投票已过期");
         
-        // 6. 原子能量检查+扣除
-        boolean energyOk = agentService.lambdaUpdate()
-            .eq(Agent::getId, agentId)
-            .ge(Agent::getEnergy, PK_VOTE_ENERGY_COST)  // 原子检查
-            .setSql("energy = energy - " + PK_VOTE_ENERGY_COST + ", comment_count = comment_count + 1")
-            .update();
-        ThrowUtils.throwIf(!energyOk, ErrorCode.OPERATION_ERROR, "能量不足或并发冲突（需" + PK_VOTE_ENERGY_COST + " 点）");
+        // 6. 已投过票直接拒绝，避免白白调用 AI（并发重复由唯一索引兜底）
+        boolean voted = agentVoteRecordService.lambdaQuery()
+            .eq(AgentVoteRecord::getAgentId, agentId)
+            .eq(AgentVoteRecord::getPostId, postId)
+            .exists();
+        ThrowUtils.throwIf(voted, ErrorCode.OPERATION_ERROR, "你的 Agent 已经投过票了");
         
-        // 7. 获取物种信息
-        Species species = speciesService.getById(agent.getSpeciesId());
-        
-        // 8. 调用 AI 生成投票选择
-        AiPkVoteResult aiResult = aiPkVoteGeneratorService.generateVote(agent, species, post, optionA, optionB);
+        // 7. 原子能量检查+预扣（自动提交，不开启事务）
+        boolean energyOk = agentService.reserveEnergy(agentId, PK_VOTE_ENERGY_COST);
+        ThrowUtils.throwIf(!energyOk, ErrorCode.OPERATION_ERROR, "能量不足或并发冲突（需" + PK_VOTE_ENERGY_COST + " 点）");
         
-        // 9. 解析 selectedOption（A/B → optionId）
+        AiPkVoteResult aiResult;
         Long selectedOptionId;
-        if ("A".equalsIgnoreCase(aiResult.selectedOption)) {
-            selectedOptionId = optionA.getId();
-        } else if ("B".equalsIgnoreCase(aiResult.selectedOption)) {
-            selectedOptionId = optionB.getId();
-        } else {
-            log.warn("AI returned invalid selectedOption: {}, defaulting to A", aiResult.selectedOption);
-            selectedOptionId = optionA.getId();
+        try {
+            // 8. 调用 AI 生成投票选择（事务外，不占用数据库连接）
+            Species species = speciesService.getCachedSpecies(agent.getSpeciesId());
+            aiResult = aiPkVoteGeneratorService.generateVote(agent, species, post, optionA, optionB);
+            
+            // 9. 解析 selectedOption（A/B → optionId）
+            if ("A".equalsIgnoreCase(aiResult.selectedOption)) {
+                selectedOptionId = optionA.getId();
+            } else if ("B".equalsIgnoreCase(aiResult.selectedOption)) {
+                selectedOptionId = optionB.getId();
+            } else {
+                log.warn("AI returned invalid selectedOption: {}, defaulting to A", aiResult.selectedOption);
+                selectedOptionId = optionA.getId();
+            }
+            
+            // 10. 短事务落库：投票记录 + 票数 + 评论
+            Long votedOptionId = selectedOptionId;
+            transactionTemplate.executeWithoutResult(status ->
+                saveVote(agentId, postId, votedOptionId, aiResult.reason));
+        } catch (RuntimeException e) {
+            // 生成或落库失败（含并发重复投票），退还预扣能量
+            agentService.refundEnergy(agentId, PK_VOTE_ENERGY_COST);
+            throw e;
         }
         
-        // 10. 保存投票记录（捕获 DuplicateKeyException）
+        log.info("Agent {} voted on PK {}, option: {}", agentId, postId, aiResult.selectedOption);
+        
+        // 11. 返回 PkPostVO
+        return getPkById(postId, userId);
+    }
+    
+    /**
+     * 保存投票记录、更新票数与评论数、保存投票理由评论（在短事务内调用）
+     */
+    private void saveVote(Long agentId, Long postId, Long selectedOptionId, String reason) {
+        // 1. 保存投票记录（捕获 DuplicateKeyException）
         try {
             AgentVoteRecord voteRecord = AgentVoteRecord.builder()
                 .agentId(agentId)
@@ -207,19 +260,12 @@ public class PkServiceImpl implements PkService {
             throw new BusinessException(ErrorCode.OPERATION_ERROR, "你的 Agent 已经投过票了");
         }
         
-        // 11. 原子更新选项票数
-        pkVoteOptionService.lambdaUpdate()
-            .eq(PkVoteOption::getId, selectedOptionId)
-            .setSql("vote_count = vote_count + 1")
-            .update();
-        
-        // 12. 保存评论（AI 生成的 reason 作为评论内容）
-        commentService.createAgentComment(postId, agentId, aiResult.reason);
+        // 2. 更新选项票数（同时累加实时票数并通知订阅者）、Agent 评论数（写回式计数，事务提交后生效）
+        pkTallyManager.recordVote(postId, selectedOptionId);
+        counterManager.increment(CounterFieldEnum.AGENT_COMMENT, agentId, 1);
         
-        log.info("Agent {} voted on PK {}, option: {}", agentId, postId, aiResult.selectedOption);
-        
-        // 13. 返回 PkPostVO
-        return getPkById(postId, userId);
+        // 3. 保存评论（AI 生成的 reason 作为评论内容）
+        commentService.createAgentComment(postId, agentId, reason);
     }
     
     @Override
@@ -234,20 +280,11 @@ public class PkServiceImpl implements PkService {
         }
 
         // 可选过滤：status（基于投票选项状态）
+        // 用关联子查询由数据库做半连接，不再把所有匹配选项的 postId 取回应用层拼成 IN 列表
         String status = request.getStatus();
         if (status != null && !status.isBlank()) {
-            List<Long> postIds = pkVoteOptionService.lambdaQuery()
-                .select(PkVoteOption::getPostId)
-                .eq(PkVoteOption::getStatus, status)
-                .list()
-                .stream()
-                .map(PkVoteOption::getPostId)
-                .distinct()
-                .collect(Collectors.toList());
-            if (postIds.isEmpty()) {
-                return new Page<>(request.getPageNum(), request.getPageSize(), 0);
-            }
-            wrapper.in(Post::getId, postIds);
+            wrapper.apply("EXISTS (SELECT 1 FROM pk_vote_option o WHERE o.post_id = post.id"
+                + " AND o.status = {0} AND o.is_delete = 0)", status);
         }
         
         // 排序
@@ -268,18 +305,8 @@ public class PkServiceImpl implements PkService {
             wrapper
         );
         
-        // 3. 批量转换为 PkPostVO
-        List<PkPostVO> pkPostVOList = postPage.getRecords().stream()
-            .map(post -> {
-                try {
-                    return getPkById(post.getId(), userId);
-                } catch (Exception e) {
-                    log.error("Error converting post {} to PkPostVO", post.getId(), e);
-                    return null;
-                }
-            })
-            .filter(Objects::nonNull)
-            .collect(Collectors.toList());
+        // 3. 批量组装 PkPostVO（每页查询数固定，与页大小无关）
+        List<PkPostVO> pkPostVOList = toPkPostVOs(postPage.getRecords(), userId);
         
         // 4. 返回分页结果
         Page<PkPostVO> resultPage = new Page<>(request.getPageNum(), request.getPageSize(), postPage.getTotal());
@@ -293,60 +320,103 @@ public class PkServiceImpl implements PkService {
         Post post = postService.getById(postId);
         ThrowUtils.throwIf(post == null, ErrorCode.NOT_FOUND_ERROR, "帖子不存在");
         ThrowUtils.throwIf(!"pk".equals(post.getPostType()), ErrorCode.PARAMS_ERROR, "该帖子不是PK类型");
-        
-        // 2. 查询两个 PkVoteOption
-        List<PkVoteOption> options = pkVoteOptionService.lambdaQuery()
-            .eq(PkVoteOption::getPostId, postId)
+
+        // 2. 与列表共用批量组装
+        List<PkPostVO> pkPostVOs = toPkPostVOs(List.of(post), userId);
+        ThrowUtils.throwIf(pkPostVOs.isEmpty(), ErrorCode.SYSTEM_ERROR, "PK选项不存在");
+        return pkPostVOs.get(0);
+    }
+
+    /**
+     * 批量组装 PkPostVO：选项、用户投票记录各一次查询，未刷盘计数各一次 Redis 读取
+     * 没有选项的帖子会被跳过
+     */
+    private List<PkPostVO> toPkPostVOs(List<Post> posts, Long userId) {
+        if (posts.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> postIds = posts.stream().map(Post::getId).collect(Collectors.toList());
+
+        // 1. 一次查出本页所有投票选项
+        List<PkVoteOption> allOptions = pkVoteOptionService.lambdaQuery()
+            .in(PkVoteOption::getPostId, postIds)
             .orderByAsc(PkVoteOption::getId)
             .list();
-        ThrowUtils.throwIf(options.isEmpty(), ErrorCode.SYSTEM_ERROR, "PK选项不存在");
-        
-        // 3. 计算总票数
-        int totalVotes = options.stream()
-            .mapToInt(PkVoteOption::getVoteCount)
-            .sum();
-        
-        // 4. 转换为 PkVoteOptionVO
-        List<PkVoteOptionVO> optionVOs = options.stream()
-            .map(option -> PkVoteOptionVO.objToVo(option, totalVotes))
-            .collect(Collectors.toList());
-        
-        // 5. 查询当前用户 Agent 的投票记录
-        Agent userAgent = null;
-        if (userId != null) {
-            userAgent = agentService.lambdaQuery()
-                .eq(Agent::getUserId, userId)
-                .one();
+        Map<Long, List<PkVoteOption>> optionsByPost = allOptions.stream()
+            .collect(Collectors.groupingBy(PkVoteOption::getPostId));
+
+        // 2. 合并尚未刷盘的票数、帖子计数
+        Map<Long, Long> pendingVotes = counterManager.getPendingDeltas(CounterFieldEnum.PK_OPTION_VOTE,
+            allOptions.stream().map(PkVoteOption::getId).collect(Collectors.toList()));
+        allOptions.forEach(option -> option.setVoteCount((int) Math.max(0,
+            option.getVoteCount() + pendingVotes.getOrDefault(option.getId(), 0L))));
+        Map<CounterFieldEnum, Map<Long, Long>> pendingPostDeltas = counterManager.getPendingDeltas(
+            List.of(CounterFieldEnum.POST_LIKE, CounterFieldEnum.POST_DISLIKE, CounterFieldEnum.POST_COMMENT),
+            postIds);
+
+        // 3. 一次查出当前用户 Agent 在本页的投票记录
+        Map<Long, Long> votedOptionByPost = new HashMap<>();
+        Long userAgentId = agentService.getAgentIdByUserId(userId);
+        if (userAgentId != null) {
+            agentVoteRecordService.lambdaQuery()
+                .select(AgentVoteRecord::getPostId, AgentVoteRecord::getOptionId)
+                .eq(AgentVoteRecord::getAgentId, userAgentId)
+                .in(AgentVoteRecord::getPostId, postIds)
+                .list()
+                .forEach(record -> votedOptionByPost.put(record.getPostId(), record.getOptionId()));
         }
-        
-        Boolean hasVoted = false;
-        Long votedOptionId = null;
-        if (userAgent != null) {
-            AgentVoteRecord voteRecord = agentVoteRecordService.lambdaQuery()
-                .eq(AgentVoteRecord::getAgentId, userAgent.getId())
-                .eq(AgentVoteRecord::getPostId, postId)
-                .one();
-            if (voteRecord != null) {
-                hasVoted = true;
-                votedOptionId = voteRecord.getOptionId();
+
+        // 4. 按原顺序组装
+        List<PkPostVO> pkPostVOList = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            Long postId = post.getId();
+            List<PkVoteOption> options = optionsByPost.get(postId);
+            if (options == null || options.isEmpty()) {
+                log.error("PK options missing for post {}", postId);
+                continue;
             }
+            post.setLikeCount(CounterManager.merge(post.getLikeCount(), pendingPostDeltas, CounterFieldEnum.POST_LIKE, postId));
+            post.setDislikeCount(CounterManager.merge(post.getDislikeCount(), pendingPostDeltas, CounterFieldEnum.POST_DISLIKE, postId));
+            post.setCommentCount(CounterManager.merge(post.getCommentCount(), pendingPostDeltas, CounterFieldEnum.POST_COMMENT, postId));
+
+            int totalVotes = options.stream()
+                .mapToInt(PkVoteOption::getVoteCount)
+                .sum();
+            List<PkVoteOptionVO> optionVOs = options.stream()
+                .map(option -> PkVoteOptionVO.objToVo(option, totalVotes))
+                .collect(Collectors.toList());
+
+            PkPostVO pkPostVO = PkPostVO.fromPostVO(PostVO.objToVo(post));
+            pkPostVO.setOptions(optionVOs);
+            pkPostVO.setStatus(options.get(0).getStatus());
+            pkPostVO.setEndTime(options.get(0).getEndTime());
+            pkPostVO.setTotalVotes(totalVotes);
+            pkPostVO.setHasVoted(votedOptionByPost.containsKey(postId));
+            pkPostVO.setVotedOptionId(votedOptionByPost.get(postId));
+            pkPostVOList.add(pkPostVO);
         }
-        
-        // 6. 转换 Post 为 PostVO
-        PostVO postVO = PostVO.objToVo(post);
-        
-        // 7. 组装 PkPostVO
-        PkPostVO pkPostVO = PkPostVO.fromPostVO(postVO);
-        pkPostVO.setOptions(optionVOs);
-        pkPostVO.setStatus(options.get(0).getStatus());
-        pkPostVO.setEndTime(options.get(0).getEndTime());
-        pkPostVO.setTotalVotes(totalVotes);
-        pkPostVO.setHasVoted(hasVoted);
-        pkPostVO.setVotedOptionId(votedOptionId);
-        
-        return pkPostVO;
+        return pkPostVOList;
     }
     
+    @Override
+    public SseEmitter subscribeTally(Long postId, String client) {
+        ThrowUtils.throwIf(postId == null || postId <= 0, ErrorCode.PARAMS_ERROR, "帖子ID不合法");
+        // 校验 PK 存在（票数 Hash 不存在时在此重建，之后的读取都命中 Redis）
+        ThrowUtils.throwIf(pkTallyManager.getTally(postId).isEmpty(), ErrorCode.NOT_FOUND_ERROR, "PK不存在");
+        // 先注册再读取当前票数，避免两者之间的变更丢失
+        SseEmitter emitter = pkTallyManager.register(postId, client);
+        pkTallyManager.send(emitter, pkTallyManager.toTallyVO(postId, pkTallyManager.getTally(postId), null));
+        return emitter;
+    }
+
+    @Override
+    public PkTallyVO reconcileTally(Long postId) {
+        ThrowUtils.throwIf(postId == null || postId <= 0, ErrorCode.PARAMS_ERROR, "帖子ID不合法");
+        Map<Long, Long> tally = pkTallyManager.reconcile(postId);
+        ThrowUtils.throwIf(tally.isEmpty(), ErrorCode.NOT_FOUND_ERROR, "PK不存在");
+        return pkTallyManager.toTallyVO(postId, tally, null);
+    }
+
     @Override
     public int closeExpiredPks() {
         LambdaUpdateWrapper<PkVoteOption> updateWrapper = new LambdaUpdateWrapper<>();
@@ -1,5 +1,6 @@
 package org.zhemu.alterego.service.impl;
 
+import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
@@ -7,11 +8,16 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.zhemu.alterego.exception.BusinessException;
 import org.zhemu.alterego.exception.ErrorCode;
+import org.zhemu.alterego.event.PostChangedEvent;
 import org.zhemu.alterego.exception.ThrowUtils;
+import org.zhemu.alterego.manager.CounterManager;
+import org.zhemu.alterego.manager.PostCacheManager;
 import org.zhemu.alterego.mapper.PostMapper;
 import org.zhemu.alterego.model.dto.post.AgentPostGenerateRequest;
 import org.zhemu.alterego.model.dto.post.AiPostGenerateResult;
@@ -22,7 +28,9 @@ import org.zhemu.alterego.model.entity.PostLike;
 import org.zhemu.alterego.model.entity.PostTag;
 import org.zhemu.alterego.model.entity.Species;
 import org.zhemu.alterego.model.entity.Tag;
+import org.zhemu.alterego.model.enums.CounterFieldEnum;
 import org.zhemu.alterego.model.vo.AgentVO;
+import org.zhemu.alterego.model.vo.PostPageVO;
 import org.zhemu.alterego.model.vo.PostVO;
 import org.zhemu.alterego.model.vo.SpeciesVO;
 import org.zhemu.alterego.service.*;
@@ -34,6 +42,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -52,35 +61,61 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post>
     private final PostLikeService postLikeService;
     private final TagService tagService;
     private final PostTagService postTagService;
+    private final PostCacheManager postCacheManager;
+    private final CounterManager counterManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * OFFSET 分页只缓存前 N 页（热门首屏），更深的页直接回源
+     */
+    @Value("${post.cache.max-page-num:5}")
+    private int maxCachedPageNum;
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public PostVO aiGeneratePost(AgentPostGenerateRequest request, Long userId) {
         Long agentId = request.getAgentId();
 
         // 1. 获取并校验Agent
         Agent agent = agentService.getById(agentId);
-        ThrowUtils.throwIf(agent == null, ErrorCode.NOT_FOUND_ERROR, "Agent不存在?");
+        ThrowUtils.throwIf(agent == null, ErrorCode.NOT_FOUND_ERROR, "Agent不存在");
 
         // 2. 校验归属
         ThrowUtils.throwIf(!agent.getUserId().equals(userId), ErrorCode.NO_AUTH_ERROR, "只能操作自己的Agent");
 
-        // 3. 校验能量
-        ThrowUtils.throwIf(agent.getEnergy() < POST_ENERGY_COST, ErrorCode.OPERATION_ERROR, "能量不足，无法发帖（需" + POST_ENERGY_COST + " 点）");
+        // 3. 预扣能量（原子检查 + 扣除，自动提交，不开启事务）
+        boolean reserved = agentService.reserveEnergy(agentId, POST_ENERGY_COST);
+        ThrowUtils.throwIf(!reserved, ErrorCode.OPERATION_ERROR, "能量不足，无法发帖（需" + POST_ENERGY_COST + " 点）");
+
+        Post post;
+        try {
+            // 4. 调用 AI 生成内容（事务外，不占用数据库连接）
+            Species species = speciesService.getCachedSpecies(agent.getSpeciesId());
+            AiPostGenerateResult aiResult = aiPostGeneratorService.generatePost(agent, species);
+
+            // 5. 短事务落库
+            post = transactionTemplate.execute(status -> savePost(agentId, aiResult));
+        } catch (RuntimeException e) {
+            // 生成或落库失败，退还预扣能量
+            agentService.refundEnergy(agentId, POST_ENERGY_COST);
+            throw e;
+        }
 
-        // 4. 获取物种信息
-        Species species = speciesService.getById(agent.getSpeciesId());
+        log.info("Agent {} post generated successfully: {}", agentId, post.getId());
+        eventPublisher.publishEvent(PostChangedEvent.created(post.getId()));
 
-        // 5. 调用 AI 生成内容
-        AiPostGenerateResult aiResult = aiPostGeneratorService.generatePost(agent, species);
+        return PostVO.objToVo(post);
+    }
 
-        // 6. 保存帖子
+    /**
+     * 保存 AI 生成的帖子、标签并更新 Agent 发帖数（在短事务内调用）
+     */
+    private Post savePost(Long agentId, AiPostGenerateResult aiResult) {
         Post post = Post.builder()
                 .agentId(agentId)
                 .title(aiResult.title)
                 .content(aiResult.content)
                 .postType("normal")
-                // 转换�?JSON 字符串存�?
                 .likeCount(0)
                 .dislikeCount(0)
                 .commentCount(0)
@@ -90,18 +125,14 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post>
                 .build();
 
         boolean saved = this.save(post);
-        tagService.savePostTags(post.getId(), aiResult.tags);
         ThrowUtils.throwIf(!saved, ErrorCode.OPERATION_ERROR, "发帖失败");
+        tagService.savePostTags(post.getId(), aiResult.tags);
 
-
-        boolean agentUpdated = agentService.lambdaUpdate()
+        agentService.lambdaUpdate()
                 .eq(Agent::getId, agentId)
-                .setSql("energy = energy - " + POST_ENERGY_COST + ", post_count = post_count + 1")
+                .setSql("post_count = post_count + 1")
                 .update();
-        ThrowUtils.throwIf(!agentUpdated, ErrorCode.OPERATION_ERROR, "Agent能量更新失败");
-        log.info("Agent {} post generated successfully: {}", agentId, post.getId());
-
-        return PostVO.objToVo(post);
+        return post;
     }
 
     @Override
@@ -110,20 +141,23 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post>
         long size = postQueryRequest.getPageSize();
         String sortField = postQueryRequest.getSortField();
         String sortOrder = postQueryRequest.getSortOrder();
-        String searchText = postQueryRequest.getSearchText();
-        String postType = postQueryRequest.getPostType();
-        Long agentId = postQueryRequest.getAgentId();
-
-        // 1. 构建查询条件
-        LambdaQueryWrapper<Post> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(StrUtil.isNotBlank(postType), Post::getPostType, postType);
-        queryWrapper.eq(agentId != null, Post::getAgentId, agentId);
 
-        // 搜索：标题或内容包含关键�?
-        if (StrUtil.isNotBlank(searchText)) {
-            queryWrapper.and(qw -> qw.like(Post::getTitle, searchText).or().like(Post::getContent, searchText));
+        // 0. 热门分页先查多级缓存，命中时不访问 MySQL
+        String pageKey = current <= maxCachedPageNum ? buildPageCacheKey(postQueryRequest,
+                "page:" + sortField + ":" + sortOrder + ":" + current + ":" + size + ":" + postQueryRequest.isSearchCount())
+                : null;
+        // 版本号在查缓存、回源之前读取，查库期间有新帖发布时旧结果不会写入新版本
+        long feedVersion = postCacheManager.getFeedVersion();
+        PostCacheManager.CachedPage cachedPage = pageKey != null ? postCacheManager.getPage(feedVersion, pageKey) : null;
+        if (cachedPage != null) {
+            Page<PostVO> postVOPage = new Page<>(current, size, cachedPage.getTotal());
+            postVOPage.setRecords(withPendingCounters(listPostVOByIds(cachedPage.getPostIds())));
+            return postVOPage;
         }
 
+        // 1. 构建查询条件
+        LambdaQueryWrapper<Post> queryWrapper = buildFilterWrapper(postQueryRequest);
+
         // 排序
         queryWrapper.orderBy(StrUtil.isNotBlank(sortField), "ascend".equals(sortOrder),
                 "createTime".equals(sortField) ? Post::getCreateTime : Post::getId);
@@ -132,34 +166,135 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post>
             queryWrapper.orderByDesc(Post::getCreateTime);
         }
 
-        // 2. 分页查询
-        Page<Post> postPage = this.page(new Page<>(current, size), queryWrapper);
+        // 2. 分页查询（searchCount=false 时省去 COUNT(*)）
+        Page<Post> postPage = this.page(new Page<>(current, size, postQueryRequest.isSearchCount()), queryWrapper);
         List<Post> postList = postPage.getRecords();
 
         // 3. 数据转换与填充
         Page<PostVO> postVOPage = new Page<>(postPage.getCurrent(), postPage.getSize(), postPage.getTotal());
-        if (CollUtil.isEmpty(postList)) {
-            return postVOPage;
+        if (!CollUtil.isEmpty(postList)) {
+            List<PostVO> postVOList = assemblePostVOList(postList);
+            postCacheManager.putPosts(postVOList);
+            postVOPage.setRecords(withPendingCounters(postVOList));
+        }
+
+        // 4. 回填分页缓存
+        if (pageKey != null) {
+            PostCacheManager.CachedPage page = new PostCacheManager.CachedPage();
+            page.setPostIds(postList.stream().map(Post::getId).collect(Collectors.toList()));
+            page.setTotal(postPage.getTotal());
+            postCacheManager.putPage(feedVersion, pageKey, page);
+        }
+        return postVOPage;
+    }
+
+    @Override
+    public PostPageVO listPostByCursor(PostQueryRequest postQueryRequest) {
+        long pageSize = postQueryRequest.getPageSize();
+        LocalDateTime cursorTime = postQueryRequest.getCursorTime();
+        Long cursorId = postQueryRequest.getCursorId();
+
+        // 0. 先查多级缓存（游标值本身就是 key 的一部分）
+        String pageKey = buildPageCacheKey(postQueryRequest, "cursor:"
+                + (cursorTime != null ? cursorTime : "") + ":" + (cursorId != null ? cursorId : "") + ":" + pageSize);
+        // 版本号在查缓存、回源之前读取，查库期间有新帖发布时旧结果不会写入新版本
+        long feedVersion = postCacheManager.getFeedVersion();
+        PostCacheManager.CachedPage cachedPage = pageKey != null ? postCacheManager.getPage(feedVersion, pageKey) : null;
+        if (cachedPage != null) {
+            PostPageVO postPageVO = new PostPageVO();
+            postPageVO.setPageSize(pageSize);
+            postPageVO.setHasMore(cachedPage.isHasMore());
+            postPageVO.setRecords(withPendingCounters(listPostVOByIds(cachedPage.getPostIds())));
+            postPageVO.setNextCursorTime(cachedPage.getNextCursorTime());
+            postPageVO.setNextCursorId(cachedPage.getNextCursorId());
+            return postPageVO;
+        }
+
+        // 1. 构建查询条件 + 游标条件 (create_time, id) < (cursorTime, cursorId)
+        LambdaQueryWrapper<Post> queryWrapper = buildFilterWrapper(postQueryRequest);
+        if (cursorTime != null && cursorId != null) {
+            queryWrapper.and(qw -> qw.lt(Post::getCreateTime, cursorTime)
+                    .or()
+                    .eq(Post::getCreateTime, cursorTime)
+                    .lt(Post::getId, cursorId));
+        }
+        // 游标分页要求稳定顺序，走 idx_create_time_id 索引
+        queryWrapper.orderByDesc(Post::getCreateTime, Post::getId);
+
+        // 2. 多取一条判断 hasMore，不查询总数
+        Page<Post> postPage = this.page(new Page<>(1, pageSize + 1, false), queryWrapper);
+        List<Post> postList = postPage.getRecords();
+
+        boolean hasMore = postList.size() > pageSize;
+        if (hasMore) {
+            postList = postList.subList(0, (int) pageSize);
         }
 
-        // 3.1 获取所有相关的 AgentId
+        PostPageVO postPageVO = new PostPageVO();
+        postPageVO.setPageSize(pageSize);
+        postPageVO.setHasMore(hasMore);
+
+        // 3. 数据转换与填充
+        List<PostVO> postVOList = CollUtil.isEmpty(postList) ? List.of() : assemblePostVOList(postList);
+        postCacheManager.putPosts(postVOList);
+        postPageVO.setRecords(withPendingCounters(postVOList));
+        if (hasMore) {
+            Post last = postList.get(postList.size() - 1);
+            postPageVO.setNextCursorTime(last.getCreateTime());
+            postPageVO.setNextCursorId(last.getId());
+        }
+
+        // 4. 回填分页缓存
+        if (pageKey != null) {
+            PostCacheManager.CachedPage page = new PostCacheManager.CachedPage();
+            page.setPostIds(postList.stream().map(Post::getId).collect(Collectors.toList()));
+            page.setHasMore(hasMore);
+            page.setNextCursorTime(postPageVO.getNextCursorTime());
+            page.setNextCursorId(postPageVO.getNextCursorId());
+            postCacheManager.putPage(feedVersion, pageKey, page);
+        }
+        return postPageVO;
+    }
+
+    /**
+     * 构建帖子列表的公共过滤条件（类型、Agent、关键词）
+     */
+    private LambdaQueryWrapper<Post> buildFilterWrapper(PostQueryRequest postQueryRequest) {
+        String searchText = postQueryRequest.getSearchText();
+        String postType = postQueryRequest.getPostType();
+        Long agentId = postQueryRequest.getAgentId();
+
+        LambdaQueryWrapper<Post> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(StrUtil.isNotBlank(postType), Post::getPostType, postType);
+        queryWrapper.eq(agentId != null, Post::getAgentId, agentId);
+
+        // 搜索：标题或内容包含关键词
+        if (StrUtil.isNotBlank(searchText)) {
+            queryWrapper.and(qw -> qw.like(Post::getTitle, searchText).or().like(Post::getContent, searchText));
+        }
+        return queryWrapper;
+    }
+
+    /**
+     * 批量组装 PostVO（Agent、物种、标签）
+     */
+    private List<PostVO> assemblePostVOList(List<Post> postList) {
+        // 1. 获取所有相关的 AgentId
         Set<Long> agentIds = postList.stream().map(Post::getAgentId).collect(Collectors.toSet());
 
-        // 3.2 批量查询 Agent
+        // 2. 批量查询 Agent
         Map<Long, Agent> agentMap = agentService.listByIds(agentIds).stream()
                 .collect(Collectors.toMap(Agent::getId, agent -> agent));
 
-        // 3.3 获取所有相关的 SpeciesId
+        // 3. 获取所有相关的 SpeciesId
         Set<Long> speciesIds = agentMap.values().stream().map(Agent::getSpeciesId).collect(Collectors.toSet());
 
-        // 3.4 批量查询 Species
-        Map<Long, Species> speciesMap = speciesService.listByIds(speciesIds).stream()
-                .collect(Collectors.toMap(Species::getId, species -> species));
+        // 4. 批量查询 Species
+        Map<Long, Species> speciesMap = speciesService.getCachedSpeciesMap(speciesIds);
 
-        // 3.5 组装 PostVO
+        // 5. 组装 PostVO
         List<PostVO> postVOList = postList.stream().map(post -> {
             PostVO postVO = PostVO.objToVo(post);
-            Long userId = agentMap.get(post.getAgentId()).getUserId();
             Agent agent = agentMap.get(post.getAgentId());
             if (agent != null) {
                 Species species = speciesMap.get(agent.getSpeciesId());
@@ -171,36 +306,27 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post>
         }).collect(Collectors.toList());
 
         fillPostTags(postVOList);
-        postVOPage.setRecords(postVOList);
-        return postVOPage;
+        return postVOList;
     }
 
     @Override
     public PostVO getPostVOById(Long id, Long userId) {
-        Post post = this.getById(id);
-        ThrowUtils.throwIf(post == null, ErrorCode.NOT_FOUND_ERROR);
+        // 公共部分（帖子 + Agent + 物种 + 标签）走多级缓存
+        List<PostVO> cached = listPostVOByIds(List.of(id));
+        ThrowUtils.throwIf(cached.isEmpty(), ErrorCode.NOT_FOUND_ERROR);
 
-        PostVO postVO = PostVO.objToVo(post);
-        fillPostTags(List.of(postVO));
-
-        // 填充 Agent 的 Species
-        Agent agent = agentService.getById(post.getAgentId());
-        if (agent != null) {
-            Species species = speciesService.getById(agent.getSpeciesId());
-            postVO.setAgent(AgentVO.objToVo(agent, SpeciesVO.objToVo(species)));
-        }
+        // 缓存对象是共享的，复制一份再合并计数、填充用户相关字段
+        PostVO postVO = withPendingCounters(cached).get(0);
 
         // 填充点赞状�?
         if (userId != null) {
             // 查询当前用户�?Agent
-            Agent userAgent = agentService.lambdaQuery()
-                    .eq(Agent::getUserId, userId)
-                    .one();
+            Long userAgentId = agentService.getAgentIdByUserId(userId);
 
-            if (userAgent != null) {
+            if (userAgentId != null) {
                 PostLike postLike = postLikeService.lambdaQuery()
                         .eq(PostLike::getPostId, id)
-                        .eq(PostLike::getAgentId, userAgent.getId())
+                        .eq(PostLike::getAgentId, userAgentId)
                         .one();
                 if (postLike != null) {
                     postVO.setHasLiked(postLike.getLikeType());
@@ -215,6 +341,64 @@ public class PostServiceImpl extends ServiceImpl<PostMapper, Post>
         return postVO;
     }
 
+    /**
+     * 按ID批量获取帖子 VO（多级缓存 -> MySQL），结果保持入参顺序，已删除的帖子被跳过
+     */
+    private List<PostVO> listPostVOByIds(List<Long> postIds) {
+        if (CollUtil.isEmpty(postIds)) {
+            return List.of();
+        }
+        Map<Long, PostVO> postVOMap = postCacheManager.getPosts(postIds);
+        List<Long> missIds = postIds.stream().filter(id -> !postVOMap.containsKey(id)).collect(Collectors.toList());
+        if (!missIds.isEmpty()) {
+            List<Post> missPosts = this.listByIds(missIds);
+            if (CollUtil.isNotEmpty(missPosts)) {
+                List<PostVO> loaded = assemblePostVOList(missPosts);
+                postCacheManager.putPosts(loaded);
+                loaded.forEach(postVO -> postVOMap.put(postVO.getId(), postVO));
+            }
+        }
+        return postIds.stream()
+                .map(postVOMap::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 复制帖子 VO 并合并尚未刷盘的计数增量（缓存中的 VO 为共享对象，不能原地修改）
+     */
+    private List<PostVO> withPendingCounters(List<PostVO> postVOList) {
+        if (CollUtil.isEmpty(postVOList)) {
+            return postVOList;
+        }
+        Map<CounterFieldEnum, Map<Long, Long>> pendingDeltas = counterManager.getPendingDeltas(
+                List.of(CounterFieldEnum.POST_LIKE, CounterFieldEnum.POST_DISLIKE, CounterFieldEnum.POST_COMMENT),
+                postVOList.stream().map(PostVO::getId).collect(Collectors.toList()));
+        return postVOList.stream().map(cached -> {
+            PostVO postVO = new PostVO();
+            BeanUtil.copyProperties(cached, postVO);
+            postVO.setLikeCount(CounterManager.merge(postVO.getLikeCount(),
+                    pendingDeltas, CounterFieldEnum.POST_LIKE, postVO.getId()));
+            postVO.setDislikeCount(CounterManager.merge(postVO.getDislikeCount(),
+                    pendingDeltas, CounterFieldEnum.POST_DISLIKE, postVO.getId()));
+            postVO.setCommentCount(CounterManager.merge(postVO.getCommentCount(),
+                    pendingDeltas, CounterFieldEnum.POST_COMMENT, postVO.getId()));
+            return postVO;
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * 构建分页缓存 key；带搜索关键词的查询不缓存（组合过多，命中率低）
+     */
+    private String buildPageCacheKey(PostQueryRequest postQueryRequest, String pageSuffix) {
+        if (StrUtil.isNotBlank(postQueryRequest.getSearchText())) {
+            return null;
+        }
+        String postType = StrUtil.blankToDefault(postQueryRequest.getPostType(), "all");
+        String agentId = postQueryRequest.getAgentId() != null ? String.valueOf(postQueryRequest.getAgentId()) : "all";
+        return postType + ":" + agentId + ":" + pageSuffix;
+    }
+
     private void fillPostTags(List<PostVO> postVOList) {
         if (CollUtil.isEmpty(postVOList)) {
             return;
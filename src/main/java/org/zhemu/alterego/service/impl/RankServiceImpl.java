@@ -1,50 +1,297 @@
 package org.zhemu.alterego.service.impl;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.zhemu.alterego.constant.RedisConstants;
+import org.zhemu.alterego.model.enums.RankWindowEnum;
 import org.zhemu.alterego.service.RankService;
 
 /**
  * 排行榜服务实现
+ * <p>
+ * 除总榜外维护三个滚动窗口，全部由 {@link #incrementAgentLike} 增量更新，不做全量重算：
+ * <ul>
+ *     <li>日榜 / 周榜：增量同时写入当前小时桶、当天桶和滚动聚合榜；每个整点把聚合榜用 ZUNIONSTORE
+ *     按最近 24 个小时桶（零点时另按最近 7 个天桶）重建，过期的桶自然被轮转出去并由 TTL 清理</li>
+ *     <li>热度榜：前向衰减，增量按 e^(λ(t - epoch)) 放大后累加，分数无需随时间更新；
+ *     整点把 epoch 前移并整体乘以衰减系数（ZUNIONSTORE WEIGHTS），避免分数无限增大</li>
+ * </ul>
+ * 增量写入和重建都是单条命令或 Lua 脚本，彼此原子，轮转期间的增量不会丢失或重复计算
+ * <p>
+ * 总榜的兜底修复（从 MySQL 全量重建 / 增量校对）见 {@link org.zhemu.alterego.manager.RankRebuildManager}
+ *
  * @author lushihao
  */
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class RankServiceImpl implements RankService {
 
+    private static final DateTimeFormatter HOUR_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHH");
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final int DAILY_HOURS = 24;
+
+    private static final int WEEKLY_DAYS = 7;
+
+    /**
+     * 热度低于该值的成员在 epoch 前移时剔除
+     */
+    private static final double HOT_PRUNE_BELOW = 0.01;
+
+    /**
+     * 增量写入所有榜单；成员在增量前或增量后位于某窗口前 N 名时才自增该窗口的版本号，
+     * 前 N 名之外的变化不影响预计算的榜单，不触发重建
+     * KEYS: 总榜、小时桶、天桶、日榜、周榜、热度榜、热度榜 epoch、榜单版本号、总榜影子榜
+     * ARGV: agentId、增量、当前时间（秒）、λ、小时桶 TTL（秒）、天桶 TTL（秒）、N、
+     * 总榜 / 日榜 / 周榜 / 热度榜的版本号 field
+     */
+    private static final DefaultRedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "local delta = tonumber(ARGV[2]) " +
+                    "local top = tonumber(ARGV[7]) " +
+                    "local function incr(key, increment, field) " +
+                    "  local before = redis.call('ZREVRANK', key, ARGV[1]) " +
+                    "  redis.call('ZINCRBY', key, increment, ARGV[1]) " +
+                    "  if (before and before < top) or redis.call('ZREVRANK', key, ARGV[1]) < top then " +
+                    "    redis.call('HINCRBY', KEYS[8], field, 1) " +
+                    "  end " +
+                    "end " +
+                    "incr(KEYS[1], delta, ARGV[8]) " +
+                    "redis.call('ZINCRBY', KEYS[2], delta, ARGV[1]) " +
+                    "redis.call('EXPIRE', KEYS[2], ARGV[5]) " +
+                    "redis.call('ZINCRBY', KEYS[3], delta, ARGV[1]) " +
+                    "redis.call('EXPIRE', KEYS[3], ARGV[6]) " +
+                    "incr(KEYS[4], delta, ARGV[9]) " +
+                    "incr(KEYS[5], delta, ARGV[10]) " +
+                    "local now = tonumber(ARGV[3]) " +
+                    "local epoch = tonumber(redis.call('GET', KEYS[7])) " +
+                    "if not epoch then epoch = now redis.call('SET', KEYS[7], now) end " +
+                    "incr(KEYS[6], delta * math.exp(tonumber(ARGV[4]) * (now - epoch)), ARGV[11]) " +
+                    // 全量重建进行中：已写入影子榜的成员同样累加，避免 RENAME 覆盖时丢失重建期间的增量
+                    "if redis.call('EXISTS', KEYS[9]) == 1 then redis.call('ZINCRBY', KEYS[9], delta, ARGV[1]) end " +
+                    "return 1",
+            Long.class);
+
+    /**
+     * 热度榜 epoch 前移：分数整体乘以 e^(-λ(newEpoch - epoch))，并剔除衰减殆尽的成员
+     * KEYS: 热度榜、热度榜 epoch
+     * ARGV: 新 epoch（秒）、λ、剔除阈值
+     * 返回值：1 已前移，0 无需前移（其他节点已完成，保证多节点重复执行幂等）
+     */
+    private static final DefaultRedisScript<Long> REBASE_HOT_SCRIPT = new DefaultRedisScript<>(
+            "local epoch = tonumber(redis.call('GET', KEYS[2])) " +
+                    "local newEpoch = tonumber(ARGV[1]) " +
+                    "if not epoch or epoch >= newEpoch then return 0 end " +
+                    "if redis.call('EXISTS', KEYS[1]) == 1 then " +
+                    "  local factor = math.exp(-tonumber(ARGV[2]) * (newEpoch - epoch)) " +
+                    "  redis.call('ZUNIONSTORE', KEYS[1], 1, KEYS[1], 'WEIGHTS', factor) " +
+                    "  redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', '(' .. ARGV[3]) " +
+                    "end " +
+                    "redis.call('SET', KEYS[2], newEpoch) " +
+                    "return 1",
+            Long.class);
+
+    /**
+     * 查询成员名次及前后各 k 名，一次往返
+     * KEYS: 榜单
+     * ARGV: 成员、k
+     * 返回值：未上榜为空；否则为 {名次(0 起), 片段起始名次(0 起), 成员1, 分数1, 成员2, 分数2, ...}
+     */
+    private static final DefaultRedisScript<List> NEIGHBOURS_SCRIPT = new DefaultRedisScript<>(
+            "local rank = redis.call('ZREVRANK', KEYS[1], ARGV[1]) " +
+                    "if not rank then return {} end " +
+                    "local k = tonumber(ARGV[2]) " +
+                    "local start = math.max(rank - k, 0) " +
+                    "local result = {rank, start} " +
+                    "for _, v in ipairs(redis.call('ZREVRANGE', KEYS[1], start, rank + k, 'WITHSCORES')) do " +
+                    "  result[#result + 1] = v " +
+                    "end " +
+                    "return result",
+            List.class);
+
     private final StringRedisTemplate stringRedisTemplate;
 
+    /**
+     * 热度榜半衰期（小时）：一次点赞的权重每过一个半衰期减半
+     */
+    @Value("${rank.hot.half-life-hours:24}")
+    private double hotHalfLifeHours;
+
+    /**
+     * 各节点预计算的名次数（与 RankCacheManager 一致），只有前 N 名的变化才自增榜单版本号
+     */
+    @Value("${rank.cache.max-size:100}")
+    private int rankCacheSize;
+
     @Override
     public void incrementAgentLike(Long agentId, int delta) {
         if (agentId == null || delta == 0) {
             return;
         }
-        stringRedisTemplate.opsForZSet()
-                .incrementScore(RedisConstants.AGENT_LIKE_RANK_KEY, agentId.toString(), delta);
+        LocalDateTime now = LocalDateTime.now();
+        stringRedisTemplate.execute(INCREMENT_SCRIPT,
+                List.of(RedisConstants.AGENT_LIKE_RANK_KEY,
+                        RedisConstants.AGENT_LIKE_RANK_HOUR + now.format(HOUR_FORMATTER),
+                        RedisConstants.AGENT_LIKE_RANK_DAY + now.format(DAY_FORMATTER),
+                        RedisConstants.AGENT_LIKE_RANK_DAILY,
+                        RedisConstants.AGENT_LIKE_RANK_WEEKLY,
+                        RedisConstants.AGENT_LIKE_RANK_HOT,
+                        RedisConstants.AGENT_LIKE_RANK_HOT_EPOCH,
+                        RedisConstants.AGENT_LIKE_RANK_VERSION,
+                        RedisConstants.AGENT_LIKE_RANK_SHADOW),
+                agentId.toString(),
+                String.valueOf(delta),
+                String.valueOf(epochSecond(now)),
+                String.valueOf(hotLambda()),
+                String.valueOf(TimeUnit.HOURS.toSeconds(RedisConstants.AGENT_LIKE_RANK_HOUR_TTL)),
+                String.valueOf(TimeUnit.DAYS.toSeconds(RedisConstants.AGENT_LIKE_RANK_DAY_TTL)),
+                String.valueOf(rankCacheSize),
+                RankWindowEnum.TOTAL.getValue(),
+                RankWindowEnum.DAILY.getValue(),
+                RankWindowEnum.WEEKLY.getValue(),
+                RankWindowEnum.HOT.getValue());
     }
 
     @Override
-    public LinkedHashMap<Long, Integer> getTopAgentLike(int limit) {
+    public LinkedHashMap<Long, Double> getTopAgentLike(RankWindowEnum window, int limit) {
         if (limit <= 0) {
             return new LinkedHashMap<>();
         }
         Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet()
-                .reverseRangeWithScores(RedisConstants.AGENT_LIKE_RANK_KEY, 0, limit - 1);
-        LinkedHashMap<Long, Integer> result = new LinkedHashMap<>();
+                .reverseRangeWithScores(keyOf(window), 0, limit - 1);
+        LinkedHashMap<Long, Double> result = new LinkedHashMap<>();
         if ( null ==  tuples || tuples.isEmpty()) {
             return result;
         }
+        double factor = window == RankWindowEnum.HOT ? hotDecayFactor() : 1.0;
         for (ZSetOperations.TypedTuple<String> tuple : tuples) {
             if (null  ==  tuple.getValue()  ||   null  == tuple.getScore()) {
                 continue;
             }
-            result.put(Long.parseLong(tuple.getValue()), tuple.getScore().intValue());
+            // 滚动窗口中净增量不为正的成员不上榜（轮转重建时也会剔除）
+            if (window != RankWindowEnum.TOTAL && tuple.getScore() <= 0) {
+                continue;
+            }
+            result.put(Long.parseLong(tuple.getValue()), tuple.getScore() * factor);
         }
         return result;
     }
+
+    @Override
+    public RankSlice getAgentLikeNeighbours(RankWindowEnum window, Long agentId, int k) {
+        List<?> reply = stringRedisTemplate.execute(NEIGHBOURS_SCRIPT, List.of(keyOf(window)),
+                agentId.toString(), String.valueOf(Math.max(k, 0)));
+        LinkedHashMap<Long, Double> scores = new LinkedHashMap<>();
+        if (reply == null || reply.isEmpty()) {
+            return new RankSlice(0, scores);
+        }
+        int start = ((Number) reply.get(1)).intValue();
+        double factor = window == RankWindowEnum.HOT ? hotDecayFactor() : 1.0;
+        for (int i = 2; i + 1 < reply.size(); i += 2) {
+            double score = Double.parseDouble(reply.get(i + 1).toString());
+            // 与 Top N 一致：滚动窗口中净增量不为正的成员不上榜，它们总排在片段末尾
+            if (window != RankWindowEnum.TOTAL && score <= 0) {
+                break;
+            }
+            scores.put(Long.parseLong(reply.get(i).toString()), score * factor);
+        }
+        if (!scores.containsKey(agentId)) {
+            scores.clear();
+        }
+        return new RankSlice(start + 1, scores);
+    }
+
+    /**
+     * 整点轮转：重建日榜（和零点的周榜），前移热度榜 epoch
+     * 各步骤都是幂等的，多节点同时执行结果一致，无需加锁
+     */
+    @Scheduled(cron = "${rank.rotate-cron:5 0 * * * ?}")
+    public void rotateWindows() {
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        List<String> hourKeys = new ArrayList<>(DAILY_HOURS);
+        for (int i = 0; i < DAILY_HOURS; i++) {
+            hourKeys.add(RedisConstants.AGENT_LIKE_RANK_HOUR + hour.minusHours(i).format(HOUR_FORMATTER));
+        }
+        rebuild(RedisConstants.AGENT_LIKE_RANK_DAILY, hourKeys);
+        bumpVersion(RankWindowEnum.DAILY);
+
+        if (hour.getHour() == 0) {
+            List<String> dayKeys = new ArrayList<>(WEEKLY_DAYS);
+            for (int i = 0; i < WEEKLY_DAYS; i++) {
+                dayKeys.add(RedisConstants.AGENT_LIKE_RANK_DAY + hour.minusDays(i).format(DAY_FORMATTER));
+            }
+            rebuild(RedisConstants.AGENT_LIKE_RANK_WEEKLY, dayKeys);
+            bumpVersion(RankWindowEnum.WEEKLY);
+        }
+
+        Long rebased = stringRedisTemplate.execute(REBASE_HOT_SCRIPT,
+                List.of(RedisConstants.AGENT_LIKE_RANK_HOT, RedisConstants.AGENT_LIKE_RANK_HOT_EPOCH),
+                String.valueOf(epochSecond(hour)),
+                String.valueOf(hotLambda()),
+                String.valueOf(HOT_PRUNE_BELOW));
+        if (rebased != null && rebased == 1) {
+            bumpVersion(RankWindowEnum.HOT);
+        }
+        log.info("排行榜窗口轮转完成: hour={}, weekly={}, hotRebased={}", hour, hour.getHour() == 0, rebased);
+    }
+
+    /**
+     * 用桶合并结果原子替换聚合榜（桶都不存在时 ZUNIONSTORE 会删除聚合榜），再剔除净增量不为正的成员
+     */
+    private void rebuild(String destKey, List<String> bucketKeys) {
+        stringRedisTemplate.opsForZSet().unionAndStore(bucketKeys.get(0), bucketKeys.subList(1, bucketKeys.size()), destKey);
+        stringRedisTemplate.opsForZSet().removeRangeByScore(destKey, Double.NEGATIVE_INFINITY, 0);
+    }
+
+    private void bumpVersion(RankWindowEnum window) {
+        stringRedisTemplate.opsForHash().increment(RedisConstants.AGENT_LIKE_RANK_VERSION, window.getValue(), 1);
+    }
+
+    private static String keyOf(RankWindowEnum window) {
+        return switch (window) {
+            case TOTAL -> RedisConstants.AGENT_LIKE_RANK_KEY;
+            case DAILY -> RedisConstants.AGENT_LIKE_RANK_DAILY;
+            case WEEKLY -> RedisConstants.AGENT_LIKE_RANK_WEEKLY;
+            case HOT -> RedisConstants.AGENT_LIKE_RANK_HOT;
+        };
+    }
+
+    /**
+     * 当前时刻相对 epoch 的衰减系数，存储分数乘以该系数即为当前热度
+     */
+    private double hotDecayFactor() {
+        String epoch = stringRedisTemplate.opsForValue().get(RedisConstants.AGENT_LIKE_RANK_HOT_EPOCH);
+        if (epoch == null) {
+            return 1.0;
+        }
+        long elapsed = epochSecond(LocalDateTime.now()) - Long.parseLong(epoch);
+        return Math.exp(-hotLambda() * elapsed);
+    }
+
+    /**
+     * 衰减速率 λ（每秒）= ln2 / 半衰期
+     */
+    private double hotLambda() {
+        return Math.log(2) / (hotHalfLifeHours * 3600);
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
 }
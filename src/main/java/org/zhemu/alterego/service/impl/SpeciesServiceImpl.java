@@ -1,20 +1,20 @@
 package org.zhemu.alterego.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.zhemu.alterego.exception.BusinessException;
 import org.zhemu.alterego.exception.ErrorCode;
 import org.zhemu.alterego.exception.ThrowUtils;
+import org.zhemu.alterego.manager.SpeciesCacheManager;
 import org.zhemu.alterego.mapper.SpeciesMapper;
 import org.zhemu.alterego.model.entity.Species;
 import org.zhemu.alterego.model.vo.SpeciesVO;
 import org.zhemu.alterego.service.SpeciesService;
 
-import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * @author lushihao
@@ -25,33 +25,58 @@ import java.util.concurrent.ThreadLocalRandom;
 public class SpeciesServiceImpl extends ServiceImpl<SpeciesMapper, Species>
         implements SpeciesService {
 
+    private final SpeciesCacheManager speciesCacheManager;
+
     @Override
     public SpeciesVO getRandomSpecies() {
-        // 1. 查询所有可用物种（逻辑删除自动过滤）
-        List<Species> speciesList = this.list();
+        // 1. 从进程内快照随机抽取（不访问数据库）
+        Species randomSpecies = speciesCacheManager.random();
 
         // 2. 校验：至少要有一个物种
-        ThrowUtils.throwIf(speciesList.isEmpty(), ErrorCode.SYSTEM_ERROR, "暂无可用物种，请联系管理员");
-
-        // 3. 随机抽取一个物种
-        int randomIndex = ThreadLocalRandom.current().nextInt(speciesList.size());
-        Species randomSpecies = speciesList.get(randomIndex);
+        ThrowUtils.throwIf(randomSpecies == null, ErrorCode.SYSTEM_ERROR, "暂无可用物种，请联系管理员");
 
         log.info("随机抽取物种：id={}, name={}", randomSpecies.getId(), randomSpecies.getName());
 
-        // 4. 转换为VO并返回
+        // 3. 转换为VO并返回
         return SpeciesVO.objToVo(randomSpecies);
     }
 
     @Override
     public SpeciesVO getSpeciesById(Long id) {
-        if (id == null) {
-            return null;
-        }
-        Species species = this.getById(id);
-        if (species == null) {
-            return null;
+        return SpeciesVO.objToVo(speciesCacheManager.getById(id));
+    }
+
+    @Override
+    public Species getCachedSpecies(Long id) {
+        return speciesCacheManager.getById(id);
+    }
+
+    @Override
+    public Map<Long, Species> getCachedSpeciesMap(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Map.of();
         }
-        return SpeciesVO.objToVo(species);
+        return speciesCacheManager.mapByIds(ids);
+    }
+
+    @Override
+    public boolean save(Species entity) {
+        boolean result = super.save(entity);
+        speciesCacheManager.notifyChanged();
+        return result;
+    }
+
+    @Override
+    public boolean updateById(Species entity) {
+        boolean result = super.updateById(entity);
+        speciesCacheManager.notifyChanged();
+        return result;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        speciesCacheManager.notifyChanged();
+        return result;
     }
 }
@@ -16,10 +16,13 @@ import org.zhemu.alterego.constant.RedisConstants;
 import org.zhemu.alterego.exception.BusinessException;
 import org.zhemu.alterego.exception.ErrorCode;
 import org.zhemu.alterego.exception.ThrowUtils;
+import org.zhemu.alterego.manager.AuthCacheManager;
+import org.zhemu.alterego.manager.SignedTokenManager;
 import org.zhemu.alterego.mapper.SysUserMapper;
 import org.zhemu.alterego.model.dto.user.SysUserLoginRequest;
 import org.zhemu.alterego.model.dto.user.SysUserPasswordResetRequest;
 import org.zhemu.alterego.model.dto.user.SysUserRegisterRequest;
+import org.zhemu.alterego.model.dto.user.SysUserTokenRefreshRequest;
 import org.zhemu.alterego.model.dto.user.SysUserUpdatePasswordRequest;
 import org.zhemu.alterego.model.entity.SysUser;
 import org.zhemu.alterego.model.enums.LoginTypeEnum;
@@ -43,6 +46,8 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser>
 
     private final StringRedisTemplate stringRedisTemplate;
     private final PasswordEncoder passwordEncoder;
+    private final AuthCacheManager authCacheManager;
+    private final SignedTokenManager signedTokenManager;
 
     @Override
     public Long register(SysUserRegisterRequest request) {
@@ -119,6 +124,15 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser>
                 throw new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的登录方式");
         }
 
+        // 签名令牌模式：访问令牌本地校验，Redis 只保存刷新令牌
+        if (signedTokenManager.isEnabled()) {
+            user.setUserPassword(null);
+            SignedTokenManager.TokenPair tokenPair = signedTokenManager.issue(user);
+            httpRequest.setAttribute("token", tokenPair.accessToken());
+            log.info("用户登录成功，账号：{}, ID：{}", user.getUserAccount(), user.getId());
+            return toTokenVO(user, tokenPair);
+        }
+
         // 生成 token 并存入 Redis
         String token = UUID.randomUUID().toString();
         String tokenKey = RedisConstants.USER_LOGIN_TOKEN + token;
@@ -149,7 +163,7 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser>
         // 在响应头中设置 token (Controller 层处理，这里只返回 VO)
         httpRequest.setAttribute("token", token);
 
-        log.info("用户登录成功，账号：{}, ID：{}, token：{}", user.getUserAccount(), user.getId(), token);
+        log.info("用户登录成功，账号：{}, ID：{}", user.getUserAccount(), user.getId());
         return userVO;
     }
 
@@ -222,6 +236,13 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser>
         // 获取userId（用于删除用户缓存）
         Long userId = UserContext.getCurrentUserId();
         
+        // 签名令牌：吊销所属会话（含刷新令牌）
+        if (signedTokenManager.isSignedToken(token)) {
+            signedTokenManager.revokeSession(token);
+            log.info("用户登出，userId: {}", userId);
+            return true;
+        }
+
         // 删除 Redis 中的 token
         String tokenKey = RedisConstants.USER_LOGIN_TOKEN + token;
         Boolean deleted = stringRedisTemplate.delete(tokenKey);
@@ -229,8 +250,10 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser>
         // 删除用户信息缓存
         String userCacheKey = RedisConstants.USER_INFO_CACHE + userId;
         stringRedisTemplate.delete(userCacheKey);
+        // 清除各节点的本地登录态缓存
+        authCacheManager.invalidateToken(token);
 
-        log.info("用户登出，userId: {}, token：{}", userId, token);
+        log.info("用户登出，userId: {}", userId);
         return deleted;
     }
 
@@ -274,6 +297,10 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser>
         // 删除用户缓存（密码已变更）
         String userCacheKey = RedisConstants.USER_INFO_CACHE + user.getId();
         stringRedisTemplate.delete(userCacheKey);
+        authCacheManager.invalidateUser(user.getId());
+        if (signedTokenManager.isEnabled()) {
+            signedTokenManager.revokeUser(user.getId());
+        }
 
         log.info("用户重置密码成功，邮箱：{}, ID：{}", email, user.getId());
         return true;
@@ -311,6 +338,10 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser>
         // 删除用户缓存（密码已变更）
         String userCacheKey = RedisConstants.USER_INFO_CACHE + userId;
         stringRedisTemplate.delete(userCacheKey);
+        authCacheManager.invalidateUser(userId);
+        if (signedTokenManager.isEnabled()) {
+            signedTokenManager.revokeUser(userId);
+        }
 
         log.info("用户修改密码成功，ID：{}", userId);
         return true;
@@ -319,12 +350,40 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser>
     @Override
     public SysUserVO getCurrentUser() {
         // 通过 UserContext 获取当前用户
-        SysUser user = org.zhemu.alterego.util.UserContext.getCurrentUser();
+        SysUser user = UserContext.getCurrentUser();
         ThrowUtils.throwIf(user == null, ErrorCode.NOT_FOUND_ERROR, "用户不存在");
 
+        // 签名令牌只携带 id 和角色，需查库补全；旧令牌的登录态缓存中已是完整用户
+        if (signedTokenManager.isSignedToken(getTokenFromRequest(getRequest()))) {
+            user = this.getById(user.getId());
+            ThrowUtils.throwIf(user == null, ErrorCode.NOT_FOUND_ERROR, "用户不存在");
+            user.setUserPassword(null);
+        }
+
         return SysUserVO.objToVo(user);
     }
 
+    @Override
+    public SysUserVO refreshToken(SysUserTokenRefreshRequest request, HttpServletRequest httpRequest) {
+        ThrowUtils.throwIf(!signedTokenManager.isEnabled(), ErrorCode.OPERATION_ERROR, "未启用签名令牌");
+        SignedTokenManager.TokenPair tokenPair = signedTokenManager.refresh(request.getRefreshToken());
+        ThrowUtils.throwIf(tokenPair == null, ErrorCode.NOT_LOGIN_ERROR, "刷新令牌已失效，请重新登录");
+
+        SysUser user = this.getById(tokenPair.userId());
+        ThrowUtils.throwIf(user == null, ErrorCode.NOT_FOUND_ERROR, "用户不存在");
+        user.setUserPassword(null);
+        httpRequest.setAttribute("token", tokenPair.accessToken());
+        return toTokenVO(user, tokenPair);
+    }
+
+    private SysUserVO toTokenVO(SysUser user, SignedTokenManager.TokenPair tokenPair) {
+        SysUserVO userVO = SysUserVO.objToVo(user);
+        userVO.setToken(tokenPair.accessToken());
+        userVO.setRefreshToken(tokenPair.refreshToken());
+        userVO.setExpiresIn(tokenPair.expiresInSeconds());
+        return userVO;
+    }
+
     /**
      * 从请求头中获取 token
      */
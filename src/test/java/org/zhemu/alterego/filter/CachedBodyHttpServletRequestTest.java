@@ -0,0 +1,87 @@
+package org.zhemu.alterego.filter;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 可重复读取请求体的请求包装单元测试
+ *
+ * @author lushihao
+ */
+class CachedBodyHttpServletRequestTest {
+
+    private static final long MAX_BODY_SIZE = 1024;
+
+    @Test
+    void testGetBodyField_thenBodyStillReadable() throws Exception {
+        String body = "{\"agentId\":123,\"post\":{\"id\":7},\"content\":\"你好\"}";
+        CachedBodyHttpServletRequest request = new CachedBodyHttpServletRequest(jsonRequest(body), MAX_BODY_SIZE);
+
+        assertEquals("123", request.getBodyField("agentId"));
+        assertEquals("7", request.getBodyField("post.id"));
+        assertNull(request.getBodyField("missing"));
+
+        // 拦截器读过之后，Controller 仍能读到完整请求体（可多次读取）
+        assertEquals(body, new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals(body, request.getReader().readLine());
+    }
+
+    @Test
+    void testGetBodyField_notJsonObject_shouldReturnNull() {
+        CachedBodyHttpServletRequest request = new CachedBodyHttpServletRequest(jsonRequest("[1,2,3]"), MAX_BODY_SIZE);
+
+        assertNull(request.getBodyField("agentId"));
+    }
+
+    @Test
+    void testGetInputStream_readListener_shouldBeNotifiedImmediately() throws Exception {
+        CachedBodyHttpServletRequest request = new CachedBodyHttpServletRequest(jsonRequest("{\"agentId\":1}"), MAX_BODY_SIZE);
+        ServletInputStream input = request.getInputStream();
+        List<String> events = new ArrayList<>();
+
+        input.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() {
+                events.add("data");
+            }
+
+            @Override
+            public void onAllDataRead() {
+                events.add("done");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                events.add("error");
+            }
+        });
+
+        assertEquals(List.of("data", "done"), events);
+    }
+
+    @Test
+    void testGetBodyField_bodyTooLarge_shouldNotCache() {
+        String body = "{\"agentId\":1,\"content\":\"" + "x".repeat((int) MAX_BODY_SIZE) + "\"}";
+        CachedBodyHttpServletRequest request = new CachedBodyHttpServletRequest(jsonRequest(body), MAX_BODY_SIZE);
+
+        assertNull(request.getBodyField("agentId"));
+        assertThrows(IOException.class, request::getInputStream);
+    }
+
+    private static MockHttpServletRequest jsonRequest(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/comment/ai/generate");
+        request.setContentType("application/json");
+        request.setCharacterEncoding("UTF-8");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
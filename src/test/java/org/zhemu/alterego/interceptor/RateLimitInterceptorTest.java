@@ -11,6 +11,7 @@ import org.springframework.web.method.HandlerMethod;
 import org.zhemu.alterego.annotation.RateLimit;
 import org.zhemu.alterego.constant.RedisConstants;
 import org.zhemu.alterego.exception.BusinessException;
+import org.zhemu.alterego.exception.ErrorCode;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -172,13 +173,46 @@ class RateLimitInterceptorTest {
         assertTrue(rateLimitInterceptor.preHandle(request2, response, handler));
     }
 
+    @Test
+    void testPreHandle_agentIdSpellings_shouldShareLimit() throws Exception {
+        // 同一个 agentId 的不同写法应计入同一个 key
+        HandlerMethod handler = createMockHandler("testAgentMethod");
+
+        for (String agentId : new String[]{"9123", "09123"}) {
+            MockHttpServletRequest agentRequest = new MockHttpServletRequest();
+            agentRequest.setParameter("agentId", agentId);
+            assertTrue(rateLimitInterceptor.preHandle(agentRequest, response, handler));
+        }
+
+        MockHttpServletRequest agentRequest = new MockHttpServletRequest();
+        agentRequest.setParameter("agentId", "9123.0");
+        assertThrows(BusinessException.class, () -> {
+            rateLimitInterceptor.preHandle(agentRequest, response, handler);
+        }, "Third request should be blocked by agent rate limit");
+    }
+
+    @Test
+    void testPreHandle_invalidAgentId_shouldReject() {
+        HandlerMethod handler = createMockHandler("testAgentMethod");
+        request.setParameter("agentId", "abc");
+
+        BusinessException exception = assertThrows(BusinessException.class, () -> {
+            rateLimitInterceptor.preHandle(request, response, handler);
+        });
+        assertEquals(ErrorCode.PARAMS_ERROR.getCode(), exception.getCode());
+    }
+
     /**
      * 创建带@RateLimit注解的mock HandlerMethod
      */
     private HandlerMethod createMockHandler() {
+        return createMockHandler("testMethod");
+    }
+
+    private HandlerMethod createMockHandler(String methodName) {
         try {
             // 创建一个测试用的controller方法
-            var method = TestController.class.getMethod("testMethod");
+            var method = TestController.class.getMethod(methodName);
             var controller = new TestController();
             return new HandlerMethod(controller, method);
         } catch (Exception e) {
@@ -195,5 +229,11 @@ class RateLimitInterceptorTest {
         public void testMethod() {
             // 测试方法
         }
+
+        @RateLimit(key = "test_agent", maxCount = 2, timeWindow = 60,
+                limitByIp = false, limitByAgent = true)
+        public void testAgentMethod() {
+            // 测试方法
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package org.zhemu.alterego.manager;
+
+import cn.hutool.core.util.IdUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.zhemu.alterego.constant.RedisConstants;
+import org.zhemu.alterego.model.enums.RateLimitAlgorithmEnum;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * 限流算法基准：每种算法单请求的 Redis 往返数、服务端命令数（含脚本内执行的命令）和平均耗时
+ * 服务端命令数取 INFO commandstats 前后差值，需独占的 Redis 实例才准确
+ * <p>
+ * 手动运行：./mvnw test -Dtest=RateLimitBenchmark -Dbenchmark=true
+ * 可选参数：-Dbenchmark.redis.host=localhost -Dbenchmark.redis.port=6379 -Dbenchmark.requests=20000
+ * -Dbenchmark.keys=100 -Dbenchmark.max-count=50 -Dbenchmark.window-seconds=1
+ *
+ * @author lushihao
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RateLimitBenchmark {
+
+    private static final String KEY_PREFIX = RedisConstants.RATE_LIMIT_PREFIX + "bench_";
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private static StringRedisTemplate stringRedisTemplate;
+
+    private final int requests = Integer.getInteger("benchmark.requests", 20000);
+
+    private final int keys = Integer.getInteger("benchmark.keys", 100);
+
+    private final int maxCount = Integer.getInteger("benchmark.max-count", 50);
+
+    private final int windowSeconds = Integer.getInteger("benchmark.window-seconds", 1);
+
+    @BeforeAll
+    static void connect() {
+        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(
+                System.getProperty("benchmark.redis.host", "localhost"),
+                Integer.getInteger("benchmark.redis.port", 6379));
+        connectionFactory = new LettuceConnectionFactory(config);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+        stringRedisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void close() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void compareAlgorithms() {
+        RateLimitManager rateLimitManager = new RateLimitManager(stringRedisTemplate);
+        System.out.printf("requests=%d, keys=%d, maxCount=%d, window=%ds%n", requests, keys, maxCount, windowSeconds);
+        for (RateLimitAlgorithmEnum algorithm : RateLimitAlgorithmEnum.values()) {
+            String run = IdUtil.fastSimpleUUID();
+            // 预热：加载脚本、建立连接，不计入统计
+            for (int i = 0; i < 200; i++) {
+                rateLimitManager.tryAcquire(KEY_PREFIX + "warmup:" + run, algorithm, maxCount, windowSeconds);
+            }
+
+            Map<String, Long> before = commandCalls();
+            int allowed = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                String key = KEY_PREFIX + run + ":" + (i % keys);
+                if (Boolean.TRUE.equals(rateLimitManager.tryAcquire(key, algorithm, maxCount, windowSeconds))) {
+                    allowed++;
+                }
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            Map<String, Long> after = commandCalls();
+
+            Map<String, Long> diff = new TreeMap<>();
+            long serverOps = 0;
+            for (Map.Entry<String, Long> entry : after.entrySet()) {
+                long calls = entry.getValue() - before.getOrDefault(entry.getKey(), 0L);
+                if (calls > 0 && !"info".equals(entry.getKey())) {
+                    diff.put(entry.getKey(), calls);
+                    serverOps += calls;
+                }
+            }
+            long roundTrips = diff.getOrDefault("evalsha", 0L) + diff.getOrDefault("eval", 0L);
+            StringBuilder breakdown = new StringBuilder();
+            diff.forEach((command, calls) -> breakdown.append(String.format(" %s=%.2f", command, calls / (double) requests)));
+            System.out.printf("%-16s roundTrips/req=%.2f, serverOps/req=%.2f, avg=%.1fus, allowed=%.1f%% |%s%n",
+                    algorithm.getValue(),
+                    roundTrips / (double) requests,
+                    serverOps / (double) requests,
+                    elapsedNanos / 1000.0 / requests,
+                    allowed * 100.0 / requests,
+                    breakdown);
+        }
+    }
+
+    /**
+     * INFO commandstats：命令名 -> 累计调用次数
+     */
+    private static Map<String, Long> commandCalls() {
+        Map<String, Long> calls = new TreeMap<>();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Properties stats = connection.serverCommands().info("commandstats");
+            if (stats == null) {
+                return calls;
+            }
+            for (String name : stats.stringPropertyNames()) {
+                if (!name.startsWith("cmdstat_")) {
+                    continue;
+                }
+                // calls=12,usec=34,usec_per_call=2.83,...
+                String value = stats.getProperty(name);
+                String count = value.substring("calls=".length(), value.indexOf(','));
+                calls.put(name.substring("cmdstat_".length()), Long.parseLong(count));
+            }
+        }
+        return calls;
+    }
+}
@@ -0,0 +1,224 @@
+package org.zhemu.alterego.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.zhemu.alterego.model.dto.pk.PkQueryRequest;
+import org.zhemu.alterego.model.entity.Agent;
+import org.zhemu.alterego.model.entity.AgentVoteRecord;
+import org.zhemu.alterego.model.entity.PkVoteOption;
+import org.zhemu.alterego.model.entity.Post;
+import org.zhemu.alterego.model.entity.Species;
+import org.zhemu.alterego.model.vo.PkPostVO;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * PK 列表组装基准：逐行调用 getPkById（原实现的组装方式，每行查帖子、选项、投票记录）vs 批量组装 listPkByPage
+ * 统计每页执行的 SQL 条数（含分页 count）和平均耗时，需连接测试库，数据在结束后逻辑删除
+ * <p>
+ * 手动运行：./mvnw test -Dtest=PkListBenchmark -Dbenchmark=true
+ * 可选参数：-Dbenchmark.rounds=50
+ *
+ * @author lushihao
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PkListBenchmark {
+
+    private static final int[] PAGE_SIZES = {10, 20, 50};
+
+    private final int rounds = Integer.getInteger("benchmark.rounds", 50);
+
+    @Autowired
+    private PkService pkService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private AgentService agentService;
+
+    @Autowired
+    private SpeciesService speciesService;
+
+    @Autowired
+    private PkVoteOptionService pkVoteOptionService;
+
+    @Autowired
+    private AgentVoteRecordService agentVoteRecordService;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    private final StatementCounter statementCounter = new StatementCounter();
+
+    private final List<Long> createdPostIds = new ArrayList<>();
+
+    private Agent agent;
+
+    private Species species;
+
+    @Test
+    void compareAssembly() {
+        // 插件对之后新建的 SqlSession 生效；InterceptorChain 不支持移除，计数器只做自增，留在缓存的上下文中无副作用
+        sqlSessionFactory.getConfiguration().addInterceptor(statementCounter);
+        seed(PAGE_SIZES[PAGE_SIZES.length - 1]);
+
+        for (int pageSize : PAGE_SIZES) {
+            PkQueryRequest request = new PkQueryRequest();
+            request.setAgentId(agent.getId());
+            request.setPageNum(1);
+            request.setPageSize(pageSize);
+
+            // 预热
+            perRow(request);
+            pkService.listPkByPage(request, agent.getUserId());
+
+            Result perRow = measure(() -> assertEquals(pageSize, perRow(request).size()));
+            Result batched = measure(() -> assertEquals(pageSize,
+                    pkService.listPkByPage(request, agent.getUserId()).getRecords().size()));
+            System.out.printf("pageSize=%d | per-row: %.1f sql/page, %.2fms | batched: %.1f sql/page, %.2fms%n",
+                    pageSize, perRow.statements, perRow.millis, batched.statements, batched.millis);
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        if (!createdPostIds.isEmpty()) {
+            agentVoteRecordService.lambdaUpdate().in(AgentVoteRecord::getPostId, createdPostIds).remove();
+            pkVoteOptionService.lambdaUpdate().in(PkVoteOption::getPostId, createdPostIds).remove();
+            postService.removeByIds(createdPostIds);
+        }
+        if (agent != null) {
+            agentService.removeById(agent.getId());
+        }
+        if (species != null) {
+            speciesService.removeById(species.getId());
+        }
+    }
+
+    /**
+     * 原实现：分页查询帖子后逐行调用 getPkById
+     */
+    private List<PkPostVO> perRow(PkQueryRequest request) {
+        Page<Post> postPage = postService.page(new Page<>(request.getPageNum(), request.getPageSize()),
+                new LambdaQueryWrapper<Post>()
+                        .eq(Post::getPostType, "pk")
+                        .eq(Post::getAgentId, request.getAgentId())
+                        .orderByDesc(Post::getCreateTime));
+        List<PkPostVO> result = new ArrayList<>();
+        for (Post post : postPage.getRecords()) {
+            result.add(pkService.getPkById(post.getId(), agent.getUserId()));
+        }
+        return result;
+    }
+
+    private Result measure(Runnable query) {
+        long statementsBefore = statementCounter.count.get();
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            query.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long statements = statementCounter.count.get() - statementsBefore;
+        return new Result(statements / (double) rounds, elapsed / 1_000_000.0 / rounds);
+    }
+
+    private void seed(int pkCount) {
+        String suffix = String.valueOf(System.currentTimeMillis());
+        species = new Species();
+        species.setName("bench_" + suffix);
+        species.setDescription("bench");
+        species.setIsDelete(0);
+        speciesService.save(species);
+
+        agent = new Agent();
+        agent.setUserId(Long.parseLong(suffix));
+        agent.setSpeciesId(species.getId());
+        agent.setAgentName("bench_" + suffix);
+        agent.setPersonality("bench");
+        agent.setEnergy(100);
+        agent.setPostCount(0);
+        agent.setCommentCount(0);
+        agent.setLikeCount(0);
+        agent.setDislikeCount(0);
+        agent.setLastEnergyReset(LocalDate.now());
+        agent.setCreateTime(LocalDateTime.now());
+        agent.setUpdateTime(LocalDateTime.now());
+        agent.setIsDelete(0);
+        agentService.save(agent);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < pkCount; i++) {
+            Post post = new Post();
+            post.setAgentId(agent.getId());
+            post.setPostType("pk");
+            post.setTitle("bench pk " + i);
+            post.setContent("bench");
+            post.setLikeCount(0);
+            post.setDislikeCount(0);
+            post.setCommentCount(0);
+            post.setCreateTime(now.minusSeconds(i));
+            post.setUpdateTime(now);
+            postService.save(post);
+            createdPostIds.add(post.getId());
+
+            List<PkVoteOption> options = new ArrayList<>();
+            for (String text : new String[]{"A", "B"}) {
+                PkVoteOption option = new PkVoteOption();
+                option.setPostId(post.getId());
+                option.setOptionText(text);
+                option.setVoteCount(i);
+                option.setStatus("active");
+                option.setEndTime(now.plusHours(24));
+                options.add(option);
+            }
+            pkVoteOptionService.saveBatch(options);
+
+            // 一半帖子已投票
+            if (i % 2 == 0) {
+                AgentVoteRecord record = new AgentVoteRecord();
+                record.setAgentId(agent.getId());
+                record.setPostId(post.getId());
+                record.setOptionId(options.get(0).getId());
+                agentVoteRecordService.save(record);
+            }
+        }
+    }
+
+    private record Result(double statements, double millis) {
+    }
+
+    /**
+     * 统计实际发往数据库的语句数（分页插件的 count 查询也经过 StatementHandler）
+     */
+    @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+    static class StatementCounter implements Interceptor {
+
+        private final AtomicLong count = new AtomicLong();
+
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            count.incrementAndGet();
+            return invocation.proceed();
+        }
+    }
+}
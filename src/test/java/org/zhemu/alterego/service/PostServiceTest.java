@@ -10,13 +10,18 @@ import org.zhemu.alterego.model.dto.post.PostQueryRequest;
 import org.zhemu.alterego.model.entity.Agent;
 import org.zhemu.alterego.model.entity.PostTag;
 import org.zhemu.alterego.model.entity.Species;
+import org.zhemu.alterego.model.vo.PostPageVO;
 import org.zhemu.alterego.model.vo.PostVO;
 
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.any;
 
@@ -83,6 +88,42 @@ class PostServiceTest {
         assertNotNull(target.getTags());
     }
 
+    @Test
+    void listPostByCursor_shouldPageWithoutOverlap() {
+        Agent agent = createAgentWithSpecies();
+
+        AiPostGenerateResult result = new AiPostGenerateResult();
+        result.title = "title";
+        result.content = "content";
+        result.tags = Collections.singletonList("Tag");
+        when(aiPostGeneratorService.generatePost(any(), any())).thenReturn(result);
+
+        AgentPostGenerateRequest request = new AgentPostGenerateRequest();
+        request.setAgentId(agent.getId());
+        for (int i = 0; i < 3; i++) {
+            postService.aiGeneratePost(request, agent.getUserId());
+        }
+
+        PostQueryRequest queryRequest = new PostQueryRequest();
+        queryRequest.setPageSize(2);
+        queryRequest.setAgentId(agent.getId());
+
+        PostPageVO first = postService.listPostByCursor(queryRequest);
+        assertEquals(2, first.getRecords().size());
+        assertTrue(first.isHasMore());
+        assertNotNull(first.getNextCursorId());
+
+        queryRequest.setCursorTime(first.getNextCursorTime());
+        queryRequest.setCursorId(first.getNextCursorId());
+        PostPageVO second = postService.listPostByCursor(queryRequest);
+        assertEquals(1, second.getRecords().size());
+        assertFalse(second.isHasMore());
+
+        Set<Long> ids = new HashSet<>();
+        first.getRecords().forEach(vo -> ids.add(vo.getId()));
+        second.getRecords().forEach(vo -> assertTrue(ids.add(vo.getId())));
+    }
+
     private Agent createAgentWithSpecies() {
         Species species = new Species();
         String suffix = String.valueOf(System.currentTimeMillis());
@@ -0,0 +1,96 @@
+package org.zhemu.alterego.service.base;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AI 生成接口线程模型对比基准：平台线程（Tomcat 默认 200 线程 + boundedElastic）vs 虚拟线程
+ * 生成链路使用 {@link StubAiPipeline}（桩模型按时延分布流式返回、会话加载/摘要/结构化解析/会话保存走真实代码），
+ * 请求线程阻塞等待生成结果，与同步接口一致；只替换阻塞 IO 调度器和请求线程池
+ * <p>
+ * 手动运行：./mvnw test -Dtest=AiGeneratorThreadingBenchmark -Dbenchmark=true
+ * 可选参数：-Dbenchmark.requests=2000 -Dbenchmark.latency-ms=200 -Dbenchmark.per-token-ms=1 -Dbenchmark.agents=100
+ *
+ * @author lushihao
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AiGeneratorThreadingBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    private final int requests = Integer.getInteger("benchmark.requests", 2000);
+
+    /**
+     * 桩模型首 token 时延中位数
+     */
+    private final long latencyMs = Long.getLong("benchmark.latency-ms", 200);
+
+    private final double perTokenMs = Double.parseDouble(System.getProperty("benchmark.per-token-ms", "1"));
+
+    private final int agents = Integer.getInteger("benchmark.agents", 100);
+
+    @Test
+    void compareThroughput() throws Exception {
+        // 预热，避免类加载和 JIT 计入第一轮
+        run("warmup", Executors.newFixedThreadPool(TOMCAT_MAX_THREADS), Schedulers.boundedElastic(), 200);
+
+        Result platform = run("platform",
+                Executors.newFixedThreadPool(TOMCAT_MAX_THREADS), Schedulers.boundedElastic(), requests);
+        Result virtual = run("virtual",
+                Executors.newVirtualThreadPerTaskExecutor(),
+                Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "bench-virtual"),
+                requests);
+
+        System.out.printf("requests=%d, agents=%d, first token median=%dms, per token=%.1fms%n",
+                requests, agents, latencyMs, perTokenMs);
+        System.out.println(platform);
+        System.out.println(virtual);
+        System.out.printf("virtual / platform throughput = %.2fx%n", virtual.throughput() / platform.throughput());
+    }
+
+    private Result run(String name, ExecutorService requestExecutor, Scheduler ioScheduler, int total) throws Exception {
+        StubAiPipeline pipeline = new StubAiPipeline(agents, latencyMs, perTokenMs, ioScheduler);
+
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+        try (requestExecutor) {
+            List<Future<?>> futures = new ArrayList<>(total);
+            for (int i = 0; i < total; i++) {
+                long seq = i;
+                futures.add(requestExecutor.submit(() -> {
+                    try {
+                        pipeline.generate(StubAiPipeline.Kind.POST, seq);
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        return new Result(name, total, failed.get(), elapsedMs);
+    }
+
+    private record Result(String name, int requests, int failed, long elapsedMs) {
+
+        double throughput() {
+            return requests * 1000.0 / Math.max(elapsedMs, 1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s elapsed=%dms, throughput=%.1f req/s, failed=%d", name, elapsedMs, throughput(), failed);
+        }
+    }
+}
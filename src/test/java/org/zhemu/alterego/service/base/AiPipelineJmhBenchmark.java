@@ -0,0 +1,73 @@
+package org.zhemu.alterego.service.base;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AI 生成链路 JMH 基准：桩模型时延为 0，测的是链路自身开销
+ * （Prompt 构建、会话加载与摘要判断、ReActAgent 调度、结构化解析、Msg 序列化与追加保存）
+ * <p>
+ * 手动运行：./mvnw test -Dtest=AiPipelineJmhBenchmark -Dbenchmark=true
+ * 可选参数：-Dbenchmark.threads=8 -Dbenchmark.agents=100 -Dbenchmark.measure-seconds=10；
+ * 结果同时写入 target/jmh-ai-pipeline.json，可与基线对比
+ *
+ * @author lushihao
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AiPipelineJmhBenchmark {
+
+    @Param({"POST", "COMMENT", "PK", "VOTE"})
+    public StubAiPipeline.Kind kind;
+
+    private StubAiPipeline pipeline;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup
+    public void setup() {
+        pipeline = new StubAiPipeline(Integer.getInteger("benchmark.agents", 100), 0L, 0.0);
+    }
+
+    @Benchmark
+    public Object generate() {
+        return pipeline.generate(kind, sequence.getAndIncrement());
+    }
+
+    /**
+     * 在 JUnit 中启动 JMH（不 fork，surefire 的类路径可直接复用）
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void runBenchmarks() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(AiPipelineJmhBenchmark.class.getName() + ".generate")
+                .forks(0)
+                .threads(Integer.getInteger("benchmark.threads", 8))
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(5))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(Integer.getInteger("benchmark.measure-seconds", 10)))
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-ai-pipeline.json")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,91 @@
+package org.zhemu.alterego.service.base;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AI 生成链路压测：桩模型按对数正态分布模拟上游时延，固定并发持续压入请求，
+ * 统计每种生成类型的端到端吞吐与 p50/p99/max（含会话加载、摘要、保存）
+ * <p>
+ * 手动运行：./mvnw test -Dtest=AiPipelineLoadHarness -Dbenchmark=true
+ * 可选参数：-Dbenchmark.requests=2000 -Dbenchmark.concurrency=200 -Dbenchmark.agents=100
+ * 以及 {@link StubAiPipeline} 的桩模型参数（-Dstub.first-token-median-ms 等）
+ *
+ * @author lushihao
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AiPipelineLoadHarness {
+
+    private final int requests = Integer.getInteger("benchmark.requests", 2000);
+
+    private final int concurrency = Integer.getInteger("benchmark.concurrency", 200);
+
+    private final int agents = Integer.getInteger("benchmark.agents", 100);
+
+    @Test
+    void runLoad() throws Exception {
+        System.out.printf("requests=%d, concurrency=%d, agents=%d%n", requests, concurrency, agents);
+        for (StubAiPipeline.Kind kind : StubAiPipeline.Kind.values()) {
+            StubAiPipeline pipeline = new StubAiPipeline(agents, 800L, 10.0);
+            // 预热：类加载、JIT、Caffeine 初始化不计入结果
+            run(pipeline, kind, Math.min(200, requests));
+            System.out.println(run(pipeline, kind, requests));
+        }
+    }
+
+    private Result run(StubAiPipeline pipeline, StubAiPipeline.Kind kind, int total) throws Exception {
+        long[] latencies = new long[total];
+        AtomicInteger failed = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(total);
+            for (int i = 0; i < total; i++) {
+                int index = i;
+                inFlight.acquire();
+                futures.add(executor.submit(() -> {
+                    long begin = System.nanoTime();
+                    try {
+                        pipeline.generate(kind, index);
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    } finally {
+                        latencies[index] = System.nanoTime() - begin;
+                        inFlight.release();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        Arrays.sort(latencies);
+        return new Result(kind, total, failed.get(), elapsedMs,
+                percentileMs(latencies, 0.50), percentileMs(latencies, 0.99), latencies[total - 1] / 1_000_000);
+    }
+
+    private static long percentileMs(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000;
+    }
+
+    private record Result(StubAiPipeline.Kind kind, int requests, int failed, long elapsedMs,
+                          long p50Ms, long p99Ms, long maxMs) {
+
+        @Override
+        public String toString() {
+            return String.format("%-8s throughput=%.1f req/s, p50=%dms, p99=%dms, max=%dms, failed=%d",
+                    kind, requests * 1000.0 / Math.max(elapsedMs, 1), p50Ms, p99Ms, maxMs, failed);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package org.zhemu.alterego.service.base;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import io.agentscope.core.session.Session;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.zhemu.alterego.config.StubChatModel;
+import org.zhemu.alterego.manager.AgentMemoryStore;
+import org.zhemu.alterego.manager.AgentSummaryManager;
+import org.zhemu.alterego.manager.ModelResilienceManager;
+import org.zhemu.alterego.mapper.AgentMemoryMessageMapper;
+import org.zhemu.alterego.model.entity.AgentMemoryMessage;
+import org.zhemu.alterego.model.entity.Agent;
+import org.zhemu.alterego.model.entity.PkVoteOption;
+import org.zhemu.alterego.model.entity.Post;
+import org.zhemu.alterego.model.entity.Species;
+import org.zhemu.alterego.service.impl.AiCommentGeneratorServiceImpl;
+import org.zhemu.alterego.service.impl.AiPkGeneratorServiceImpl;
+import org.zhemu.alterego.service.impl.AiPkVoteGeneratorServiceImpl;
+import org.zhemu.alterego.service.impl.AiPostGeneratorServiceImpl;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 离线 AI 生成链路：四个生成器接 {@link StubChatModel}，记忆存储和摘要缓存接内存实现，
+ * 会话加载/摘要/结构化解析/会话保存（含 Msg 序列化）都走真实代码，只替换网络和数据库。
+ * Mock 均为 stubOnly，不记录调用，长时间压测不会累积内存
+ * <p>
+ * 桩模型参数可通过系统属性调整：-Dstub.first-token-median-ms=800 -Dstub.first-token-sigma=0.5
+ * -Dstub.per-token-ms=10 -Dstub.output-tokens-mean=120 -Dstub.output-tokens-stddev=40 -Dstub.seed=42
+ *
+ * @author lushihao
+ */
+public class StubAiPipeline {
+
+    /**
+     * 生成类型
+     */
+    public enum Kind {
+        POST, COMMENT, PK, VOTE
+    }
+
+    private final AiPostGeneratorServiceImpl postGenerator;
+    private final AiCommentGeneratorServiceImpl commentGenerator;
+    private final AiPkGeneratorServiceImpl pkGenerator;
+    private final AiPkVoteGeneratorServiceImpl voteGenerator;
+
+    private final List<Agent> agents = new ArrayList<>();
+    private final Species species;
+    private final Post post;
+    private final Post pkPost;
+    private final PkVoteOption optionA;
+    private final PkVoteOption optionB;
+
+    /**
+     * @param agentCount         参与的 Agent 数，请求按序轮转，决定会话数和每个会话的历史增长速度
+     * @param firstTokenMedianMs 桩模型首 token 时延中位数默认值（系统属性优先）
+     * @param perTokenMs         桩模型每 token 耗时默认值（系统属性优先）
+     */
+    public StubAiPipeline(int agentCount, long firstTokenMedianMs, double perTokenMs) {
+        this(agentCount, firstTokenMedianMs, perTokenMs, Schedulers.boundedElastic());
+    }
+
+    /**
+     * @param ioScheduler 会话读写等阻塞 IO 使用的调度器（对比平台线程与虚拟线程时替换）
+     */
+    public StubAiPipeline(int agentCount, long firstTokenMedianMs, double perTokenMs, Scheduler ioScheduler) {
+        StubChatModel model = StubChatModel.builder()
+                .seed(Long.getLong("stub.seed", 42L))
+                .firstTokenMedianMs(Long.getLong("stub.first-token-median-ms", firstTokenMedianMs))
+                .firstTokenSigma(Double.parseDouble(System.getProperty("stub.first-token-sigma", "0.5")))
+                .perTokenMs(Double.parseDouble(System.getProperty("stub.per-token-ms", String.valueOf(perTokenMs))))
+                .outputTokensMean(Integer.getInteger("stub.output-tokens-mean", 120))
+                .outputTokensStddev(Integer.getInteger("stub.output-tokens-stddev", 40))
+                .build();
+
+        AgentMemoryStore memoryStore = new AgentMemoryStore(inMemoryMessageMapper(), mock(Session.class));
+        ReflectionTestUtils.setField(memoryStore, "cacheMaxSize", 2000L);
+        ReflectionTestUtils.setField(memoryStore, "cacheExpireMinutes", 30L);
+        memoryStore.init();
+
+        ModelResilienceManager resilienceManager = new ModelResilienceManager();
+        ReflectionTestUtils.setField(resilienceManager, "bulkheadMaxConcurrent", 4096);
+        ReflectionTestUtils.setField(resilienceManager, "limitMin", 4096);
+        ReflectionTestUtils.setField(resilienceManager, "latencyTargetMs", 15000L);
+        ReflectionTestUtils.setField(resilienceManager, "timeoutMs", 60000L);
+        ReflectionTestUtils.setField(resilienceManager, "breakerWindowSize", 20);
+        ReflectionTestUtils.setField(resilienceManager, "breakerMinCalls", 10);
+        ReflectionTestUtils.setField(resilienceManager, "breakerFailureRate", 0.5);
+        ReflectionTestUtils.setField(resilienceManager, "breakerOpenMs", 30000L);
+        ReflectionTestUtils.setField(resilienceManager, "breakerHalfOpenPermits", 3);
+
+        AgentSummaryManager summaryManager = new AgentSummaryManager(model, inMemoryRedis(), resilienceManager);
+        ReflectionTestUtils.setField(summaryManager, "summaryThreshold", 30);
+        ReflectionTestUtils.setField(summaryManager, "summaryKeep", 10);
+
+        postGenerator = new AiPostGeneratorServiceImpl(model, memoryStore, summaryManager, ioScheduler, resilienceManager);
+        commentGenerator = new AiCommentGeneratorServiceImpl(model, memoryStore, summaryManager, ioScheduler, resilienceManager);
+        pkGenerator = new AiPkGeneratorServiceImpl(model, memoryStore, summaryManager, ioScheduler, resilienceManager);
+        voteGenerator = new AiPkVoteGeneratorServiceImpl(model, memoryStore, summaryManager, ioScheduler, resilienceManager);
+
+        species = new Species();
+        species.setId(1L);
+        species.setName("猫");
+        for (long i = 1; i <= agentCount; i++) {
+            Agent agent = new Agent();
+            agent.setId(i);
+            agent.setSpeciesId(1L);
+            agent.setAgentName("agent-" + i);
+            agent.setPersonality("好奇、话多，喜欢反驳别人");
+            agents.add(agent);
+        }
+        post = new Post();
+        post.setId(1L);
+        post.setAgentId(1L);
+        post.setTitle("周末去哪儿玩");
+        post.setContent("最近天气不错，大家周末都打算去哪里？");
+        pkPost = new Post();
+        pkPost.setId(2L);
+        pkPost.setAgentId(1L);
+        pkPost.setTitle("猫和狗谁更适合当宠物");
+        pkPost.setContent("来站队吧");
+        optionA = new PkVoteOption();
+        optionA.setId(1L);
+        optionA.setOptionText("猫");
+        optionB = new PkVoteOption();
+        optionB.setId(2L);
+        optionB.setOptionText("狗");
+    }
+
+    /**
+     * 执行一次完整生成（阻塞）
+     *
+     * @param kind 生成类型
+     * @param i    请求序号，用于轮转 Agent
+     * @return 生成结果
+     */
+    public Object generate(Kind kind, long i) {
+        Agent agent = agents.get((int) (i % agents.size()));
+        return switch (kind) {
+            case POST -> postGenerator.generatePost(agent, species);
+            case COMMENT -> commentGenerator.generateComment(agent, species, post, agents.get(0), null, null);
+            case PK -> pkGenerator.generatePk(agent, species);
+            case VOTE -> voteGenerator.generateVote(agent, species, pkPost, optionA, optionB);
+        };
+    }
+
+    /**
+     * 内存版 agent_memory_message：按会话保存行，序号冲突时抛出唯一键异常
+     */
+    private static AgentMemoryMessageMapper inMemoryMessageMapper() {
+        // LambdaQueryWrapper 解析列名需要实体的 TableInfo
+        if (TableInfoHelper.getTableInfo(AgentMemoryMessage.class) == null) {
+            TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""),
+                    AgentMemoryMessage.class);
+        }
+        // 每个会话的行列表不可变，追加时整体替换，序号冲突时抛出唯一键异常且不修改
+        Map<String, List<AgentMemoryMessage>> tables = new ConcurrentHashMap<>();
+
+        AgentMemoryMessageMapper mapper = mock(AgentMemoryMessageMapper.class, withSettings().stubOnly());
+        when(mapper.selectMaxSeq(anyString())).thenAnswer(invocation -> {
+            List<AgentMemoryMessage> rows = tables.getOrDefault(invocation.<String>getArgument(0), List.of());
+            return rows.isEmpty() ? null : rows.get(rows.size() - 1).getSeq();
+        });
+        when(mapper.selectList(any())).thenAnswer(invocation -> {
+            AbstractWrapper<?, ?, ?> wrapper = invocation.getArgument(0);
+            String sessionId = (String) wrapper.getParamNameValuePairs().values().iterator().next();
+            return new ArrayList<>(tables.getOrDefault(sessionId, List.of()));
+        });
+        when(mapper.batchInsert(any())).thenAnswer(invocation -> {
+            List<AgentMemoryMessage> inserted = invocation.getArgument(0);
+            AgentMemoryMessage first = inserted.get(0);
+            tables.compute(first.getSessionId(), (sessionId, rows) -> {
+                List<AgentMemoryMessage> current = rows == null ? List.of() : rows;
+                if (!current.isEmpty() && first.getSeq() <= current.get(current.size() - 1).getSeq()) {
+                    throw new DuplicateKeyException("uk_session_seq");
+                }
+                List<AgentMemoryMessage> merged = new ArrayList<>(current.size() + inserted.size());
+                merged.addAll(current);
+                merged.addAll(inserted);
+                return List.copyOf(merged);
+            });
+            return inserted.size();
+        });
+        return mapper;
+    }
+
+    /**
+     * 内存版 Redis 字符串操作，只覆盖摘要缓存用到的 get/set
+     */
+    @SuppressWarnings("unchecked")
+    private static StringRedisTemplate inMemoryRedis() {
+        Map<String, String> values = new ConcurrentHashMap<>();
+        ValueOperations<String, String> ops = mock(ValueOperations.class, withSettings().stubOnly());
+        when(ops.get(any())).thenAnswer(invocation -> values.get((String) invocation.getArgument(0)));
+        doAnswer(invocation -> {
+            values.put(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(ops).set(anyString(), anyString(), anyLong(), any());
+        StringRedisTemplate template = mock(StringRedisTemplate.class, withSettings().stubOnly());
+        when(template.opsForValue()).thenReturn(ops);
+        return template;
+    }
+}